@@ -17,21 +17,37 @@ package org.wildfly.halos.api;
 
 import java.time.LocalDateTime;
 
-public record Connection(Status status, LocalDateTime timestamp, String message) {
+import org.wildfly.halos.api.json.GenerateJsonWriter;
+
+@GenerateJsonWriter
+public record Connection(Status status, LocalDateTime timestamp, String message, Circuit circuit) {
 
     public enum Status {
         PENDING, CONNECTED, FAILED
     }
 
+    /**
+     * State of the circuit breaker of a connected service. {@code OPEN} means requests fail fast, because the service
+     * didn't respond, {@code HALF_OPEN} that a probe request is in flight. {@code null} if the capability doesn't use
+     * circuit breakers.
+     */
+    public enum Circuit {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
     public static Connection pending() {
-        return new Connection(Status.PENDING, LocalDateTime.now(), null);
+        return new Connection(Status.PENDING, LocalDateTime.now(), null, null);
     }
 
     public static Connection connected() {
-        return new Connection(Status.CONNECTED, LocalDateTime.now(), null);
+        return new Connection(Status.CONNECTED, LocalDateTime.now(), null, null);
     }
 
     public static Connection failed(final String reason) {
-        return new Connection(Status.FAILED, LocalDateTime.now(), reason);
+        return new Connection(Status.FAILED, LocalDateTime.now(), reason, null);
+    }
+
+    public Connection withCircuit(final Circuit circuit, final String message) {
+        return new Connection(status, LocalDateTime.now(), message, circuit);
     }
 }
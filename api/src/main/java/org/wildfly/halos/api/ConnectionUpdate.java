@@ -0,0 +1,23 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api;
+
+/**
+ * CDI event fired by capability extensions when the circuit breaker of a connected managed service changes its state. Only
+ * the circuit and the message of the current connection are updated, its status is kept.
+ */
+public record ConnectionUpdate(String managedService, Connection.Circuit circuit, String message) {
+}
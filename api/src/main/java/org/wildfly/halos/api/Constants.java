@@ -19,4 +19,10 @@ public interface Constants {
 
     int HTTP_PORT = 80;
     int HTTPS_PORT = 443;
+
+    /** Concise Binary Object Representation (RFC 8949) */
+    String APPLICATION_CBOR = "application/cbor";
+
+    /** Sequence of CBOR data items (RFC 8742) used to stream modifications */
+    String APPLICATION_CBOR_SEQ = "application/cbor-seq";
 }
@@ -18,8 +18,11 @@ package org.wildfly.halos.api;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.wildfly.halos.api.json.GenerateJsonWriter;
+
 import io.fabric8.kubernetes.api.model.Service;
 
+@GenerateJsonWriter
 public record ManagedService(String name, Connection connection, Set<Capability> capabilities) {
 
     public static ManagedService fromService(final Service service, final Capability capability) {
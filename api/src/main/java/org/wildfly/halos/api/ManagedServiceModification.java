@@ -15,5 +15,8 @@
  */
 package org.wildfly.halos.api;
 
+import org.wildfly.halos.api.json.GenerateJsonWriter;
+
+@GenerateJsonWriter
 public record ManagedServiceModification(ManagedService managedService, Modification modification) {
 }
@@ -0,0 +1,45 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api;
+
+import java.util.List;
+
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.Link;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+
+/**
+ * A page of a {@link SortedIndex}. {@code next} is the cursor of the following page or {@code null} if this is the last
+ * page.
+ */
+public record Page<T>(List<T> items, String next) {
+
+    /**
+     * Returns the items as response body. If there's a next page, a {@code Link} header with {@code rel="next"} is added,
+     * which points to the request URI with the {@code cursor} query parameter replaced.
+     */
+    public Response response(final UriInfo uriInfo, final GenericType<List<T>> type) {
+        Response.ResponseBuilder builder = Response.ok(new GenericEntity<>(items, type.getType()));
+        if (next != null) {
+            builder.links(Link.fromUriBuilder(uriInfo.getRequestUriBuilder().replaceQueryParam(PageRequest.CURSOR, next))
+                    .rel("next")
+                    .build());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import jakarta.ws.rs.BadRequestException;
+
+/**
+ * Position, sort order and size of a page. Cursors are opaque to clients: they encode the sort order and the index key of
+ * the last item of the previous page. Since index keys are unique and stable, paging through a collection neither skips
+ * nor repeats items which are not modified in the meantime.
+ */
+public record PageRequest(String sort, boolean descending, String after, int limit) {
+
+    public static final String CURSOR = "cursor";
+    public static final String LIMIT = "limit";
+    public static final String SORT = "sort";
+
+    public static final String DEFAULT_SORT = "name";
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private static final char DESCENDING = '-';
+    private static final char CURSOR_SEPARATOR = '\n';
+
+    /**
+     * Creates a page request from the query parameters {@code sort}, {@code cursor} and {@code limit}. All parameters are
+     * optional. Prefix {@code sort} with {@code -} for a descending sort order. If a cursor is given, it determines the sort
+     * order.
+     *
+     * @throws BadRequestException if the parameters are invalid
+     */
+    public static PageRequest of(final String sort, final String cursor, final Integer limit) {
+        int l = limit == null ? DEFAULT_LIMIT : limit;
+        if (l < 1 || l > MAX_LIMIT) {
+            throw new BadRequestException(String.format("Limit must be between 1 and %d", MAX_LIMIT));
+        }
+        if (cursor != null) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            int separator = decoded.indexOf(CURSOR_SEPARATOR);
+            if (separator < 1) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            String cursorSort = decoded.substring(0, separator);
+            if (sort != null && !sort.equals(cursorSort)) {
+                throw new BadRequestException(String.format("Cursor does not match sort order %s", sort));
+            }
+            return sort(cursorSort, decoded.substring(separator + 1), l);
+        }
+        return sort(sort == null || sort.isEmpty() ? DEFAULT_SORT : sort, null, l);
+    }
+
+    /** Whether any of the paging query parameters has been specified. */
+    public static boolean paged(final String sort, final String cursor, final Integer limit) {
+        return sort != null || cursor != null || limit != null;
+    }
+
+    private static PageRequest sort(final String sort, final String after, final int limit) {
+        boolean descending = sort.charAt(0) == DESCENDING;
+        return new PageRequest(descending ? sort.substring(1) : sort, descending, after, limit);
+    }
+
+    String cursor(final String last) {
+        String value = (descending ? DESCENDING + sort : sort) + CURSOR_SEPARATOR + last;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
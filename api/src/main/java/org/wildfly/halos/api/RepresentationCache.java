@@ -0,0 +1,174 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Providers;
+
+/**
+ * Caches serialized (and gzipped) representations of collection snapshots. A representation is reused across requests until the
+ * version of the underlying repository changes. Responses carry a strong entity tag, so clients can revalidate using
+ * {@code If-None-Match}.
+ * <p>
+ * Repositories must increment their version <em>after</em> they modified their data and callers must read the version
+ * <em>before</em> they read the data. This way a representation is never cached with a version newer than its content.
+ */
+@ApplicationScoped
+public class RepresentationCache {
+
+    private static final MediaType APPLICATION_CBOR_TYPE = MediaType.valueOf(Constants.APPLICATION_CBOR);
+    private static final List<MediaType> MEDIA_TYPES = List.of(MediaType.APPLICATION_JSON_TYPE, APPLICATION_CBOR_TYPE);
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+    private static final String GZIP = "gzip";
+    private static final int MIN_COMPRESSION_SIZE = 256;
+    private static final String EPOCH = Long.toHexString(System.currentTimeMillis());
+
+    private final Map<String, Representation> representations; // key == resource + media type
+
+    RepresentationCache() {
+        representations = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns a response for the specified snapshot. The media type and encoding are negotiated using the request headers.
+     *
+     * @param resource unique name of the snapshot resource
+     * @param version the current version of the repository providing the snapshot
+     * @param snapshot supplies the snapshot if there's no cached representation for that version
+     * @param type the generic type of the snapshot
+     */
+    public <T> Response response(final String resource, final long version, final Supplier<T> snapshot,
+            final GenericType<T> type, final Request request, final HttpHeaders headers, final Providers providers) {
+        MediaType mediaType = mediaType(headers);
+        String key = resource + "|" + mediaType;
+        // compute() blocks concurrent requests for the same key, so a representation is serialized only once per version
+        Representation representation = representations.compute(key,
+                (k, existing) -> existing != null && existing.version == version ? existing
+                        : new Representation(version, serialize(resource, version, snapshot, type, mediaType, providers)));
+
+        boolean gzip = acceptsGzip(headers) && representation.identity.length >= MIN_COMPRESSION_SIZE;
+        EntityTag etag = new EntityTag(
+                resource + "-" + EPOCH + "-" + version + "-" + mediaType.getSubtype() + (gzip ? "-" + GZIP : ""));
+        Response.ResponseBuilder builder = request.evaluatePreconditions(etag);
+        if (builder == null) {
+            builder = Response.ok(gzip ? representation.gzip() : representation.identity, mediaType);
+            if (gzip) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+            }
+        }
+        return builder.tag(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING).build();
+    }
+
+    private MediaType mediaType(final HttpHeaders headers) {
+        for (MediaType acceptable : headers.getAcceptableMediaTypes()) {
+            for (MediaType mediaType : MEDIA_TYPES) {
+                if (acceptable.isCompatible(mediaType)) {
+                    return mediaType;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON_TYPE;
+    }
+
+    private boolean acceptsGzip(final HttpHeaders headers) {
+        String acceptEncoding = headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null) {
+            for (String coding : acceptEncoding.split(",")) {
+                int semicolon = coding.indexOf(';');
+                String name = (semicolon == -1 ? coding : coding.substring(0, semicolon)).trim();
+                if (GZIP.equalsIgnoreCase(name) || "*".equals(name)) {
+                    return semicolon == -1 || !coding.substring(semicolon + 1).replace(" ", "").matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> byte[] serialize(final String resource, final long version, final Supplier<T> snapshot,
+            final GenericType<T> type, final MediaType mediaType, final Providers providers) {
+        SnapshotSerializationEvent event = new SnapshotSerializationEvent();
+        event.begin();
+        Class<T> rawType = (Class<T>) type.getRawType();
+        MessageBodyWriter<T> writer = providers.getMessageBodyWriter(rawType, type.getType(), NO_ANNOTATIONS, mediaType);
+        if (writer == null) {
+            throw new IllegalStateException("No message body writer for " + type + " and " + mediaType);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+            writer.writeTo(snapshot.get(), rawType, type.getType(), NO_ANNOTATIONS, mediaType, new MultivaluedHashMap<>(),
+                    out);
+            byte[] bytes = out.toByteArray();
+            event.end();
+            if (event.shouldCommit()) {
+                event.resource = resource;
+                event.mediaType = mediaType.toString();
+                event.version = version;
+                event.bytes = bytes.length;
+                event.commit();
+            }
+            return bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Representation {
+
+        private final long version;
+        private final byte[] identity;
+        private volatile byte[] gzip;
+
+        private Representation(final long version, final byte[] identity) {
+            this.version = version;
+            this.identity = identity;
+        }
+
+        private byte[] gzip() {
+            byte[] result = gzip;
+            if (result == null) {
+                // benign race: at worst the representation is compressed more than once
+                ByteArrayOutputStream out = new ByteArrayOutputStream(identity.length / 4 + 64);
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                    gzipOut.write(identity);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                result = out.toByteArray();
+                gzip = result;
+            }
+            return result;
+        }
+    }
+}
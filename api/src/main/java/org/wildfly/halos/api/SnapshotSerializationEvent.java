@@ -0,0 +1,37 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.wildfly.halos.SnapshotSerialization")
+@Label("Snapshot Serialization")
+@Description("Serialization of a collection snapshot by the representation cache")
+@Category({ "halOS", "API" })
+@StackTrace(false)
+class SnapshotSerializationEvent extends Event {
+
+    @Label("Resource") String resource;
+    @Label("Media Type") String mediaType;
+    @Label("Version") long version;
+    @Label("Size") @DataAmount long bytes;
+}
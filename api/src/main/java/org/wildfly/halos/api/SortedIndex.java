@@ -0,0 +1,171 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import jakarta.ws.rs.BadRequestException;
+
+/**
+ * Thread-safe collection which keeps its items in several sort orders at once. Each sort order is backed by a
+ * {@link ConcurrentSkipListMap}, so reading a page costs O(log n + page size) rather than sorting the whole collection.
+ * Filtered pages additionally skip the items which don't match the filter.
+ * <p>
+ * Items are identified by their name, which is also the default sort order. Other sort orders use the sort value followed
+ * by the name as index key, which keeps the keys unique. Modifications are serialized, reads are lock-free and weakly
+ * consistent.
+ */
+public class SortedIndex<T> {
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final Function<T, String> name;
+    private final Map<String, Function<T, String>> sortValues; // key == sort name
+    private final Map<String, T> items; // key == name
+    private final Map<String, ConcurrentSkipListMap<String, T>> indexes; // key == sort name
+
+    public SortedIndex(final Function<T, String> name) {
+        this.name = name;
+        this.sortValues = new ConcurrentHashMap<>();
+        this.items = new ConcurrentHashMap<>();
+        this.indexes = new ConcurrentHashMap<>();
+        this.indexes.put(PageRequest.DEFAULT_SORT, new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Adds a sort order. Must be called before any items are added. {@code null} sort values sort first.
+     */
+    public SortedIndex<T> sortBy(final String sort, final Function<T, String> sortValue) {
+        sortValues.put(sort, sortValue);
+        indexes.put(sort, new ConcurrentSkipListMap<>());
+        return this;
+    }
+
+    // ------------------------------------------------------ modify
+
+    /** Adds or replaces an item and returns the previous item with the same name (if any). */
+    public synchronized T put(final T item) {
+        T previous = items.put(name.apply(item), item);
+        for (Map.Entry<String, ConcurrentSkipListMap<String, T>> entry : indexes.entrySet()) {
+            String key = key(entry.getKey(), item);
+            entry.getValue().put(key, item);
+            if (previous != null) {
+                String previousKey = key(entry.getKey(), previous);
+                if (!previousKey.equals(key)) {
+                    entry.getValue().remove(previousKey);
+                }
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Replaces the item with the given name by the result of the update function, if the item is present. Runs under the
+     * same lock as {@link #put(Object)} and {@link #remove(String)}, so the item can't be removed in between. The update
+     * must keep the name of the item. Returns the updated item or {@code null} if there's no item with the given name or
+     * the update returned {@code null}.
+     */
+    public synchronized T computeIfPresent(final String name, final UnaryOperator<T> update) {
+        T current = items.get(name);
+        if (current != null) {
+            T updated = update.apply(current);
+            if (updated != null) {
+                put(updated);
+            }
+            return updated;
+        }
+        return null;
+    }
+
+    public synchronized T remove(final String name) {
+        T removed = items.remove(name);
+        if (removed != null) {
+            for (Map.Entry<String, ConcurrentSkipListMap<String, T>> entry : indexes.entrySet()) {
+                entry.getValue().remove(key(entry.getKey(), removed));
+            }
+        }
+        return removed;
+    }
+
+    private String key(final String sort, final T item) {
+        Function<T, String> sortValue = sortValues.get(sort);
+        if (sortValue == null) {
+            return name.apply(item);
+        } else {
+            String value = sortValue.apply(item);
+            return (value == null ? "" : value) + KEY_SEPARATOR + name.apply(item);
+        }
+    }
+
+    // ------------------------------------------------------ read
+
+    public T get(final String name) {
+        return items.get(name);
+    }
+
+    public Collection<T> values() {
+        return items.values();
+    }
+
+    public Set<String> sorts() {
+        return indexes.keySet();
+    }
+
+    public Page<T> page(final PageRequest request) {
+        return page(request, item -> true);
+    }
+
+    /**
+     * Returns the page specified by the request.
+     *
+     * @throws BadRequestException if the sort order of the request is unknown
+     */
+    public Page<T> page(final PageRequest request, final Predicate<? super T> filter) {
+        ConcurrentSkipListMap<String, T> index = indexes.get(request.sort());
+        if (index == null) {
+            throw new BadRequestException(
+                    String.format("Unknown sort order %s. Supported: %s", request.sort(), String.join(", ", sorts())));
+        }
+        NavigableMap<String, T> view = request.descending() ? index.descendingMap() : index;
+        if (request.after() != null) {
+            view = view.tailMap(request.after(), false);
+        }
+
+        String last = null;
+        boolean more = false;
+        ArrayList<T> page = new ArrayList<>(Math.min(request.limit(), 64));
+        for (Map.Entry<String, T> entry : view.entrySet()) {
+            if (filter.test(entry.getValue())) {
+                if (page.size() == request.limit()) {
+                    more = true;
+                    break;
+                }
+                page.add(entry.getValue());
+                last = entry.getKey();
+            }
+        }
+        return new Page<>(page, more ? request.cursor(last) : null);
+    }
+}
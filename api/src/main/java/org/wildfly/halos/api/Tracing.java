@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api;
+
+import java.time.Instant;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+
+/**
+ * Creates the spans which trace a managed service from the watch event to the delivery of its modifications. Most of these
+ * stages run asynchronously on different threads, so parents are always passed explicitly rather than relying on the
+ * current context. Hops which are not a parent-child relation (e.g. publishing a modification) are linked instead.
+ */
+@ApplicationScoped
+public class Tracing {
+
+    public static final AttributeKey<String> ACTION = AttributeKey.stringKey("halos.watch.action");
+    public static final AttributeKey<Long> ATTEMPT = AttributeKey.longKey("halos.attempt");
+    public static final AttributeKey<String> CAPABILITY = AttributeKey.stringKey("halos.capability");
+    public static final AttributeKey<String> CONNECTION_STATUS = AttributeKey.stringKey("halos.connection.status");
+    public static final AttributeKey<String> MANAGED_SERVICE = AttributeKey.stringKey("halos.managed.service");
+    public static final AttributeKey<String> MODIFICATION = AttributeKey.stringKey("halos.modification");
+
+    private final Tracer tracer;
+
+    @Inject
+    public Tracing(final Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /** Starts a span with the specified parent and links. The caller is responsible to end the span. */
+    public Span start(final String name, final Context parent, final SpanContext... links) {
+        return builder(name, parent, links).startSpan();
+    }
+
+    /** Records a span for a stage which started at {@code start} and ends now. */
+    public void record(final String name, final Context parent, final Instant start, final SpanContext... links) {
+        builder(name, parent, links).setStartTimestamp(start).startSpan().end();
+    }
+
+    /** Runs the work in a child span of the current span. */
+    public <T, E extends Exception> T inSpan(final String name, final SpanWork<T, E> work) throws E {
+        return inSpan(name, Context.current(), work);
+    }
+
+    /**
+     * Runs the work in a span with the specified parent. The span is current while the work runs, so nested calls of
+     * {@link #inSpan(String, SpanWork)} create child spans. Exceptions are recorded and rethrown.
+     */
+    public <T, E extends Exception> T inSpan(final String name, final Context parent, final SpanWork<T, E> work) throws E {
+        Span span = start(name, parent);
+        try (Scope ignored = span.makeCurrent()) {
+            return work.run(span);
+        } catch (Exception e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, e.getMessage());
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private SpanBuilder builder(final String name, final Context parent, final SpanContext... links) {
+        SpanBuilder builder = tracer.spanBuilder(name).setParent(parent);
+        for (SpanContext link : links) {
+            if (link.isValid()) {
+                builder.addLink(link);
+            }
+        }
+        return builder;
+    }
+
+    @FunctionalInterface
+    public interface SpanWork<T, E extends Exception> {
+
+        T run(Span span) throws E;
+    }
+}
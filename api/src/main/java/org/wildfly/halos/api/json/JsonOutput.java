@@ -0,0 +1,300 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Buffered, allocation-free JSON output on top of an {@link OutputStream}. Strings are escaped and UTF-8 encoded directly into
+ * the buffer. Property names are expected to be pre-encoded using {@link #name(String)}.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class JsonOutput {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    /** @return the UTF-8 bytes of the quoted and escaped name followed by a colon */
+    public static byte[] name(final String name) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(name.length() + 3);
+            JsonOutput json = new JsonOutput(out, name.length() * 6 + 3);
+            json.writeString(name);
+            json.writeByte(':');
+            json.flush();
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encodes the value into the buffer starting at the position. The buffer must have room for 20 bytes.
+     *
+     * @return the position after the value
+     */
+    public static int encodeLong(final byte[] buffer, final int position, final long value) {
+        if (value == Long.MIN_VALUE) {
+            System.arraycopy(MIN_LONG, 0, buffer, position, MIN_LONG.length);
+            return position + MIN_LONG.length;
+        }
+        int start = position;
+        long v = value;
+        if (v < 0) {
+            buffer[start++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long limit = 10; digits < 19 && v >= limit; limit *= 10) {
+            digits++;
+        }
+        int end = start + digits;
+        for (int i = end - 1; i >= start; i--) {
+            buffer[i] = (byte) ('0' + (v % 10));
+            v /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Encodes the code point as UTF-8 into the buffer starting at the position. The buffer must have room for 4 bytes.
+     * Unpaired surrogates are encoded as {@code ?}, same as {@code String.getBytes(UTF_8)}.
+     *
+     * @return the position after the encoded code point
+     */
+    public static int encodeUtf8(final byte[] buffer, final int position, final int codePoint) {
+        int p = position;
+        if (codePoint < 0x80) {
+            buffer[p++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[p++] = (byte) (0xc0 | (codePoint >> 6));
+            buffer[p++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+            buffer[p++] = '?';
+        } else if (codePoint < 0x10000) {
+            buffer[p++] = (byte) (0xe0 | (codePoint >> 12));
+            buffer[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            buffer[p++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else {
+            buffer[p++] = (byte) (0xf0 | (codePoint >> 18));
+            buffer[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+            buffer[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            buffer[p++] = (byte) (0x80 | (codePoint & 0x3f));
+        }
+        return p;
+    }
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+
+    public JsonOutput(final OutputStream out) {
+        this(out, DEFAULT_CAPACITY);
+    }
+
+    JsonOutput(final OutputStream out, final int capacity) {
+        this.out = out;
+        this.buffer = new byte[Math.max(capacity, 16)];
+        this.position = 0;
+    }
+
+    // ------------------------------------------------------ structure
+
+    public void beginObject() throws IOException {
+        writeByte('{');
+    }
+
+    public void endObject() throws IOException {
+        writeByte('}');
+    }
+
+    public void beginArray() throws IOException {
+        writeByte('[');
+    }
+
+    public void endArray() throws IOException {
+        writeByte(']');
+    }
+
+    public void comma() throws IOException {
+        writeByte(',');
+    }
+
+    /** Writes a pre-encoded property name, optionally preceded by a comma. */
+    public void name(final byte[] name, final boolean comma) throws IOException {
+        if (comma) {
+            writeByte(',');
+        }
+        writeRaw(name);
+    }
+
+    // ------------------------------------------------------ values
+
+    public void writeNull() throws IOException {
+        writeRaw(NULL);
+    }
+
+    public void writeBoolean(final boolean value) throws IOException {
+        writeRaw(value ? TRUE : FALSE);
+    }
+
+    public void writeLong(final long value) throws IOException {
+        ensure(20);
+        position = encodeLong(buffer, position, value);
+    }
+
+    public void writeDouble(final double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON does not support " + value);
+        }
+        writeAscii(Double.toString(value));
+    }
+
+    public void writeString(final String value) throws IOException {
+        writeByte('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (position + 12 > buffer.length) {
+                flush();
+            }
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x80) {
+                escape(c);
+            } else {
+                int codePoint = value.codePointAt(i);
+                position = encodeUtf8(buffer, position, codePoint);
+                i += Character.charCount(codePoint) - 1;
+            }
+        }
+        writeByte('"');
+    }
+
+    /** Writes the date as string using the format of {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME}. */
+    public void writeLocalDateTime(final LocalDateTime value) throws IOException {
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+            return;
+        }
+        ensure(32);
+        buffer[position++] = '"';
+        digits(year, 4);
+        buffer[position++] = '-';
+        digits(value.getMonthValue(), 2);
+        buffer[position++] = '-';
+        digits(value.getDayOfMonth(), 2);
+        buffer[position++] = 'T';
+        digits(value.getHour(), 2);
+        buffer[position++] = ':';
+        digits(value.getMinute(), 2);
+        buffer[position++] = ':';
+        digits(value.getSecond(), 2);
+        int nano = value.getNano();
+        if (nano > 0) {
+            int length = 9;
+            while (nano % 10 == 0) {
+                nano /= 10;
+                length--;
+            }
+            buffer[position++] = '.';
+            digits(nano, length);
+        }
+        buffer[position++] = '"';
+    }
+
+    /** Writes already encoded JSON. */
+    public void writeRaw(final byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flush();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /** Writes the buffered bytes to the underlying output stream. */
+    public void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    // ------------------------------------------------------ internals
+
+    private void writeByte(final int b) throws IOException {
+        if (position == buffer.length) {
+            flush();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeAscii(final String value) throws IOException {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void escape(final char c) {
+        buffer[position++] = '\\';
+        switch (c) {
+            case '"' -> buffer[position++] = '"';
+            case '\\' -> buffer[position++] = '\\';
+            case '\b' -> buffer[position++] = 'b';
+            case '\f' -> buffer[position++] = 'f';
+            case '\n' -> buffer[position++] = 'n';
+            case '\r' -> buffer[position++] = 'r';
+            case '\t' -> buffer[position++] = 't';
+            default -> {
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[(c >> 4) & 0xf];
+                buffer[position++] = HEX[c & 0xf];
+            }
+        }
+    }
+
+    private void digits(final int value, final int length) {
+        int v = value;
+        for (int i = position + length - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + (v % 10));
+            v /= 10;
+        }
+        position += length;
+    }
+
+    private void ensure(final int length) throws IOException {
+        if (position + length > buffer.length) {
+            flush();
+        }
+    }
+}
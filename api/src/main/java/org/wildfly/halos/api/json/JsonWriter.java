@@ -0,0 +1,30 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api.json;
+
+import java.io.IOException;
+
+/**
+ * Writes instances of a specific type as JSON. Writers for records are generated at build time (see
+ * {@link GenerateJsonWriter}). Writers for other types (e.g. value types of third party libraries) are written by hand. All
+ * writers are registered as CDI beans and collected by {@link JsonWriters}.
+ */
+public interface JsonWriter<T> {
+
+    Class<T> type();
+
+    void write(T value, JsonOutput out, JsonWriters writers) throws IOException;
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Writes JSON using the {@link JsonWriter}s generated at build time. Takes precedence over JSON-B for all types (and
+ * collections of types) with a writer. Everything else is left to JSON-B.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+@Priority(Priorities.USER - 100)
+public class JsonWriterMessageBodyWriter implements MessageBodyWriter<Object> {
+
+    @Inject JsonWriters writers;
+
+    @Override
+    public boolean isWriteable(final Class<?> aClass, final Type type, final Annotation[] annotations,
+            final MediaType mediaType) {
+        if (Collection.class.isAssignableFrom(aClass)) {
+            if (type instanceof ParameterizedType parameterizedType
+                    && parameterizedType.getActualTypeArguments().length == 1) {
+                Type elementType = parameterizedType.getActualTypeArguments()[0];
+                return elementType instanceof Class<?> elementClass && writers.supports(elementClass);
+            }
+            return false;
+        }
+        return writers.supports(aClass);
+    }
+
+    @Override
+    public void writeTo(final Object value, final Class<?> aClass, final Type type, final Annotation[] annotations,
+            final MediaType mediaType, final MultivaluedMap<String, Object> multivaluedMap, final OutputStream outputStream)
+            throws IOException, WebApplicationException {
+        writers.write(value, outputStream);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.json.bind.Jsonb;
+
+/**
+ * Registry of all {@link JsonWriter}s. Dispatches values to the writer of their runtime type. Values of types without a writer
+ * are written using JSON-B.
+ */
+@Singleton
+public class JsonWriters {
+
+    private final Map<Class<?>, JsonWriter<?>> writers;
+    private final Map<Class<?>, Optional<JsonWriter<?>>> resolved;
+    private final Map<Class<?>, Boolean> supported;
+    private final Jsonb fallback;
+
+    @Inject
+    JsonWriters(@Any final Instance<JsonWriter<?>> writers, final Jsonb fallback) {
+        this((Iterable<JsonWriter<?>>) writers, fallback);
+    }
+
+    public JsonWriters(final Iterable<JsonWriter<?>> writers, final Jsonb fallback) {
+        this.writers = new ConcurrentHashMap<>();
+        this.resolved = new ConcurrentHashMap<>();
+        this.supported = new ConcurrentHashMap<>();
+        this.fallback = fallback;
+        for (JsonWriter<?> writer : writers) {
+            this.writers.put(writer.type(), writer);
+        }
+    }
+
+    /** @return whether there's a writer for the specified type or (if the type is abstract) for one of its subtypes */
+    public boolean supports(final Class<?> type) {
+        return supported.computeIfAbsent(type, t -> {
+            if (writer(t) != null) {
+                return true;
+            }
+            for (Class<?> writerType : writers.keySet()) {
+                if (t.isAssignableFrom(writerType)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /** Writes the specified value to the output stream. */
+    public void write(final Object value, final OutputStream outputStream) throws IOException {
+        JsonOutput out = new JsonOutput(outputStream);
+        write(value, out);
+        out.flush();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void write(final Object value, final JsonOutput out) throws IOException {
+        if (value == null) {
+            out.writeNull();
+        } else if (value instanceof String string) {
+            out.writeString(string);
+        } else if (value instanceof Boolean bool) {
+            out.writeBoolean(bool);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Enum<?> enumValue) {
+            out.writeString(enumValue.name());
+        } else if (value instanceof LocalDateTime localDateTime) {
+            out.writeLocalDateTime(localDateTime);
+        } else if (value instanceof Collection<?> collection) {
+            out.beginArray();
+            boolean comma = false;
+            for (Object element : collection) {
+                if (comma) {
+                    out.comma();
+                }
+                write(element, out);
+                comma = true;
+            }
+            out.endArray();
+        } else {
+            JsonWriter writer = writer(value.getClass());
+            if (writer != null) {
+                writer.write(value, out, this);
+            } else {
+                out.writeRaw(fallback.toJson(value).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private JsonWriter<?> writer(final Class<?> type) {
+        JsonWriter<?> writer = writers.get(type);
+        if (writer == null) {
+            writer = resolved.computeIfAbsent(type, t -> {
+                for (Map.Entry<Class<?>, JsonWriter<?>> entry : writers.entrySet()) {
+                    if (entry.getKey().isAssignableFrom(t)) {
+                        return Optional.of(entry.getValue());
+                    }
+                }
+                return Optional.empty();
+            }).orElse(null);
+        }
+        return writer;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api.metrics;
+
+/**
+ * Contributes metric families to the fleet metrics endpoint of the proxy. Implementations write the last known values of
+ * the services they manage. They must not talk to the services while writing.
+ */
+public interface FleetMetricsContributor {
+
+    /**
+     * Returns a version which changes whenever the written metrics change. The proxy caches the exposition until the
+     * version of any contributor changes.
+     */
+    long version();
+
+    /** Writes the metric families of this contributor. Family names must be unique across all contributors. */
+    void write(OpenMetricsWriter writer);
+}
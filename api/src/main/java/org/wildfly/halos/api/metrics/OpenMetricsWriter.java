@@ -0,0 +1,250 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api.metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.wildfly.halos.api.json.JsonOutput;
+
+/**
+ * Allocation-light encoder for the <a href="https://openmetrics.io">OpenMetrics</a> text format. Names, labels and values
+ * are written directly into a growing byte array. Numbers and UTF-8 are encoded with the encoders of {@link JsonOutput},
+ * without creating strings. Usage:
+ *
+ * <pre>
+ * writer.family("halos_wildfly_threads", GAUGE, "Live threads");
+ * writer.sample("halos_wildfly_threads").label("managed_service", name).value(42);
+ * ...
+ * byte[] body = writer.eof();
+ * </pre>
+ *
+ * All samples of a family must be written directly after the family. Labels which apply to all samples (e.g. the
+ * namespace) can be registered once using {@link #commonLabel(String, String)}. The writer is not thread-safe.
+ */
+public final class OpenMetricsWriter {
+
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    public static final String GAUGE = "gauge";
+    public static final String COUNTER = "counter";
+    public static final String INFO = "info";
+
+    private static final byte[] TYPE = "# TYPE ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HELP = "# HELP ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EOF = "# EOF\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NAN = "NaN".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] POSITIVE_INFINITY = "+Inf".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEGATIVE_INFINITY = "-Inf".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer;
+    private int position;
+    private byte[] common; // encoded common labels without braces
+    private boolean labels; // whether the label set of the current sample has been opened
+
+    public OpenMetricsWriter() {
+        this(16 * 1024);
+    }
+
+    public OpenMetricsWriter(final int capacity) {
+        this.buffer = new byte[Math.max(capacity, 64)];
+        this.position = 0;
+        this.common = new byte[0];
+    }
+
+    /** Adds a label to all samples written after this call. {@code null} values are skipped. */
+    public OpenMetricsWriter commonLabel(final String name, final String value) {
+        if (value != null) {
+            byte[] encoded = encodeLabel(name, value);
+            int offset = common.length == 0 ? 0 : 1;
+            byte[] labels = Arrays.copyOf(common, common.length + offset + encoded.length);
+            if (offset == 1) {
+                labels[common.length] = ',';
+            }
+            System.arraycopy(encoded, 0, labels, common.length + offset, encoded.length);
+            common = labels;
+        }
+        return this;
+    }
+
+    // ------------------------------------------------------ structure
+
+    /** Writes the metadata of a metric family. */
+    public OpenMetricsWriter family(final String name, final String type, final String help) {
+        writeRaw(TYPE);
+        writeAscii(name);
+        writeByte(' ');
+        writeAscii(type);
+        writeByte('\n');
+        if (help != null) {
+            writeRaw(HELP);
+            writeAscii(name);
+            writeByte(' ');
+            writeEscaped(help, false);
+            writeByte('\n');
+        }
+        return this;
+    }
+
+    /** Starts a sample. Continue with {@link #label(String, String)} and finish with one of the {@code value} methods. */
+    public OpenMetricsWriter sample(final String name) {
+        writeAscii(name);
+        labels = common.length != 0;
+        if (labels) {
+            writeByte('{');
+            writeRaw(common);
+        }
+        return this;
+    }
+
+    /** Adds a label to the current sample. {@code null} values are skipped. */
+    public OpenMetricsWriter label(final String name, final String value) {
+        if (value != null) {
+            writeByte(labels ? ',' : '{');
+            labels = true;
+            writeAscii(name);
+            writeByte('=');
+            writeByte('"');
+            writeEscaped(value, true);
+            writeByte('"');
+        }
+        return this;
+    }
+
+    public OpenMetricsWriter value(final long value) {
+        endLabels();
+        writeLong(value);
+        writeByte('\n');
+        return this;
+    }
+
+    public OpenMetricsWriter value(final double value) {
+        endLabels();
+        writeDouble(value);
+        writeByte('\n');
+        return this;
+    }
+
+    /** Finishes the sample with a value and a timestamp in milliseconds since the epoch. */
+    public OpenMetricsWriter value(final double value, final long timestampMillis) {
+        endLabels();
+        writeDouble(value);
+        writeByte(' ');
+        // OpenMetrics timestamps are seconds
+        writeLong(timestampMillis / 1000);
+        long millis = timestampMillis % 1000;
+        if (millis != 0) {
+            writeByte('.');
+            writeByte('0' + (int) (millis / 100));
+            writeByte('0' + (int) (millis / 10 % 10));
+            writeByte('0' + (int) (millis % 10));
+        }
+        writeByte('\n');
+        return this;
+    }
+
+    /** Writes the end marker and returns the exposition. */
+    public byte[] eof() {
+        writeRaw(EOF);
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void endLabels() {
+        if (labels) {
+            writeByte('}');
+            labels = false;
+        }
+        writeByte(' ');
+    }
+
+    // ------------------------------------------------------ encoding
+
+    private static byte[] encodeLabel(final String name, final String value) {
+        OpenMetricsWriter writer = new OpenMetricsWriter(name.length() + value.length() + 3);
+        writer.writeAscii(name);
+        writer.writeByte('=');
+        writer.writeByte('"');
+        writer.writeEscaped(value, true);
+        writer.writeByte('"');
+        return Arrays.copyOf(writer.buffer, writer.position);
+    }
+
+    private void writeLong(final long value) {
+        ensure(20);
+        position = JsonOutput.encodeLong(buffer, position, value);
+    }
+
+    private void writeDouble(final double value) {
+        if (Double.isNaN(value)) {
+            writeRaw(NAN);
+        } else if (Double.isInfinite(value)) {
+            writeRaw(value > 0 ? POSITIVE_INFINITY : NEGATIVE_INFINITY);
+        } else if (value == (long) value && Math.abs(value) < 1e15) {
+            writeLong((long) value);
+        } else {
+            writeAscii(Double.toString(value));
+        }
+    }
+
+    private void writeEscaped(final String value, final boolean quotes) {
+        int length = value.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                writeByte('\\');
+                writeByte('\\');
+            } else if (c == '\n') {
+                writeByte('\\');
+                writeByte('n');
+            } else if (c == '"' && quotes) {
+                writeByte('\\');
+                writeByte('"');
+            } else if (c < 0x80) {
+                writeByte(c);
+            } else {
+                int codePoint = value.codePointAt(i);
+                ensure(4);
+                position = JsonOutput.encodeUtf8(buffer, position, codePoint);
+                i += Character.charCount(codePoint) - 1;
+            }
+        }
+    }
+
+    private void writeAscii(final String value) {
+        int length = value.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeRaw(final byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeByte(final int b) {
+        ensure(1);
+        buffer[position++] = (byte) b;
+    }
+
+    private void ensure(final int length) {
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        }
+    }
+}
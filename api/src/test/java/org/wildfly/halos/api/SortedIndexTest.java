@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.ws.rs.BadRequestException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SortedIndexTest {
+
+    record Item(String name, String status) {
+    }
+
+    private SortedIndex<Item> index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new SortedIndex<>(Item::name).sortBy("status", Item::status);
+        for (int i = 0; i < 10; i++) {
+            index.put(new Item("item-" + i, i % 2 == 0 ? "even" : "odd"));
+        }
+    }
+
+    @Test
+    public void pageByName() {
+        assertEquals(List.of("item-0", "item-1", "item-2", "item-3", "item-4", "item-5", "item-6", "item-7", "item-8",
+                "item-9"), all("name", 3));
+    }
+
+    @Test
+    public void pageDescending() {
+        assertEquals(List.of("item-9", "item-7", "item-5", "item-3", "item-1", "item-8", "item-6", "item-4", "item-2",
+                "item-0"), all("-status", 4));
+    }
+
+    @Test
+    public void replace() {
+        index.put(new Item("item-9", "even"));
+        assertEquals(List.of("item-0", "item-2", "item-4", "item-6", "item-8", "item-9", "item-1", "item-3", "item-5",
+                "item-7"), all("status", 10));
+    }
+
+    @Test
+    public void computeIfPresent() {
+        assertEquals(new Item("item-9", "even"), index.computeIfPresent("item-9", item -> new Item(item.name(), "even")));
+        assertNull(index.computeIfPresent("item-10", item -> new Item(item.name(), "even")));
+        assertNull(index.get("item-10"));
+        assertEquals(List.of("item-0", "item-2", "item-4", "item-6", "item-8", "item-9", "item-1", "item-3", "item-5",
+                "item-7"), all("status", 10));
+    }
+
+    @Test
+    public void stableCursor() {
+        Page<Item> first = index.page(PageRequest.of(null, null, 5));
+        index.remove("item-4");
+        index.put(new Item("item-00", "even"));
+        Page<Item> second = index.page(PageRequest.of(null, first.next(), 5));
+        assertEquals("item-5", second.items().get(0).name());
+        assertNull(second.next());
+    }
+
+    @Test
+    public void filter() {
+        Page<Item> page = index.page(PageRequest.of(null, null, 2), item -> item.status().equals("odd"));
+        assertEquals(List.of("item-1", "item-3"), page.items().stream().map(Item::name).toList());
+        page = index.page(PageRequest.of(null, page.next(), 2), item -> item.status().equals("odd"));
+        assertEquals(List.of("item-5", "item-7"), page.items().stream().map(Item::name).toList());
+    }
+
+    @Test
+    public void invalid() {
+        assertThrows(BadRequestException.class, () -> index.page(PageRequest.of("unknown", null, null)));
+        assertThrows(BadRequestException.class, () -> PageRequest.of(null, "not a cursor!", null));
+        assertThrows(BadRequestException.class, () -> PageRequest.of(null, null, 0));
+    }
+
+    private List<String> all(final String sort, final int limit) {
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<Item> page = index.page(PageRequest.of(cursor == null ? sort : null, cursor, limit));
+            page.items().forEach(item -> names.add(item.name()));
+            cursor = page.next();
+        } while (cursor != null);
+        return names;
+    }
+}
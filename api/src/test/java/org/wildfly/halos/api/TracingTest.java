@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TracingTest {
+
+    private InMemorySpanExporter exporter;
+    private Tracing tracing;
+
+    @BeforeEach
+    public void setUp() {
+        exporter = InMemorySpanExporter.create();
+        SdkTracerProvider provider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                .build();
+        tracing = new Tracing(provider.get("halos"));
+    }
+
+    @Test
+    public void nested() {
+        Span connect = tracing.start("connect", Context.root());
+        String result = tracing.inSpan("attempt", Context.root().with(connect),
+                attempt -> tracing.inSpan("lookup", lookup -> "host:9990"));
+        connect.end();
+
+        assertEquals("host:9990", result);
+        SpanData lookup = span("lookup");
+        SpanData attempt = span("attempt");
+        SpanData root = span("connect");
+        assertEquals(attempt.getSpanId(), lookup.getParentSpanId());
+        assertEquals(root.getSpanId(), attempt.getParentSpanId());
+        assertEquals(root.getTraceId(), lookup.getTraceId());
+        assertFalse(root.getParentSpanContext().isValid());
+    }
+
+    @Test
+    public void exception() {
+        assertThrows(IOException.class, () -> tracing.inSpan("dmr", Context.root(), span -> {
+            throw new IOException("Connection refused");
+        }));
+
+        SpanData dmr = span("dmr");
+        assertEquals(StatusCode.ERROR, dmr.getStatus().getStatusCode());
+        assertEquals("exception", dmr.getEvents().get(0).getName());
+    }
+
+    @Test
+    public void links() {
+        Span request = tracing.start("sse request", Context.root());
+        Span publish = tracing.start("publish", Context.root());
+        Instant published = Instant.now().minusMillis(250);
+        tracing.record("deliver", Context.root().with(publish), published, request.getSpanContext(),
+                Span.getInvalid().getSpanContext());
+        publish.end();
+        request.end();
+
+        SpanData deliver = span("deliver");
+        assertEquals(span("publish").getSpanId(), deliver.getParentSpanId());
+        assertEquals(1, deliver.getLinks().size());
+        assertEquals(request.getSpanContext(), deliver.getLinks().get(0).getSpanContext());
+        assertTrue(deliver.getEndEpochNanos() - deliver.getStartEpochNanos() >= 250_000_000L);
+    }
+
+    private SpanData span(final String name) {
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        return spans.stream().filter(span -> name.equals(span.getName())).findFirst()
+                .orElseThrow(() -> new AssertionError("No span " + name + " in " + spans));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JsonOutputTest {
+
+    @Test
+    public void numbers() throws IOException {
+        assertEquals("[0,-42,9223372036854775807,-9223372036854775808,1.5]", json(out -> {
+            out.beginArray();
+            out.writeLong(0);
+            out.comma();
+            out.writeLong(-42);
+            out.comma();
+            out.writeLong(Long.MAX_VALUE);
+            out.comma();
+            out.writeLong(Long.MIN_VALUE);
+            out.comma();
+            out.writeDouble(1.5);
+            out.endArray();
+        }));
+    }
+
+    @Test
+    public void escape() throws IOException {
+        assertEquals("\"a\\\"b\\\\c\\n\\u0001\"", json(out -> out.writeString("a\"b\\c\n\u0001")));
+    }
+
+    @Test
+    public void utf8() throws IOException {
+        String value = "ä€😀";
+        assertEquals("\"" + value + "\"", json(out -> out.writeString(value)));
+    }
+
+    @Test
+    public void localDateTime() throws IOException {
+        assertEquals("\"2022-01-02T03:04:00\"", json(out -> out.writeLocalDateTime(LocalDateTime.of(2022, 1, 2, 3, 4))));
+        assertEquals("\"2022-11-12T13:14:15.12\"",
+                json(out -> out.writeLocalDateTime(LocalDateTime.of(2022, 11, 12, 13, 14, 15, 120_000_000))));
+    }
+
+    @Test
+    public void object() throws IOException {
+        byte[] foo = JsonOutput.name("foo");
+        byte[] bar = JsonOutput.name("bar");
+        assertEquals("{\"foo\":true,\"bar\":null}", json(out -> {
+            out.beginObject();
+            out.name(foo, false);
+            out.writeBoolean(true);
+            out.name(bar, true);
+            out.writeNull();
+            out.endObject();
+        }));
+    }
+
+    @Test
+    public void exceedBuffer() throws IOException {
+        String value = "x".repeat(100);
+        assertEquals("\"" + value + "\"", json(16, out -> out.writeString(value)));
+    }
+
+    private String json(final Writes writes) throws IOException {
+        return json(8192, writes);
+    }
+
+    private String json(final int capacity, final Writes writes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonOutput out = new JsonOutput(bytes, capacity);
+        writes.write(out);
+        out.flush();
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface Writes {
+
+        void write(JsonOutput out) throws IOException;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.api.metrics;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.wildfly.halos.api.metrics.OpenMetricsWriter.GAUGE;
+
+public class OpenMetricsWriterTest {
+
+    @Test
+    public void family() {
+        OpenMetricsWriter writer = new OpenMetricsWriter();
+        writer.family("threads", GAUGE, "Live threads");
+        writer.sample("threads").value(42);
+        assertEquals("# TYPE threads gauge\n# HELP threads Live threads\nthreads 42\n# EOF\n", text(writer));
+    }
+
+    @Test
+    public void labels() {
+        OpenMetricsWriter writer = new OpenMetricsWriter().commonLabel("namespace", "ns");
+        writer.sample("up").label("managed_service", "a\"b\\c\nd").label("skipped", null).value(1);
+        writer.sample("up").label("managed_service", "ä€😀").value(0);
+        assertEquals("up{namespace=\"ns\",managed_service=\"a\\\"b\\\\c\\nd\"} 1\n"
+                + "up{namespace=\"ns\",managed_service=\"ä€😀\"} 0\n# EOF\n", text(writer));
+    }
+
+    @Test
+    public void unpairedSurrogate() {
+        OpenMetricsWriter writer = new OpenMetricsWriter();
+        writer.sample("up").label("managed_service", "a\uD83Dbc\uDE00d").value(1);
+        assertEquals("up{managed_service=\"a?bc?d\"} 1\n# EOF\n", text(writer));
+    }
+
+    @Test
+    public void values() {
+        OpenMetricsWriter writer = new OpenMetricsWriter(1);
+        writer.sample("a").value(Long.MIN_VALUE);
+        writer.sample("b").value(-1234567890123L);
+        writer.sample("c").value(1.5);
+        writer.sample("d").value(Double.NaN);
+        writer.sample("e").value(Double.POSITIVE_INFINITY);
+        writer.sample("f").value(2.0, 1_650_000_000_042L);
+        writer.sample("g").value(3, 1_650_000_000_000L);
+        assertEquals("a -9223372036854775808\nb -1234567890123\nc 1.5\nd NaN\ne +Inf\nf 2 1650000000.042\n"
+                + "g 3 1650000000\n# EOF\n", text(writer));
+    }
+
+    private String text(final OpenMetricsWriter writer) {
+        return new String(writer.eof(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.dmr.ModelNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.halos.capability.wildfly.dmr.Composite;
+import org.wildfly.halos.capability.wildfly.dmr.CompositeResult;
+import org.wildfly.halos.capability.wildfly.dmr.ModelNodeHelper;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+import org.wildfly.halos.capability.wildfly.dmr.ResourceAddress;
+
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.ATTRIBUTES_ONLY;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.CHILD_TYPE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.DEPLOYMENT;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.INCLUDE_RUNTIME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_CHILDREN_RESOURCES_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RECURSIVE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RESULT;
+
+/**
+ * Measures the hot paths of the {@code dmr} package: parsing addresses, building operations and their CLI representation,
+ * wrapping composite results and reading deployments from a {@code read-children-resources} result. The deployment
+ * benchmarks use the same payload as {@code ManagementInterface} receives when connecting to a server. Run with
+ * {@code -prof gc} to see the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DmrBenchmark {
+
+    private static final String ADDRESS = "/subsystem=undertow/server=default-server/host=default-host";
+    private static final String NESTED_PATH = "heap-memory-usage.used";
+
+    @Param({ "10", "100", "500" }) int deployments;
+
+    private ModelNode response;
+    private ModelNode deploymentsResult;
+    private ModelNode operationNode;
+    private Composite composite;
+    private ModelNode memory;
+
+    @Setup
+    public void setup() {
+        response = Fixtures.serverAndDeploymentsResponse(deployments);
+        deploymentsResult = response.get(RESULT, "step-2", RESULT);
+        composite = composite();
+        operationNode = composite.get("steps").get(1).clone();
+        memory = new ModelNode();
+        memory.get("heap-memory-usage", "used").set(312L * 1024 * 1024);
+    }
+
+    @Benchmark
+    public ResourceAddress resourceAddress() {
+        return ResourceAddress.from(ADDRESS);
+    }
+
+    @Benchmark
+    public Composite buildComposite() {
+        return composite();
+    }
+
+    @Benchmark
+    public Operation operationFromModelNode() {
+        return new Operation(operationNode);
+    }
+
+    @Benchmark
+    public String compositeAsCli() {
+        return composite.asCli();
+    }
+
+    @Benchmark
+    public ModelNode compositeResult() {
+        return new CompositeResult(response.get(RESULT)).step(1);
+    }
+
+    @Benchmark
+    public ModelNode failSafeGet() {
+        return ModelNodeHelper.failSafeGet(memory, NESTED_PATH);
+    }
+
+    /** The mapping of deployments in {@code ManagementInterface}. */
+    @Benchmark
+    public Set<Deployment> readDeployments() {
+        return ManagementInterface.parseDeployments(deploymentsResult);
+    }
+
+    private Composite composite() {
+        Operation rootOperation = new Operation.Builder(ResourceAddress.root(), READ_RESOURCE_OPERATION)
+                .param(ATTRIBUTES_ONLY, true).param(INCLUDE_RUNTIME, true).build();
+        Operation deploymentsOperation = new Operation.Builder(ResourceAddress.root(), READ_CHILDREN_RESOURCES_OPERATION)
+                .param(CHILD_TYPE, DEPLOYMENT).param(INCLUDE_RUNTIME, true).param(RECURSIVE, false).build();
+        return new Composite(rootOperation, deploymentsOperation);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.dmr.ModelNode;
+
+import de.skuzzle.semantic.Version;
+
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.DISABLED_TIME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.ENABLED;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.ENABLED_TIME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.NAME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OUTCOME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RESULT;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.STATUS;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.SUCCESS;
+
+/** Realistic payloads shared by the benchmarks. */
+final class Fixtures {
+
+    static WildFlyServer wildFlyServer(final int index, final int deployments) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Deployment> set = new HashSet<>();
+        for (int i = 0; i < deployments; i++) {
+            boolean enabled = i % 10 != 0;
+            set.add(new Deployment("deployment-" + i + ".war", enabled ? DeploymentStatus.OK : DeploymentStatus.STOPPED,
+                    enabled, enabled ? null : now.minusMinutes(i), now.minusHours(i)));
+        }
+        return new WildFlyServer("wildfly-" + index, "server-" + index, "WildFly Full", Version.create(27, 0, 1),
+                Version.create(19, 0, 1), Version.create(20, 0, 0), RunningMode.NORMAL, ServerState.RUNNING,
+                SuspendState.RUNNING, set);
+    }
+
+    static Status status() {
+        return new Status(new Status.OperatingSystem("Linux", "5.14.0", 4),
+                new Status.Runtime("OpenJDK 64-Bit Server VM", "17", 3_600_000L), new Status.Memory(312, 512, 1024),
+                new Status.Memory(98, 120, -1), new Status.Threads(87, 42));
+    }
+
+    /**
+     * Returns the response of the composite which reads the root resource and the deployments (as sent by
+     * {@code ManagementInterface}), modelled after a WildFly 27 server.
+     */
+    static ModelNode serverAndDeploymentsResponse(final int deployments) {
+        ModelNode root = new ModelNode();
+        root.get(NAME).set("server-0");
+        root.get("product-name").set("WildFly Full");
+        root.get("product-version").set("27.0.1.Final");
+        root.get("release-version").set("19.0.1.Final");
+        root.get("management-major-version").set(20);
+        root.get("management-minor-version").set(0);
+        root.get("management-micro-version").set(0);
+        root.get("running-mode").set("NORMAL");
+        root.get("server-state").set("running");
+        root.get("suspend-state").set("RUNNING");
+
+        long now = LocalDateTime.now().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        ModelNode children = new ModelNode().setEmptyObject();
+        for (int i = 0; i < deployments; i++) {
+            boolean enabled = i % 10 != 0;
+            ModelNode deployment = children.get("deployment-" + i + ".war");
+            deployment.get("content").add().get("hash").set(new byte[20]);
+            deployment.get(ENABLED).set(enabled);
+            deployment.get(ENABLED_TIME).set(now - i * 3_600_000L);
+            deployment.get("enabled-timestamp").set("2022-11-12 13:14:15,123 CET");
+            if (!enabled) {
+                deployment.get(DISABLED_TIME).set(now - i * 60_000L);
+            }
+            deployment.get(NAME).set("deployment-" + i + ".war");
+            deployment.get("owner");
+            deployment.get("persistent").set(true);
+            deployment.get("runtime-name").set("deployment-" + i + ".war");
+            deployment.get(STATUS).set(enabled ? "OK" : "STOPPED");
+            deployment.get("subdeployment");
+            deployment.get("subsystem");
+        }
+
+        ModelNode response = new ModelNode();
+        response.get(OUTCOME).set(SUCCESS);
+        response.get(RESULT, "step-1", OUTCOME).set(SUCCESS);
+        response.get(RESULT, "step-1", RESULT).set(root);
+        response.get(RESULT, "step-2", OUTCOME).set(SUCCESS);
+        response.get(RESULT, "step-2", RESULT).set(children);
+        return response;
+    }
+
+    private Fixtures() {
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbConfig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.halos.api.json.JsonWriters;
+
+/**
+ * Compares the reflective JSON-B serialization of a server collection with the writers generated at build time. Both
+ * produce the same bytes; run with {@code -prof gc} to compare the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonWriterBenchmark {
+
+    @Param({ "10", "100", "500" }) int deployments;
+    @Param({ "1", "50" }) int servers;
+
+    private Set<WildFlyServer> payload;
+    private Jsonb jsonb;
+    private JsonWriters writers;
+
+    @Setup
+    public void setup() {
+        payload = new HashSet<>();
+        for (int i = 0; i < servers; i++) {
+            payload.add(Fixtures.wildFlyServer(i, deployments));
+        }
+        jsonb = JsonbBuilder
+                .create(new JsonbConfig().withSerializers(new VersionSerializerRegistrationCustomizer.VersionSerializer()));
+        writers = new JsonWriters(List.of(new WildFlyServerJsonWriter(), new DeploymentJsonWriter(), new VersionJsonWriter()),
+                jsonb);
+    }
+
+    @Benchmark
+    public byte[] jsonb() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        jsonb.toJson(payload, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] generated() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        writers.write(payload, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbConfig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Compares the JSON-B representation of a server collection with the CBOR representation negotiated by
+ * {@code Accept: application/cbor}. Run with {@code -prof gc} to see the allocation rates. The size of both representations
+ * is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({ "10", "100", "500" }) int deployments;
+    @Param({ "1", "50" }) int servers;
+
+    private Set<WildFlyServer> payload;
+    private Jsonb jsonb;
+    private ObjectMapper cbor;
+
+    @Setup
+    public void setup() throws IOException {
+        payload = new HashSet<>();
+        for (int i = 0; i < servers; i++) {
+            payload.add(Fixtures.wildFlyServer(i, deployments));
+        }
+        jsonb = JsonbBuilder
+                .create(new JsonbConfig().withSerializers(new VersionSerializerRegistrationCustomizer.VersionSerializer()));
+        cbor = new ObjectMapper(new CBORFactory()).registerModule(new JavaTimeModule())
+                .registerModule(VersionModuleRegistrationCustomizer.versionModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        cbor.setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL);
+        System.out.printf("%n%d server(s) with %d deployment(s): JSON %,d bytes, CBOR %,d bytes%n", servers, deployments,
+                json().length, cbor().length);
+    }
+
+    @Benchmark
+    public byte[] json() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        jsonb.toJson(Set.copyOf(payload), out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] cbor() throws IOException {
+        return cbor.writeValueAsBytes(Set.copyOf(payload));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wildfly.halos.api.Capability;
+import org.wildfly.halos.api.CapabilityExtension;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ConnectionUpdate;
+import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.api.Tracing;
+import org.wildfly.halos.capability.wildfly.WildFlyCapability;
+
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+
+/**
+ * Measures how many managed service modifications per second {@link ManagedServiceRepository} delivers to 1, 10 and 100
+ * subscribers of {@link ManagedServiceRepository#modifications()}. One operation is a circuit update of a connected
+ * service ({@link ManagedServiceRepository#onConnectionUpdate(ConnectionUpdate)}): the service is updated in the index, and
+ * the modification is published and delivered to all subscribers. Subscribers request an unbounded number of items and
+ * consume them right away, so the delivery runs on the publishing thread and is part of the operation. Tracing uses a
+ * no-op tracer and the log messages of the repository are turned off.
+ * <p>
+ * With {@code json=true} each subscriber serializes the modification using JSON-B, like the SSE layer does for every
+ * connected client. Run with {@code -prof gc} to see the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.jboss.logging.provider=jdk")
+public class BroadcastBenchmark {
+
+    private static final String SERVICE = "wildfly-0";
+    // strong reference, so that the level sticks
+    private static final Logger REPOSITORY_LOGGER = Logger.getLogger(ManagedServiceRepository.class.getName());
+
+    @Param({ "1", "10", "100" }) int subscribers;
+    @Param({ "false", "true" }) boolean json;
+
+    private ManagedServiceRepository repository;
+    private Jsonb jsonb;
+    private List<Cancellable> subscriptions;
+    private ConnectionUpdate[] updates;
+    private int next;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        REPOSITORY_LOGGER.setLevel(Level.WARNING);
+        ProxyMetrics metrics = new ProxyMetrics();
+        metrics.registry = new SimpleMeterRegistry();
+        repository = new ManagedServiceRepository();
+        repository.metrics = metrics;
+        repository.tracing = new Tracing(OpenTelemetry.noop().getTracer("halos"));
+        repository.add(new ServiceBuilder().withNewMetadata().withName(SERVICE).endMetadata().build(),
+                new ConnectedExtension());
+
+        jsonb = JsonbBuilder.create();
+        subscriptions = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions.add(repository.modifications().subscribe().with(item -> {
+                if (json) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+                    jsonb.toJson(item, out);
+                    blackhole.consume(out.toByteArray());
+                } else {
+                    blackhole.consume(item);
+                }
+            }));
+        }
+        updates = new ConnectionUpdate[] {
+                new ConnectionUpdate(SERVICE, Connection.Circuit.OPEN, "Circuit breaker open"),
+                new ConnectionUpdate(SERVICE, Connection.Circuit.CLOSED, null) };
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        subscriptions.forEach(Cancellable::cancel);
+        jsonb.close();
+    }
+
+    @Benchmark
+    public void publish() {
+        repository.onConnectionUpdate(updates[next++ & 1]);
+    }
+
+    private static class ConnectedExtension implements CapabilityExtension {
+
+        @Override
+        public Capability capability() {
+            return WildFlyCapability.INSTANCE;
+        }
+
+        @Override
+        public String labelSelector() {
+            return "app.kubernetes.io/name=wildfly";
+        }
+
+        @Override
+        public Uni<Connection> connect(final ManagedService managedService) {
+            return Uni.createFrom().item(Connection.connected());
+        }
+
+        @Override
+        public void close(final ManagedService managedService) {
+            // nothing to close
+        }
+    }
+}
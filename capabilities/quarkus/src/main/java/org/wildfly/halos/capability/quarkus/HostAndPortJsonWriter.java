@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.quarkus;
+
+import java.io.IOException;
+
+import jakarta.inject.Singleton;
+
+import org.wildfly.halos.api.json.JsonOutput;
+import org.wildfly.halos.api.json.JsonWriter;
+import org.wildfly.halos.api.json.JsonWriters;
+
+import com.google.common.net.HostAndPort;
+
+/** Writes {@link HostAndPort} like JSON-B does, using the properties {@code host} and {@code port}. */
+@Singleton
+class HostAndPortJsonWriter implements JsonWriter<HostAndPort> {
+
+    private static final byte[] HOST = JsonOutput.name("host");
+    private static final byte[] PORT = JsonOutput.name("port");
+
+    @Override
+    public Class<HostAndPort> type() {
+        return HostAndPort.class;
+    }
+
+    @Override
+    public void write(final HostAndPort hostAndPort, final JsonOutput out, final JsonWriters writers) throws IOException {
+        out.beginObject();
+        out.name(HOST, false);
+        out.writeString(hostAndPort.getHost());
+        if (hostAndPort.hasPort()) {
+            out.name(PORT, true);
+            out.writeLong(hostAndPort.getPort());
+        }
+        out.endObject();
+    }
+}
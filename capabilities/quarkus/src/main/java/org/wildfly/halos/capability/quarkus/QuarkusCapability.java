@@ -16,7 +16,9 @@
 package org.wildfly.halos.capability.quarkus;
 
 import org.wildfly.halos.api.Capability;
+import org.wildfly.halos.api.json.GenerateJsonWriter;
 
+@GenerateJsonWriter
 public record QuarkusCapability(String name, String title) implements Capability {
 
     public static final Capability INSTANCE = new QuarkusCapability("quarkus", "Quarkus");
@@ -17,6 +17,7 @@ package org.wildfly.halos.capability.quarkus;
 
 import java.util.List;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
@@ -28,6 +29,8 @@ import org.wildfly.halos.api.ManagedService;
 
 import io.fabric8.kubernetes.api.model.Service;
 import io.fabric8.openshift.client.OpenShiftClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.logging.Log;
 import io.smallrye.mutiny.Uni;
 
@@ -42,6 +45,15 @@ public class QuarkusExtension extends BaseCapabilityExtension implements Capabil
 
     @Inject OpenShiftClient oc;
     @Inject QuarkusServiceRepository quarkusServiceRepository;
+    @Inject MeterRegistry registry;
+    private Timer lookupTimer;
+
+    @PostConstruct
+    void registerMeters() {
+        lookupTimer = Timer.builder("halos.quarkus.lookup")
+                .description("Latency of looking up the service and routes of a Quarkus service")
+                .register(registry);
+    }
 
     @Override
     public Capability capability() {
@@ -50,6 +62,10 @@ public class QuarkusExtension extends BaseCapabilityExtension implements Capabil
 
     @Override
     public Uni<Connection> connect(final ManagedService managedService) {
+        return lookupTimer.record(() -> lookup(managedService));
+    }
+
+    private Uni<Connection> lookup(final ManagedService managedService) {
         List<Service> services = oc.services().withField("metadata.name", managedService.name()).list().getItems();
         if (services.isEmpty()) {
             return Uni.createFrom()
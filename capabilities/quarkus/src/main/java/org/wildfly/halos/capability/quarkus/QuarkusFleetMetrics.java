@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.quarkus;
+
+import java.util.Set;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.wildfly.halos.api.metrics.FleetMetricsContributor;
+import org.wildfly.halos.api.metrics.OpenMetricsWriter;
+
+import static org.wildfly.halos.api.metrics.OpenMetricsWriter.GAUGE;
+import static org.wildfly.halos.api.metrics.OpenMetricsWriter.INFO;
+
+/** Writes the connected Quarkus services and their routes. */
+@ApplicationScoped
+class QuarkusFleetMetrics implements FleetMetricsContributor {
+
+    @Inject QuarkusServiceRepository quarkusServiceRepository;
+
+    @Override
+    public long version() {
+        return quarkusServiceRepository.version();
+    }
+
+    @Override
+    public void write(final OpenMetricsWriter writer) {
+        Set<QuarkusService> services = quarkusServiceRepository.quarkusServices();
+        writer.family("halos_quarkus_service", INFO, "Connected Quarkus services");
+        for (QuarkusService service : services) {
+            writer.sample("halos_quarkus_service_info").label("managed_service", service.managedService()).value(1);
+        }
+        writer.family("halos_quarkus_routes", GAUGE, "Routes of a Quarkus service");
+        for (QuarkusService service : services) {
+            writer.sample("halos_quarkus_routes").label("managed_service", service.managedService())
+                    .value(service.routes() != null ? service.routes().size() : 0);
+        }
+    }
+}
@@ -17,7 +17,10 @@ package org.wildfly.halos.capability.quarkus;
 
 import java.util.List;
 
+import org.wildfly.halos.api.json.GenerateJsonWriter;
+
 import com.google.common.net.HostAndPort;
 
+@GenerateJsonWriter
 public record QuarkusService(String managedService, List<HostAndPort> routes) {
 }
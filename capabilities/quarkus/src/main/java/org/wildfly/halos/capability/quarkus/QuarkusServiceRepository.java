@@ -18,6 +18,7 @@ package org.wildfly.halos.capability.quarkus;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import jakarta.enterprise.context.ApplicationScoped;
 
@@ -27,17 +28,25 @@ import org.wildfly.halos.api.ManagedService;
 class QuarkusServiceRepository {
 
     private final Map<String, QuarkusService> services; // key == managed service name
+    private final AtomicLong version;
 
     QuarkusServiceRepository() {
         services = new ConcurrentHashMap<>();
+        version = new AtomicLong();
     }
 
     void add(final ManagedService managedService, final QuarkusService quarkusService) {
         services.put(managedService.name(), quarkusService);
+        version.incrementAndGet();
     }
 
     void remove(final ManagedService managedService) {
         services.remove(managedService.name());
+        version.incrementAndGet();
+    }
+
+    long version() {
+        return version.get();
     }
 
     Set<QuarkusService> quarkusServices() {
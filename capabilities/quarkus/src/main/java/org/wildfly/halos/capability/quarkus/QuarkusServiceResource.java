@@ -15,22 +15,37 @@
  */
 package org.wildfly.halos.capability.quarkus;
 
-import java.util.Collection;
+import java.util.Set;
 
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Providers;
+
+import org.wildfly.halos.api.Constants;
+import org.wildfly.halos.api.RepresentationCache;
 
 @Path("/api/v1/quarkus/services")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({ MediaType.APPLICATION_JSON, Constants.APPLICATION_CBOR })
 public class QuarkusServiceResource {
 
+    private static final GenericType<Set<QuarkusService>> SERVICES = new GenericType<>() {
+    };
+
     @Inject QuarkusServiceRepository repository;
+    @Inject RepresentationCache representationCache;
 
     @GET
-    public Collection<QuarkusService> services() {
-        return repository.quarkusServices();
+    public Response services(@Context final Request request, @Context final HttpHeaders headers,
+            @Context final Providers providers) {
+        return representationCache.response("quarkus-services", repository.version(), repository::quarkusServices,
+                SERVICES, request, headers, providers);
     }
 }
@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import org.wildfly.halos.api.Connection.Circuit;
+
+/**
+ * Circuit breaker of one server. After {@code threshold} consecutive failures the circuit opens and requests fail fast.
+ * After {@code openMillis} the next request is let through as a probe (half-open): If it succeeds, the circuit closes,
+ * otherwise it opens again.
+ */
+final class CircuitBreaker {
+
+    private final int threshold;
+    private final long openMillis;
+    private Circuit state;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+
+    CircuitBreaker(final int threshold, final long openMillis) {
+        this.threshold = threshold;
+        this.openMillis = openMillis;
+        this.state = Circuit.CLOSED;
+    }
+
+    /** Whether a request is allowed at the given time. Might switch an open circuit to half-open. */
+    synchronized boolean allow(final long now) {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> {
+                if (now - openedAt >= openMillis) {
+                    state = Circuit.HALF_OPEN;
+                    probing = true;
+                    yield true;
+                }
+                yield false;
+            }
+            case HALF_OPEN -> {
+                if (!probing) {
+                    probing = true;
+                    yield true;
+                }
+                yield false;
+            }
+        };
+    }
+
+    /** Records a successful request. Returns {@code true} if that closed the circuit. */
+    synchronized boolean success() {
+        failures = 0;
+        probing = false;
+        if (state != Circuit.CLOSED) {
+            state = Circuit.CLOSED;
+            return true;
+        }
+        return false;
+    }
+
+    /** Records a failed request. Returns {@code true} if that opened the circuit. */
+    synchronized boolean failure(final long now) {
+        failures++;
+        probing = false;
+        if (state == Circuit.HALF_OPEN || (state == Circuit.CLOSED && failures >= threshold)) {
+            state = Circuit.OPEN;
+            openedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized Circuit state() {
+        return state;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ConnectionUpdate;
+
+import io.quarkus.logging.Log;
+
+/**
+ * The circuit breakers of the connected servers. When a circuit opens or closes, a {@link ConnectionUpdate} with the
+ * circuit state is fired, so that the state shows up in the connection of the managed service.
+ */
+@ApplicationScoped
+class CircuitBreakers {
+
+    @Inject Event<ConnectionUpdate> connectionUpdates;
+    @ConfigProperty(name = "halos.wildfly.circuit.failures", defaultValue = "3") int failures;
+    @ConfigProperty(name = "halos.wildfly.circuit.open", defaultValue = "10s") Duration open;
+
+    private final Map<String, CircuitBreaker> breakers; // key == managed service name
+
+    CircuitBreakers() {
+        breakers = new ConcurrentHashMap<>();
+    }
+
+    /** Throws a {@link ManagementInterfaceException} if the circuit of the server is open. */
+    void allow(final WildFlyServer server) {
+        if (!breaker(server).allow(System.currentTimeMillis())) {
+            throw new ManagementInterfaceException(String.format("Circuit of %s is open", server.name()));
+        }
+    }
+
+    void success(final WildFlyServer server) {
+        if (breaker(server).success()) {
+            Log.infof("Circuit of %s closed", server.name());
+            connectionUpdates.fire(new ConnectionUpdate(server.managedService(), Connection.Circuit.CLOSED, null));
+        }
+    }
+
+    void failure(final WildFlyServer server, final String reason) {
+        if (breaker(server).failure(System.currentTimeMillis())) {
+            Log.infof("Circuit of %s opened: %s", server.name(), reason);
+            connectionUpdates.fire(new ConnectionUpdate(server.managedService(), Connection.Circuit.OPEN, reason));
+        }
+    }
+
+    void remove(final String managedService) {
+        breakers.remove(managedService);
+    }
+
+    private CircuitBreaker breaker(final WildFlyServer server) {
+        return breakers.computeIfAbsent(server.managedService(), name -> new CircuitBreaker(failures, open.toMillis()));
+    }
+}
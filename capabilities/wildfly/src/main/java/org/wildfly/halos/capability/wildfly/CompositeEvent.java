@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+
+import org.jboss.dmr.ModelNode;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.wildfly.halos.wildfly.Composite")
+@Label("DMR Composite")
+@Description("Execution of a DMR composite operation")
+@Category({ "halOS", "WildFly" })
+@StackTrace(false)
+class CompositeEvent extends Event {
+
+    @Label("Target") String target;
+    @Label("Operation") String operation;
+    @Label("CLI") String cli;
+    @Label("Success") boolean success;
+    @Label("Request Size") @DataAmount long requestBytes;
+    @Label("Response Size") @DataAmount long responseBytes;
+
+    /** Returns the size of the binary DMR encoding, which is what remote+http sends over the wire. */
+    static long size(final ModelNode modelNode) {
+        try (CountingOutputStream out = new CountingOutputStream(ByteStreams.nullOutputStream())) {
+            modelNode.writeExternal(out);
+            return out.getCount();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.wildfly.halos.wildfly.ConnectAttempt")
+@Label("Connect Attempt")
+@Description("A single attempt to connect to a WildFly server")
+@Category({ "halOS", "WildFly" })
+@StackTrace(false)
+class ConnectAttemptEvent extends Event {
+
+    @Label("Managed Service") String managedService;
+    @Label("Attempt") long attempt;
+    @Label("Success") boolean success;
+    @Label("Error") String error;
+}
@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * HTTP digest authentication (RFC 7616) as used by the HTTP management interface of WildFly. Supports the algorithms
+ * {@code MD5}, {@code SHA-256} and their {@code -sess} variants with {@code qop=auth}. After the first challenge, the
+ * authorization is sent preemptively with an increasing nonce count. Thread safe.
+ */
+final class DigestAuthentication {
+
+    private static final String DIGEST = "Digest";
+    private static final String AUTH = "auth";
+    private static final Pattern PARAMETER = Pattern.compile("([\\w-]+)\\s*=\\s*(?:\"([^\"]*)\"|([^,\\s]*))");
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final String username;
+    private final String password;
+    private final AtomicInteger nonceCount;
+    private volatile Challenge challenge;
+
+    DigestAuthentication(final String username, final String password) {
+        this.username = username;
+        this.password = password;
+        this.nonceCount = new AtomicInteger();
+    }
+
+    /**
+     * Accepts the first digest challenge with a supported algorithm.
+     *
+     * @param headers the values of the {@code WWW-Authenticate} headers
+     * @return {@code true} if a challenge was accepted
+     */
+    boolean challenge(final List<String> headers) {
+        for (String header : headers) {
+            if (header.regionMatches(true, 0, DIGEST, 0, DIGEST.length())) {
+                Map<String, String> parameters = new HashMap<>();
+                Matcher matcher = PARAMETER.matcher(header.substring(DIGEST.length()));
+                while (matcher.find()) {
+                    parameters.put(matcher.group(1).toLowerCase(),
+                            matcher.group(2) != null ? matcher.group(2) : matcher.group(3));
+                }
+                String algorithm = parameters.getOrDefault("algorithm", "MD5");
+                String qop = parameters.get("qop");
+                if (digestAlgorithm(algorithm) != null && parameters.containsKey("nonce")
+                        && (qop == null || List.of(qop.split("\\s*,\\s*")).contains(AUTH))) {
+                    challenge = new Challenge(parameters.get("realm"), parameters.get("nonce"), parameters.get("opaque"),
+                            algorithm, qop != null);
+                    nonceCount.set(0);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Returns the value of the {@code Authorization} header or {@code null} if there was no challenge yet. */
+    String authorization(final String method, final String uri) {
+        Challenge current = challenge;
+        if (current == null) {
+            return null;
+        }
+        String nc = String.format("%08x", nonceCount.incrementAndGet());
+        byte[] random = new byte[8];
+        RANDOM.nextBytes(random);
+        String cnonce = HexFormat.of().formatHex(random);
+        String response = response(current.algorithm, username, current.realm, password, method, uri, current.nonce,
+                current.qop ? nc : null, cnonce, current.qop ? AUTH : null);
+
+        StringBuilder builder = new StringBuilder(DIGEST).append(' ');
+        builder.append("username=\"").append(username).append("\", ");
+        builder.append("realm=\"").append(current.realm).append("\", ");
+        builder.append("nonce=\"").append(current.nonce).append("\", ");
+        builder.append("uri=\"").append(uri).append("\", ");
+        builder.append("algorithm=").append(current.algorithm).append(", ");
+        if (current.qop) {
+            builder.append("qop=").append(AUTH).append(", ");
+            builder.append("nc=").append(nc).append(", ");
+            builder.append("cnonce=\"").append(cnonce).append("\", ");
+        }
+        if (current.opaque != null) {
+            builder.append("opaque=\"").append(current.opaque).append("\", ");
+        }
+        builder.append("response=\"").append(response).append('"');
+        return builder.toString();
+    }
+
+    /** Computes the digest response. {@code nc} and {@code qop} are {@code null} if the challenge has no qop. */
+    static String response(final String algorithm, final String username, final String realm, final String password,
+            final String method, final String uri, final String nonce, final String nc, final String cnonce,
+            final String qop) {
+        MessageDigest digest = digestAlgorithm(algorithm);
+        if (digest == null) {
+            throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm);
+        }
+        String ha1 = hash(digest, username + ":" + realm + ":" + password);
+        if (algorithm.toLowerCase().endsWith("-sess")) {
+            ha1 = hash(digest, ha1 + ":" + nonce + ":" + cnonce);
+        }
+        String ha2 = hash(digest, method + ":" + uri);
+        return qop != null
+                ? hash(digest, ha1 + ":" + nonce + ":" + nc + ":" + cnonce + ":" + qop + ":" + ha2)
+                : hash(digest, ha1 + ":" + nonce + ":" + ha2);
+    }
+
+    private static MessageDigest digestAlgorithm(final String algorithm) {
+        String name = algorithm.toUpperCase().replace("-SESS", "");
+        if (!"MD5".equals(name) && !"SHA-256".equals(name)) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private static String hash(final MessageDigest digest, final String value) {
+        return HexFormat.of().formatHex(digest.digest(value.getBytes(UTF_8)));
+    }
+
+    private record Challenge(String realm, String nonce, String opaque, String algorithm, boolean qop) {
+    }
+}
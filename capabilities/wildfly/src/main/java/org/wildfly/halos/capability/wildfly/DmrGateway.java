@@ -0,0 +1,215 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.dmr.ModelNode;
+import org.wildfly.halos.capability.wildfly.dmr.Composite;
+import org.wildfly.halos.capability.wildfly.dmr.CompositeResult;
+import org.wildfly.halos.capability.wildfly.dmr.ModelNodeHelper;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OP;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OUTCOME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RESULT;
+
+/**
+ * Executes arbitrary management operations against WildFly servers. Read-only operations for the same server which
+ * arrive within {@code halos.wildfly.dmr.batch-window} are merged into one composite (at most
+ * {@code halos.wildfly.dmr.batch-size} operations). The composite doesn't roll back on runtime failures. The response of
+ * each operation is taken from its step of the composite result. If the step failed, the operation is executed on its own.
+ * If the composite as a whole failed (connection refused, timeout, open circuit), all operations of the batch fail. All
+ * other operations are executed on their own right away.
+ */
+@ApplicationScoped
+class DmrGateway {
+
+    static final String OPERATION_HEADERS = "operation-headers";
+    static final String ROLLBACK_ON_RUNTIME_FAILURE = "rollback-on-runtime-failure";
+    static final Set<String> READ_ONLY = Set.of(
+            "query",
+            "read-attribute",
+            "read-attribute-group",
+            "read-attribute-group-names",
+            "read-children-names",
+            "read-children-resources",
+            "read-children-types",
+            "read-operation-description",
+            "read-operation-names",
+            "read-resource",
+            "read-resource-description",
+            "whoami");
+
+    @Inject WildFlyMetrics metrics;
+    @Inject CircuitBreakers circuitBreakers;
+    @ConfigProperty(name = "halos.wildfly.dmr.batch-window", defaultValue = "5ms") Duration window;
+    @ConfigProperty(name = "halos.wildfly.dmr.batch-size", defaultValue = "50") int batchSize;
+    @ConfigProperty(name = "halos.wildfly.dmr.timeout", defaultValue = "30s") Duration timeout;
+
+    private final Map<String, Batch> batches; // key == WildFly server name
+
+    DmrGateway() {
+        batches = new ConcurrentHashMap<>();
+    }
+
+    /** Operations whose name is in {@link #READ_ONLY} don't change the management model. */
+    static boolean readOnly(final ModelNode operation) {
+        return READ_ONLY.contains(operation.get(OP).asString());
+    }
+
+    /** Read-only operations without operation headers are batched. */
+    static boolean batchable(final ModelNode operation) {
+        return readOnly(operation) && !operation.hasDefined(OPERATION_HEADERS);
+    }
+
+    CompletableFuture<ModelNode> execute(final WildFlyServer server, final ModelControllerClient client,
+            final Operation operation) {
+        if (!batchable(operation)) {
+            return CompletableFuture.supplyAsync(() -> single(server, client, operation),
+                    Infrastructure.getDefaultWorkerPool());
+        }
+
+        CompletableFuture<ModelNode> future = new CompletableFuture<>();
+        int[] size = new int[1]; // size of the batch right after this operation has been added
+        Batch batch = batches.compute(server.name(), (name, current) -> {
+            Batch b = current != null ? current : new Batch(server, client);
+            b.operations.add(operation);
+            b.futures.add(future);
+            size[0] = b.operations.size();
+            return b;
+        });
+        if (size[0] >= batchSize) {
+            Infrastructure.getDefaultWorkerPool().execute(() -> flush(batch));
+        } else if (size[0] == 1) {
+            Infrastructure.getDefaultWorkerPool().schedule(() -> flush(batch), window.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
+    private void flush(final Batch batch) {
+        // after the batch has been removed, no operations are added anymore
+        if (!batches.remove(batch.server.name(), batch)) {
+            return;
+        }
+        if (batch.operations.size() == 1) {
+            complete(batch.futures.get(0), () -> single(batch.server, batch.client, batch.operations.get(0)));
+            return;
+        }
+
+        // one failing step must not roll back the steps of the other callers
+        Composite composite = new Composite(batch.operations);
+        composite.get(OPERATION_HEADERS).get(ROLLBACK_ON_RUNTIME_FAILURE).set(false);
+        CompositeResult result;
+        try {
+            circuitBreakers.allow(batch.server);
+            try {
+                ModelNode payload = metrics.execute(WildFlyMetrics.DMR_BATCH, batch.server.name(), batch.client, composite,
+                        timeout);
+                circuitBreakers.success(batch.server);
+                result = new CompositeResult(payload.get(RESULT));
+            } catch (IOException e) {
+                circuitBreakers.failure(batch.server, e.getMessage());
+                throw new ManagementInterfaceException(String.format("Batch of %d operations failed for %s: %s",
+                        batch.operations.size(), batch.server.name(), e.getMessage()));
+            } catch (RuntimeException e) {
+                circuitBreakers.failure(batch.server, e.getMessage());
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            // The server is unreachable, timed out or its circuit is open. Executing the operations one by one would
+            // only multiply the load and the wait, so all callers get the failure.
+            Log.debugf("Batch of %d operations failed for %s: %s", batch.operations.size(), batch.server.name(),
+                    e.getMessage());
+            for (CompletableFuture<ModelNode> future : batch.futures) {
+                future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        // Successful steps are taken from the composite. Failed and rolled back steps are executed on their own, so that
+        // each caller gets the response of its own operation and not a failure caused by the step of another caller.
+        for (int i = 0; i < batch.operations.size(); i++) {
+            ModelNode step = result.step(i);
+            CompletableFuture<ModelNode> future = batch.futures.get(i);
+            if (step.hasDefined(OUTCOME) && !ModelNodeHelper.isFailure(step)) {
+                future.complete(step);
+            } else {
+                Operation operation = batch.operations.get(i);
+                Infrastructure.getDefaultWorkerPool()
+                        .execute(() -> complete(future, () -> single(batch.server, batch.client, operation)));
+            }
+        }
+    }
+
+    private ModelNode single(final WildFlyServer server, final ModelControllerClient client, final Operation operation) {
+        circuitBreakers.allow(server);
+        try {
+            ModelNode payload = metrics.execute(WildFlyMetrics.DMR, server.name(), client, operation, timeout);
+            circuitBreakers.success(server);
+            return payload;
+        } catch (IOException e) {
+            circuitBreakers.failure(server, e.getMessage());
+            throw new ManagementInterfaceException(
+                    String.format("Operation %s failed for %s: %s", operation.asCli(), server.name(), e.getMessage()));
+        } catch (RuntimeException e) {
+            // every outcome must be reported, otherwise a half-open circuit would wait for its probe forever
+            circuitBreakers.failure(server, e.getMessage());
+            throw e;
+        }
+    }
+
+    private static void complete(final CompletableFuture<ModelNode> future, final Supplier<ModelNode> work) {
+        try {
+            future.complete(work.get());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /** Operations for one server collected within the batch window. Guarded by the compute lock of the batch map. */
+    private static final class Batch {
+
+        private final WildFlyServer server;
+        private final ModelControllerClient client;
+        private final List<Operation> operations;
+        private final List<CompletableFuture<ModelNode>> futures;
+
+        private Batch(final WildFlyServer server, final ModelControllerClient client) {
+            this.server = server;
+            this.client = client;
+            this.operations = new ArrayList<>();
+            this.futures = new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.function.Function;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.dmr.ModelNode;
+import org.wildfly.halos.capability.wildfly.dmr.ModelNodeMessageBodyWriter;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+
+import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Uni;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OP;
+
+/**
+ * Executes DMR operations against a WildFly server. The operation is posted as JSON, base64 encoded DMR
+ * ({@code application/dmr-encoded}) or binary DMR ({@code application/dmr}). The response is returned in the format given
+ * by the {@code Accept} header and written straight to the response stream.
+ * <p>
+ * Only read-only operations are allowed by default. Operations with side effects need
+ * {@code halos.wildfly.dmr.write-enabled=true} and an authenticated caller with the role
+ * {@code halos.wildfly.dmr.write-role}.
+ */
+@Path("/api/v1/wildfly/servers")
+@Consumes({ MediaType.APPLICATION_JSON, ModelNodeMessageBodyWriter.DMR_ENCODED, ModelNodeMessageBodyWriter.DMR })
+public class DmrResource {
+
+    @Inject WildFlyServerRepository serverRepository;
+    @Inject DmrGateway gateway;
+    @Inject SecurityIdentity identity;
+    @ConfigProperty(name = "halos.wildfly.dmr.write-enabled", defaultValue = "false") boolean writeEnabled;
+    @ConfigProperty(name = "halos.wildfly.dmr.write-role", defaultValue = "halos-admin") String writeRole;
+
+    @POST
+    @Path("/{serverName}/dmr")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<Response> json(@PathParam("serverName") final String serverName, final ModelNode operation) {
+        return execute(serverName, operation, payload -> (StreamingOutput) output -> {
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, UTF_8));
+            payload.writeJSONString(writer, true);
+            writer.flush();
+        });
+    }
+
+    @POST
+    @Path("/{serverName}/dmr")
+    @Produces({ ModelNodeMessageBodyWriter.DMR_ENCODED, ModelNodeMessageBodyWriter.DMR })
+    public Uni<Response> dmr(@PathParam("serverName") final String serverName, final ModelNode operation) {
+        return execute(serverName, operation, payload -> payload);
+    }
+
+    private Uni<Response> execute(final String serverName, final ModelNode operation,
+            final Function<ModelNode, Object> entity) {
+        WildFlyServer server = serverRepository.wildFlyServer(serverName);
+        ModelControllerClient client = serverRepository.client(serverName);
+        if (client == null || server == null) {
+            return Uni.createFrom().item(Response.status(Response.Status.NOT_FOUND).build());
+        }
+        if (operation == null || !operation.hasDefined(OP)) {
+            return Uni.createFrom().item(textResponse(Response.Status.BAD_REQUEST, "Missing operation name"));
+        }
+        Operation dmr;
+        try {
+            dmr = new Operation(operation);
+            dmr.asCli(); // walks the address and the parameters
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().item(textResponse(Response.Status.BAD_REQUEST, "Malformed operation: " + e.getMessage()));
+        }
+        if (!DmrGateway.readOnly(dmr) && !writeAllowed()) {
+            return Uni.createFrom().item(textResponse(Response.Status.FORBIDDEN,
+                    String.format("Operation %s is not read-only", dmr.getName())));
+        }
+        return Uni.createFrom().completionStage(() -> gateway.execute(server, client, dmr))
+                .map(payload -> Response.ok(entity.apply(payload)).build())
+                .onFailure().recoverWithItem(e -> textResponse(Response.Status.BAD_GATEWAY, e.getMessage()));
+    }
+
+    private boolean writeAllowed() {
+        return writeEnabled && !identity.isAnonymous() && identity.hasRole(writeRole);
+    }
+
+    private Response textResponse(final Response.Status status, final String message) {
+        return Response.status(status).entity(message).type(MediaType.TEXT_PLAIN).build();
+    }
+}
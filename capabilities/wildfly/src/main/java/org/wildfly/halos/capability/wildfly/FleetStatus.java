@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.time.Duration;
+import java.util.Collection;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.as.controller.client.ModelControllerClient;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+
+/**
+ * Reads the status of many servers in parallel. At most {@code halos.wildfly.status.fan-out.concurrency} reads are in
+ * flight. All reads share one deadline: servers which didn't answer in time (or which are still waiting for a free slot)
+ * get a {@link ServerStatus.Outcome#TIMEOUT} marker, so a hung server doesn't delay the others.
+ * <p>
+ * Reads go through {@link StatusRepository#status(ModelControllerClient, WildFlyServer)}, so cached statuses are returned
+ * right away. A management operation which runs into the deadline is not cancelled, but its result still refreshes the
+ * cache.
+ */
+@ApplicationScoped
+class FleetStatus {
+
+    @Inject WildFlyServerRepository serverRepository;
+    @Inject StatusRepository statusRepository;
+    @ConfigProperty(name = "halos.wildfly.status.fan-out.concurrency", defaultValue = "16") int concurrency;
+    @ConfigProperty(name = "halos.wildfly.status.fan-out.deadline", defaultValue = "5s") Duration defaultDeadline;
+
+    /** Emits the status of each server as soon as it's available. */
+    Multi<ServerStatus> statuses(final Collection<String> serverNames, final Duration deadline) {
+        long deadlineNanos = System.nanoTime() + (deadline != null ? deadline : defaultDeadline).toNanos();
+        return Multi.createFrom().iterable(serverNames)
+                .onItem().transformToUni(serverName -> status(serverName, deadlineNanos)).merge(concurrency);
+    }
+
+    private Uni<ServerStatus> status(final String serverName, final long deadlineNanos) {
+        WildFlyServer server = serverRepository.wildFlyServer(serverName);
+        ModelControllerClient client = serverRepository.client(serverName);
+        if (server == null || client == null) {
+            return Uni.createFrom().item(ServerStatus.notFound(serverName));
+        }
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            return Uni.createFrom().item(ServerStatus.timeout(serverName));
+        }
+        return Uni.createFrom().item(() -> ServerStatus.ok(serverName, statusRepository.status(client, server)))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .ifNoItem().after(Duration.ofNanos(remaining)).recoverWithItem(() -> ServerStatus.timeout(serverName))
+                .onFailure().recoverWithItem(throwable -> ServerStatus.failed(serverName, throwable.getMessage()));
+    }
+}
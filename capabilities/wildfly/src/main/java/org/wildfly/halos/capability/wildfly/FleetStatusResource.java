@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.wildfly.halos.api.Constants;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Returns the status of many servers with one request. {@code servers} is a comma-separated list of server names (default
+ * is all servers), {@code deadline} the deadline in milliseconds (default {@code halos.wildfly.status.fan-out.deadline}).
+ */
+@Path("/api/v1/wildfly/status")
+public class FleetStatusResource {
+
+    @Inject WildFlyServerRepository serverRepository;
+    @Inject FleetStatus fleetStatus;
+
+    /** Returns the status of all servers sorted by name after all servers answered or the deadline is over. */
+    @GET
+    @Produces({ MediaType.APPLICATION_JSON, Constants.APPLICATION_CBOR })
+    public Uni<List<ServerStatus>> statuses(@QueryParam("servers") final String servers,
+            @QueryParam("deadline") final Long deadline) {
+        return fleetStatus.statuses(serverNames(servers), deadline(deadline)).collect().asList().onItem()
+                .transform(statuses -> statuses.stream().sorted(Comparator.comparing(ServerStatus::server)).collect(toList()));
+    }
+
+    /** Streams the status of each server as soon as it's available. */
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<ServerStatus> streamStatuses(@QueryParam("servers") final String servers,
+            @QueryParam("deadline") final Long deadline) {
+        return fleetStatus.statuses(serverNames(servers), deadline(deadline));
+    }
+
+    private Collection<String> serverNames(final String servers) {
+        if (servers == null || servers.isBlank()) {
+            return serverRepository.wildFlyServers().stream().map(WildFlyServer::name).collect(toList());
+        }
+        return Arrays.stream(servers.split(",")).map(String::trim).filter(name -> !name.isEmpty()).distinct()
+                .collect(toList());
+    }
+
+    private Duration deadline(final Long deadline) {
+        return deadline != null && deadline > 0 ? Duration.ofMillis(deadline) : null;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.wildfly.halos.api.ManagedService;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpVersion;
+
+import com.google.common.net.HostAndPort;
+
+/**
+ * Talks to the HTTP management endpoint of WildFly servers instead of using JBoss Remoting. All servers share one
+ * non-blocking {@link HttpClient} running on the Vert.x event loops. Its pool keeps at most
+ * {@code halos.wildfly.http.pool-size} keep-alive connections per server, which are closed after
+ * {@code halos.wildfly.http.idle-timeout}. So idle servers don't cost any connections or threads. At most
+ * {@code halos.wildfly.http.wait-queue-size} requests per server wait for a connection, further requests fail right away.
+ * Requests time out after {@code halos.wildfly.http.timeout} without data from the server. Enable with
+ * {@code halos.wildfly.transport=http} at build time.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "halos.wildfly.transport", stringValue = "http")
+class HttpManagementTransport implements ManagementTransport {
+
+    @Inject Vertx vertx;
+    @ConfigProperty(name = "halos.wildfly.http.pool-size", defaultValue = "2") int poolSize;
+    @ConfigProperty(name = "halos.wildfly.http.idle-timeout", defaultValue = "60s") Duration idleTimeout;
+    @ConfigProperty(name = "halos.wildfly.http.wait-queue-size", defaultValue = "32") int waitQueueSize;
+    @ConfigProperty(name = "halos.wildfly.http.timeout", defaultValue = "30s") Duration timeout;
+    @ConfigProperty(name = "halos.wildfly.http.http2", defaultValue = "false") boolean http2;
+    @ConfigProperty(name = "halos.wildfly.http.username", defaultValue = "admin") String username;
+    @ConfigProperty(name = "halos.wildfly.http.password", defaultValue = "admin") String password;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    void init() {
+        httpClient = vertx.createHttpClient(options(poolSize, waitQueueSize, idleTimeout, http2));
+    }
+
+    @PreDestroy
+    void close() {
+        httpClient.close();
+    }
+
+    /**
+     * Options of the shared client. With {@code http2}, HTTP/2 is negotiated using ALPN (TLS) or an upgrade from
+     * HTTP/1.1, and each server is multiplexed over a single connection.
+     */
+    static HttpClientOptions options(final int poolSize, final int waitQueueSize, final Duration idleTimeout,
+            final boolean http2) {
+        HttpClientOptions options = new HttpClientOptions()
+                .setKeepAlive(true)
+                .setMaxPoolSize(poolSize)
+                .setMaxWaitQueueSize(waitQueueSize)
+                .setIdleTimeout((int) idleTimeout.toMillis())
+                .setIdleTimeoutUnit(TimeUnit.MILLISECONDS);
+        if (http2) {
+            options.setProtocolVersion(HttpVersion.HTTP_2)
+                    .setUseAlpn(true)
+                    .setHttp2ClearTextUpgrade(true)
+                    .setHttp2MaxPoolSize(1);
+        }
+        return options;
+    }
+
+    @Override
+    public ModelControllerClient create(final ManagedService managedService, final HostAndPort hostAndPort) {
+        return new HttpModelControllerClient(httpClient, hostAndPort, timeout, username, password);
+    }
+}
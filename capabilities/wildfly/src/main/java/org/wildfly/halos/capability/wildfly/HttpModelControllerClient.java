@@ -0,0 +1,297 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.Operation;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.OperationResponse;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+import org.jboss.threads.AsyncFutureTask;
+import org.wildfly.halos.capability.wildfly.dmr.ModelNodeMessageBodyWriter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+
+import com.google.common.net.HostAndPort;
+
+import static org.wildfly.halos.api.Constants.HTTPS_PORT;
+
+/**
+ * Executes management operations using the HTTP management endpoint ({@code /management}) of a WildFly server. The
+ * operations and responses are sent as base64 encoded DMR, using TLS for port 443. All clients share the connection pool of one
+ * {@link HttpClient}, so a client doesn't own any connections or threads and closing it is a no-op.
+ * <p>
+ * Requests time out if the server doesn't send any data within the timeout, and synchronous operations wait at most that
+ * long. Cancelling an asynchronous operation resets its request, so the connection goes back to the pool (HTTP/1.1 closes
+ * it, HTTP/2 resets only the stream).
+ * <p>
+ * Operations with attachments (e.g. deployment content) are not supported.
+ */
+class HttpModelControllerClient implements ModelControllerClient {
+
+    static final String MANAGEMENT = "/management";
+    private static final int UNAUTHORIZED = 401;
+
+    private final HttpClient httpClient;
+    private final HostAndPort hostAndPort;
+    private final Duration timeout;
+    private final DigestAuthentication authentication;
+
+    HttpModelControllerClient(final HttpClient httpClient, final HostAndPort hostAndPort, final Duration timeout,
+            final String username, final String password) {
+        this.httpClient = httpClient;
+        this.hostAndPort = hostAndPort;
+        this.timeout = timeout;
+        this.authentication = new DigestAuthentication(username, password);
+    }
+
+    // ------------------------------------------------------ model controller client
+
+    @Override
+    public ModelNode execute(final ModelNode operation) throws IOException {
+        return await(executeAsync(operation));
+    }
+
+    @Override
+    public ModelNode execute(final Operation operation) throws IOException {
+        return await(executeAsync(operation, null));
+    }
+
+    @Override
+    public ModelNode execute(final ModelNode operation, final OperationMessageHandler messageHandler) throws IOException {
+        return await(executeAsync(operation));
+    }
+
+    @Override
+    public ModelNode execute(final Operation operation, final OperationMessageHandler messageHandler) throws IOException {
+        return await(executeAsync(operation, messageHandler));
+    }
+
+    @Override
+    public OperationResponse executeOperation(final Operation operation, final OperationMessageHandler messageHandler)
+            throws IOException {
+        return OperationResponse.Factory.createSimple(execute(operation, messageHandler));
+    }
+
+    @Override
+    public AsyncFuture<ModelNode> executeAsync(final ModelNode operation) {
+        HttpFuture<ModelNode> future = new HttpFuture<>();
+        post(operation, future, true);
+        return future;
+    }
+
+    @Override
+    public AsyncFuture<ModelNode> executeAsync(final ModelNode operation, final OperationMessageHandler messageHandler) {
+        return executeAsync(operation);
+    }
+
+    @Override
+    public AsyncFuture<ModelNode> executeAsync(final Operation operation, final OperationMessageHandler messageHandler) {
+        if (!operation.getInputStreams().isEmpty()) {
+            HttpFuture<ModelNode> future = new HttpFuture<>();
+            future.failed(new IOException("Attachments are not supported by the HTTP management transport"));
+            return future;
+        }
+        return executeAsync(operation.getOperation());
+    }
+
+    @Override
+    public AsyncFuture<OperationResponse> executeOperationAsync(final Operation operation,
+            final OperationMessageHandler messageHandler) {
+        HttpFuture<OperationResponse> future = new HttpFuture<>();
+        executeAsync(operation, messageHandler).addListener(new AsyncFuture.AbstractListener<>() {
+            @Override
+            public void handleComplete(final AsyncFuture<? extends ModelNode> completed, final Object attachment) {
+                try {
+                    future.result(OperationResponse.Factory.createSimple(completed.getUninterruptibly()));
+                } catch (ExecutionException e) {
+                    future.failed(e.getCause());
+                }
+            }
+
+            @Override
+            public void handleFailed(final AsyncFuture<? extends ModelNode> failed, final Throwable cause,
+                    final Object attachment) {
+                future.failed(cause);
+            }
+
+            @Override
+            public void handleCancelled(final AsyncFuture<? extends ModelNode> cancelled, final Object attachment) {
+                future.asyncCancel(false);
+            }
+        }, null);
+        return future;
+    }
+
+    @Override
+    public void close() {
+        // connections belong to the shared pool
+    }
+
+    // ------------------------------------------------------ http
+
+    /** Posts the operation. If the server answers with a digest challenge, the operation is posted once more. */
+    private void post(final ModelNode operation, final HttpFuture<ModelNode> future, final boolean retry) {
+        Buffer body;
+        try {
+            body = encode(operation);
+        } catch (IOException e) {
+            future.failed(e);
+            return;
+        }
+        RequestOptions options = new RequestOptions()
+                .setMethod(HttpMethod.POST)
+                .setHost(hostAndPort.getHost())
+                .setPort(hostAndPort.getPort())
+                .setURI(MANAGEMENT)
+                .setSsl(hostAndPort.getPort() == HTTPS_PORT)
+                .setIdleTimeout(timeout.toMillis())
+                .putHeader(HttpHeaders.CONTENT_TYPE, ModelNodeMessageBodyWriter.DMR_ENCODED)
+                .putHeader(HttpHeaders.ACCEPT, ModelNodeMessageBodyWriter.DMR_ENCODED)
+                .putHeader(HttpHeaders.USER_AGENT, "halOS");
+        String authorization = authentication.authorization("POST", MANAGEMENT);
+        if (authorization != null) {
+            options.putHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        httpClient.request(options)
+                .compose(request -> {
+                    future.request(request);
+                    return request.send(body);
+                })
+                .compose(response -> response.body().map(buffer -> new Reply(response.statusCode(),
+                        response.statusMessage(), response.headers(), buffer)))
+                .onComplete(result -> {
+                    if (future.getStatus() == AsyncFuture.Status.WAITING) {
+                        if (retry && challenged(result)) {
+                            post(operation, future, false);
+                        } else {
+                            complete(result, future);
+                        }
+                    }
+                });
+    }
+
+    private boolean challenged(final AsyncResult<Reply> result) {
+        return result.succeeded() && result.result().status() == UNAUTHORIZED
+                && authentication.challenge(result.result().headers().getAll(HttpHeaders.WWW_AUTHENTICATE));
+    }
+
+    private void complete(final AsyncResult<Reply> result, final HttpFuture<ModelNode> future) {
+        if (result.failed()) {
+            future.failed(result.cause() instanceof IOException ? result.cause()
+                    : new IOException(String.format("Unable to reach %s: %s", hostAndPort, result.cause().getMessage()),
+                            result.cause()));
+            return;
+        }
+        // failed operations are answered with an error status and a DMR payload
+        Reply reply = result.result();
+        String contentType = reply.headers().get(HttpHeaders.CONTENT_TYPE);
+        if (contentType != null && contentType.startsWith(ModelNodeMessageBodyWriter.DMR_ENCODED) && reply.body() != null) {
+            try {
+                future.result(ModelNode.fromBase64(new ByteBufInputStream(reply.body().getByteBuf())));
+            } catch (IOException | IllegalArgumentException e) {
+                future.failed(new IOException(String.format("Invalid response from %s: %s", hostAndPort, e.getMessage()),
+                        e));
+            }
+        } else {
+            future.failed(new IOException(String.format("HTTP %d %s from %s", reply.status(), reply.message(),
+                    hostAndPort)));
+        }
+    }
+
+    private static Buffer encode(final ModelNode operation) throws IOException {
+        ByteBuf buffer = Unpooled.buffer();
+        try (ByteBufOutputStream output = new ByteBufOutputStream(buffer)) {
+            operation.writeBase64(output);
+        }
+        return Buffer.buffer(buffer);
+    }
+
+    private ModelNode await(final AsyncFuture<ModelNode> future) throws IOException {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.asyncCancel(true);
+            throw new IOException(String.format("Operation for %s timed out after %d ms", hostAndPort, timeout.toMillis()));
+        } catch (InterruptedException e) {
+            future.asyncCancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format("Operation for %s interrupted", hostAndPort));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private record Reply(int status, String message, MultiMap headers, Buffer body) {
+    }
+
+    /** Completed on the event loop which received the response. */
+    private static final class HttpFuture<T> extends AsyncFutureTask<T> {
+
+        private volatile HttpClientRequest request;
+
+        HttpFuture() {
+            super(Runnable::run);
+        }
+
+        /** Remembers the current request, so that it can be reset. Resets it right away if the future is cancelled. */
+        void request(final HttpClientRequest request) {
+            this.request = request;
+            if (getStatus() == Status.CANCELLED) {
+                request.reset();
+            }
+        }
+
+        void result(final T result) {
+            setResult(result);
+        }
+
+        void failed(final Throwable cause) {
+            setFailed(cause);
+        }
+
+        @Override
+        public void asyncCancel(final boolean interruptionDesired) {
+            setCancelled();
+            HttpClientRequest current = request;
+            if (current != null) {
+                current.reset();
+            }
+        }
+    }
+}
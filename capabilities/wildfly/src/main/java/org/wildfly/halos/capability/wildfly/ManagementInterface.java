@@ -16,16 +16,20 @@
 package org.wildfly.halos.capability.wildfly;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.as.controller.client.ModelControllerClient;
 import org.jboss.dmr.ModelNode;
 import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.api.Tracing;
 import org.wildfly.halos.capability.wildfly.dmr.Composite;
 import org.wildfly.halos.capability.wildfly.dmr.CompositeResult;
 import org.wildfly.halos.capability.wildfly.dmr.ModelNodeHelper;
@@ -36,6 +40,7 @@ import io.fabric8.kubernetes.api.model.Service;
 import io.fabric8.kubernetes.api.model.ServicePort;
 import io.fabric8.openshift.api.model.Route;
 import io.fabric8.openshift.client.OpenShiftClient;
+import io.opentelemetry.context.Context;
 import io.quarkus.logging.Log;
 import io.quarkus.runtime.LaunchMode;
 import io.smallrye.mutiny.Uni;
@@ -44,11 +49,6 @@ import io.smallrye.mutiny.tuples.Tuple2;
 import com.google.common.net.HostAndPort;
 
 import de.skuzzle.semantic.Version;
-import javax.security.auth.callback.Callback;
-import javax.security.auth.callback.NameCallback;
-import javax.security.auth.callback.PasswordCallback;
-import javax.security.auth.callback.UnsupportedCallbackException;
-import javax.security.sasl.RealmCallback;
 
 import static org.wildfly.halos.api.Constants.HTTPS_PORT;
 import static org.wildfly.halos.api.Constants.HTTP_PORT;
@@ -79,21 +79,65 @@ import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants
 class ManagementInterface {
 
     private static final int MANAGEMENT_PORT = 9990;
-    private static final String REMOTE_HTTP = "remote+http";
 
     @Inject OpenShiftClient oc;
     @Inject LaunchMode launchMode;
-
+    @Inject WildFlyMetrics metrics;
+    @Inject Tracing tracing;
+    @Inject ManagementTransport transport;
+    @ConfigProperty(name = "halos.wildfly.connect.timeout", defaultValue = "10s") Duration timeout;
+
+    /**
+     * Returns a lazy pipeline to connect to the managed service. Each subscription (i.e. each retry) is traced as a separate
+     * attempt. Attempts are children of the span which is current when calling this method.
+     */
     Uni<Tuple2<ModelControllerClient, WildFlyServer>> connect(final ManagedService managedService) {
-        return Uni.createFrom().item(() -> {
-            HostAndPort hostAndPort = hostAndPort(managedService);
-            ModelControllerClient client = connect(managedService, hostAndPort);
-            WildFlyServer server = readServerAndDeployments(managedService, client);
-            return Tuple2.of(client, server);
-        });
+        Context parent = Context.current();
+        AtomicLong attempts = new AtomicLong();
+        return Uni.createFrom().item(() -> tracing.inSpan("connect attempt", parent, span -> {
+            long attempt = attempts.incrementAndGet();
+            span.setAttribute(Tracing.MANAGED_SERVICE, managedService.name());
+            span.setAttribute(Tracing.ATTEMPT, attempt);
+            ConnectAttemptEvent event = new ConnectAttemptEvent();
+            event.begin();
+            boolean success = false;
+            String error = null;
+            try {
+                HostAndPort hostAndPort = tracing.inSpan("lookup host and port", s -> hostAndPort(managedService));
+                ModelControllerClient client = tracing.inSpan("create client",
+                        s -> transport.create(managedService, hostAndPort));
+                WildFlyServer server = readServerAndDeployments(managedService, client);
+                success = true;
+                return Tuple2.of(client, server);
+            } catch (RuntimeException e) {
+                error = e.getMessage();
+                throw e;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.managedService = managedService.name();
+                    event.attempt = attempt;
+                    event.success = success;
+                    event.error = error;
+                    event.commit();
+                }
+            }
+        }));
     }
 
     private HostAndPort hostAndPort(final ManagedService managedService) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            HostAndPort hostAndPort = lookupHostAndPort(managedService);
+            success = true;
+            return hostAndPort;
+        } finally {
+            metrics.lookup(start, success);
+        }
+    }
+
+    private HostAndPort lookupHostAndPort(final ManagedService managedService) {
         Service service = oc.services().withName(managedService.name()).get();
         if (service != null) {
             if (launchMode.isDevOrTest()) {
@@ -123,28 +167,6 @@ class ManagementInterface {
         throw new ManagementInterfaceException(String.format("Unable to get host and port for %s", managedService));
     }
 
-    private ModelControllerClient connect(final ManagedService managedService, final HostAndPort hostAndPort) {
-        try {
-            return ModelControllerClient.Factory.create(REMOTE_HTTP, hostAndPort.getHost(), hostAndPort.getPort(),
-                    callbacks -> {
-                        for (Callback current : callbacks) {
-                            if (current instanceof NameCallback ncb) {
-                                ncb.setName("admin");
-                            } else if (current instanceof PasswordCallback pcb) {
-                                pcb.setPassword("admin".toCharArray());
-                            } else if (current instanceof RealmCallback rcb) {
-                                rcb.setText(rcb.getDefaultText());
-                            } else {
-                                throw new UnsupportedCallbackException(current);
-                            }
-                        }
-                    });
-        } catch (Exception e) {
-            throw new ManagementInterfaceException(
-                    String.format("Unable to connect to %s using %s", managedService, hostAndPort));
-        }
-    }
-
     private WildFlyServer readServerAndDeployments(final ManagedService managedService, final ModelControllerClient client) {
         Operation rootOperation = new Operation.Builder(ResourceAddress.root(), READ_RESOURCE_OPERATION)
                 .param(ATTRIBUTES_ONLY, true).param(INCLUDE_RUNTIME, true).build();
@@ -152,7 +174,8 @@ class ManagementInterface {
                 .param(CHILD_TYPE, DEPLOYMENT).param(INCLUDE_RUNTIME, true).param(RECURSIVE, false).build();
         Composite composite = new Composite(rootOperation, deploymentsOperation);
         try {
-            ModelNode payload = client.execute(composite);
+            ModelNode payload = metrics.execute(WildFlyMetrics.SERVER_AND_DEPLOYMENTS, managedService.name(), client,
+                    composite, timeout);
             CompositeResult compositeResult = new CompositeResult(payload.get(RESULT));
             if (compositeResult.isFailure()) {
                 throw new ManagementInterfaceException(
@@ -174,16 +197,7 @@ class ManagementInterface {
                 SuspendState suspendState = ModelNodeHelper.asEnumValue(rootNode, SUSPEND_STATE, SuspendState::valueOf,
                         SuspendState.UNDEFINED);
 
-                Set<Deployment> deployments = compositeResult.step(1).get(RESULT).asPropertyList().stream().map(property -> {
-                    String deploymentName = property.getName();
-                    ModelNode deploymentNode = property.getValue();
-                    DeploymentStatus status = ModelNodeHelper.asEnumValue(deploymentNode, STATUS, DeploymentStatus::valueOf,
-                            DeploymentStatus.UNDEFINED);
-                    boolean enabled = deploymentNode.get(ENABLED).asBoolean();
-                    return new Deployment(deploymentName, status, enabled,
-                            ModelNodeHelper.failSafeLocalDateTime(deploymentNode, DISABLED_TIME),
-                            ModelNodeHelper.failSafeLocalDateTime(deploymentNode, ENABLED_TIME));
-                }).collect(Collectors.toSet());
+                Set<Deployment> deployments = parseDeployments(compositeResult.step(1).get(RESULT));
 
                 return new WildFlyServer(managedService.name(), serverName, productName, productVersion, coreVersion,
                         managementVersion, runningMode, serverState, suspendState, deployments);
@@ -194,6 +208,20 @@ class ManagementInterface {
         }
     }
 
+    /** Parses the result of {@code read-children-resources(child-type=deployment)}. */
+    static Set<Deployment> parseDeployments(final ModelNode deploymentsNode) {
+        return deploymentsNode.asPropertyList().stream().map(property -> {
+            String deploymentName = property.getName();
+            ModelNode deploymentNode = property.getValue();
+            DeploymentStatus status = ModelNodeHelper.asEnumValue(deploymentNode, STATUS, DeploymentStatus::valueOf,
+                    DeploymentStatus.UNDEFINED);
+            boolean enabled = deploymentNode.get(ENABLED).asBoolean();
+            return new Deployment(deploymentName, status, enabled,
+                    ModelNodeHelper.failSafeLocalDateTime(deploymentNode, DISABLED_TIME),
+                    ModelNodeHelper.failSafeLocalDateTime(deploymentNode, ENABLED_TIME));
+        }).collect(Collectors.toSet());
+    }
+
     private Version parseVersion(final ManagedService managedService, final String field, final ModelNode version) {
         Version result = Version.ZERO;
         if (version.isDefined()) {
@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.wildfly.halos.api.ManagedService;
+
+import com.google.common.net.HostAndPort;
+
+/**
+ * Creates the clients used to talk to the management interface of WildFly servers. The default transport uses JBoss
+ * Remoting over HTTP. Provide another bean to replace it, e.g. with simulated servers in tests.
+ */
+public interface ManagementTransport {
+
+    /**
+     * Creates a client for the management interface at the specified host and port. Clients may connect lazily, so
+     * connection errors can also surface when executing the first operation.
+     *
+     * @throws ManagementInterfaceException if the client cannot be created
+     */
+    ModelControllerClient create(ManagedService managedService, HostAndPort hostAndPort);
+}
@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+import org.jboss.resteasy.reactive.RestStreamElementType;
+
+import io.smallrye.mutiny.Multi;
+
+/**
+ * Streams the changes detected by the periodic refresh: server state, suspend state, running mode and added, changed or
+ * removed deployments. {@code server} only streams the changes of this server.
+ */
+@Path("/api/v1/wildfly/modifications")
+public class ModificationResource {
+
+    @Inject ServerRefresher serverRefresher;
+
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<WildFlyServerModification> modifications(@QueryParam("server") final String server) {
+        Multi<WildFlyServerModification> modifications = serverRefresher.modifications();
+        return server != null ? modifications.select().where(modification -> server.equals(modification.server()))
+                : modifications;
+    }
+}
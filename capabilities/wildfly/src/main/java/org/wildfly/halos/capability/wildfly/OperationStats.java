@@ -0,0 +1,163 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.jboss.dmr.ModelNode;
+import org.wildfly.halos.capability.wildfly.dmr.Composite;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.COMPOSITE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OP;
+
+/**
+ * Latency statistics of the management operations executed against one server. Latencies are recorded in microseconds
+ * into an HDR histogram per operation name. Recording is wait-free. Only the names in {@link #NAMES} get their own
+ * histogram, all other operations share {@link #OTHER}, and all composites share {@code composite}. Each histogram covers
+ * 1 µs to {@link #HIGHEST_TRACKABLE} with two significant digits, so its size is fixed and the statistics of a server are
+ * bounded. In addition, the slowest operations are kept in a bounded set together with their CLI representation. Only
+ * operations slower than the fastest operation in that set take a lock.
+ */
+class OperationStats {
+
+    static final int SLOWEST_SIZE = 20;
+    static final String OTHER = "other";
+    static final Set<String> NAMES = Set.of(
+            COMPOSITE,
+            "add",
+            "query",
+            "read-attribute",
+            "read-attribute-group",
+            "read-children-names",
+            "read-children-resources",
+            "read-children-types",
+            "read-operation-description",
+            "read-resource",
+            "read-resource-description",
+            "reload",
+            "remove",
+            "resume",
+            "shutdown",
+            "suspend",
+            "undefine-attribute",
+            "whoami",
+            "write-attribute");
+    static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final double MICROS_PER_MILLI = 1_000.0;
+
+    private final String server;
+    private final Map<String, Recording> recordings; // key == operation name
+    private final PriorityQueue<Slow> slowest; // head == fastest of the slowest operations
+    private volatile long slowThreshold; // nanos
+
+    OperationStats(final String server) {
+        this.server = server;
+        this.recordings = new ConcurrentHashMap<>();
+        this.slowest = new PriorityQueue<>(SLOWEST_SIZE + 1, Comparator.comparingLong(Slow::nanos));
+        this.slowThreshold = 0;
+    }
+
+    void record(final ModelNode operation, final long nanos) {
+        String name = name(operation);
+        long micros = Math.max(1, Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE));
+        recordings.computeIfAbsent(name, n -> new Recording()).recorder.recordValue(micros);
+        if (nanos > slowThreshold) {
+            recordSlow(name, operation, nanos);
+        }
+    }
+
+    private synchronized void recordSlow(final String name, final ModelNode operation, final long nanos) {
+        if (slowest.size() < SLOWEST_SIZE || nanos > slowest.peek().nanos()) {
+            slowest.add(new Slow(name, cli(operation), nanos, LocalDateTime.now()));
+            if (slowest.size() > SLOWEST_SIZE) {
+                slowest.poll();
+            }
+            if (slowest.size() == SLOWEST_SIZE) {
+                slowThreshold = slowest.peek().nanos();
+            }
+        }
+    }
+
+    /** Returns the statistics recorded since the server was connected. */
+    synchronized ServerStats snapshot() {
+        List<ServerStats.OperationLatency> operations = new ArrayList<>();
+        new TreeMap<>(recordings).forEach((name, recording) -> operations.add(recording.latency(name)));
+        List<Slow> slowOperations = new ArrayList<>(slowest);
+        slowOperations.sort(Comparator.comparingLong(Slow::nanos).reversed());
+        return new ServerStats(server, operations, slowOperations.stream()
+                .map(slow -> new ServerStats.SlowOperation(slow.operation(), slow.cli(), millis(slow.nanos() / 1_000.0),
+                        slow.timestamp()))
+                .toList());
+    }
+
+    // ------------------------------------------------------ helpers
+
+    // only use hasDefined() and get() of defined children: get() would add undefined children to the operation
+    private static String name(final ModelNode operation) {
+        String name = operation.hasDefined(OP) ? operation.get(OP).asString() : OTHER;
+        return NAMES.contains(name) ? name : OTHER;
+    }
+
+    private static String cli(final ModelNode operation) {
+        if (operation instanceof Composite composite) {
+            return composite.asCli();
+        } else if (operation instanceof Operation op) {
+            return op.asCli();
+        } else {
+            return new Operation(operation.clone()).asCli();
+        }
+    }
+
+    private static double millis(final double micros) {
+        return micros / MICROS_PER_MILLI;
+    }
+
+    /** A recorder for the writers and an accumulated histogram for the readers. */
+    private static class Recording {
+
+        private final Recorder recorder = new Recorder(1, HIGHEST_TRACKABLE, SIGNIFICANT_DIGITS);
+        private final Histogram total = new Histogram(1, HIGHEST_TRACKABLE, SIGNIFICANT_DIGITS);
+        private Histogram interval;
+
+        private ServerStats.OperationLatency latency(final String operation) {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            if (total.getTotalCount() == 0) {
+                return new ServerStats.OperationLatency(operation, 0, 0, 0, 0, 0, 0, 0, 0);
+            }
+            return new ServerStats.OperationLatency(operation, total.getTotalCount(), millis(total.getMinValue()),
+                    millis(total.getMean()), millis(total.getValueAtPercentile(50)),
+                    millis(total.getValueAtPercentile(90)), millis(total.getValueAtPercentile(99)),
+                    millis(total.getValueAtPercentile(99.9)), millis(total.getMaxValue()));
+        }
+    }
+
+    private record Slow(String operation, String cli, long nanos, LocalDateTime timestamp) {
+    }
+}
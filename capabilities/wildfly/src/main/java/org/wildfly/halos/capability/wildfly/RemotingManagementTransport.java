@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.wildfly.halos.api.ManagedService;
+
+import io.quarkus.arc.DefaultBean;
+
+import com.google.common.net.HostAndPort;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.PasswordCallback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import javax.security.sasl.RealmCallback;
+
+@ApplicationScoped
+@DefaultBean
+class RemotingManagementTransport implements ManagementTransport {
+
+    private static final String REMOTE_HTTP = "remote+http";
+
+    @Override
+    public ModelControllerClient create(final ManagedService managedService, final HostAndPort hostAndPort) {
+        try {
+            return ModelControllerClient.Factory.create(REMOTE_HTTP, hostAndPort.getHost(), hostAndPort.getPort(),
+                    callbacks -> {
+                        for (Callback current : callbacks) {
+                            if (current instanceof NameCallback ncb) {
+                                ncb.setName("admin");
+                            } else if (current instanceof PasswordCallback pcb) {
+                                pcb.setPassword("admin".toCharArray());
+                            } else if (current instanceof RealmCallback rcb) {
+                                rcb.setText(rcb.getDefaultText());
+                            } else {
+                                throw new UnsupportedCallbackException(current);
+                            }
+                        }
+                    });
+        } catch (Exception e) {
+            throw new ManagementInterfaceException(
+                    String.format("Unable to connect to %s using %s", managedService, hostAndPort));
+        }
+    }
+}
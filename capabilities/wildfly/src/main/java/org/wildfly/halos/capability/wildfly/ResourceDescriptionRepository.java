@@ -0,0 +1,382 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
+import org.wildfly.halos.capability.wildfly.dmr.ModelNodeHelper;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+import org.wildfly.halos.capability.wildfly.dmr.ResourceAddress;
+
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+
+import de.skuzzle.semantic.Version;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.FAILURE_DESCRIPTION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OPERATIONS;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_RESOURCE_DESCRIPTION_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RESULT;
+
+/**
+ * Caches the results of {@code read-resource-description} (with operations) per product, product version, management
+ * version and address template. Servers with the same versions share the descriptions, so a fleet of identical servers
+ * costs one description per template. Concrete addresses are normalized to templates: the values of all segments except
+ * the {@link #SINGLETONS} are replaced by {@code *}, so {@code /subsystem=datasources/data-source=ExampleDS} shares the
+ * description of {@code /subsystem=datasources/data-source=*}. Descriptions are read lazily on the first request.
+ * Concurrent requests for the same description share one management operation.
+ * <p>
+ * Descriptions are kept as binary DMR together with a hash of their content, which serves as a strong entity tag. The
+ * cache holds at most {@code halos.wildfly.description.memory-size} bytes, least recently used descriptions are evicted
+ * first. If {@code halos.wildfly.description.path} is set, descriptions are also written to that directory and survive
+ * restarts. The directory holds at most {@code halos.wildfly.description.disk-size} bytes, least recently used files are
+ * deleted first. Servers without a management version don't share their descriptions. Their descriptions are only kept
+ * in memory and removed together with the server.
+ */
+@ApplicationScoped
+class ResourceDescriptionRepository {
+
+    /** Resource types whose children have descriptions of their own, e.g. {@code subsystem=datasources}. */
+    static final Set<String> SINGLETONS = Set.of("configuration", "core-service", "service", "setting", "subsystem",
+            "type");
+    private static final String SERVER_KEY = "server:";
+    private static final int MAGIC = 0x68724430; // "hrD0"
+    private static final String SUFFIX = ".dmr";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @Inject DmrGateway gateway;
+    @ConfigProperty(name = "halos.wildfly.description.path") Optional<String> path;
+    @ConfigProperty(name = "halos.wildfly.description.memory-size", defaultValue = "67108864") long memorySize;
+    @ConfigProperty(name = "halos.wildfly.description.disk-size", defaultValue = "268435456") long diskSize;
+
+    // key == product|product version|management version|template or server:<server name>|template
+    private Cache<String, Description> descriptions;
+    private final Map<String, CompletableFuture<Description>> inFlight; // key == same as descriptions
+    private Path directory; // null == not persisted
+
+    ResourceDescriptionRepository() {
+        inFlight = new ConcurrentHashMap<>();
+    }
+
+    ResourceDescriptionRepository(final Path directory, final long memorySize, final long diskSize) {
+        this();
+        this.directory = directory;
+        this.memorySize = memorySize;
+        this.diskSize = diskSize;
+        this.descriptions = cache(memorySize);
+    }
+
+    @PostConstruct
+    void init() {
+        descriptions = cache(memorySize);
+        path.ifPresent(p -> {
+            directory = Path.of(p);
+            try {
+                Files.createDirectories(directory);
+                // left over by writes which didn't complete
+                try (DirectoryStream<Path> temps = Files.newDirectoryStream(directory, "*" + TEMP_SUFFIX)) {
+                    for (Path temp : temps) {
+                        Files.deleteIfExists(temp);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Log.infof("Persist resource descriptions in %s", directory);
+        });
+    }
+
+    private static Cache<String, Description> cache(final long memorySize) {
+        return CacheBuilder.newBuilder()
+                .maximumWeight(memorySize)
+                .<String, Description> weigher((key, description) -> description.dmr().length + 2 * key.length())
+                .build();
+    }
+
+    /**
+     * Returns the description of the address template (e.g. {@code /subsystem=datasources/data-source=*}). The future fails
+     * with an {@link IllegalArgumentException} if the template is malformed or the operation failed on the server, and
+     * with a {@link ManagementInterfaceException} if the server can't be reached.
+     */
+    CompletableFuture<Description> description(final WildFlyServer server, final ModelControllerClient client,
+            final String template) {
+        ResourceAddress address;
+        try {
+            address = template(ResourceAddress.from(template));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String key = key(server, address);
+        Description description = descriptions.getIfPresent(key);
+        if (description != null) {
+            return CompletableFuture.completedFuture(description);
+        }
+
+        CompletableFuture<Description> future = new CompletableFuture<>();
+        CompletableFuture<Description> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return running;
+        }
+        CompletableFuture.supplyAsync(() -> load(key), Infrastructure.getDefaultWorkerPool())
+                .thenCompose(loaded -> loaded != null ? CompletableFuture.completedFuture(loaded)
+                        : fetch(key, server, client, address))
+                .whenComplete((result, error) -> {
+                    if (result != null) {
+                        descriptions.put(key, result);
+                    }
+                    inFlight.remove(key, future);
+                    if (error != null) {
+                        future.completeExceptionally(
+                                error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    } else {
+                        future.complete(result);
+                    }
+                });
+        return future;
+    }
+
+    long size() {
+        return descriptions.size();
+    }
+
+    /** Removes the descriptions which belong to the server only. */
+    void remove(final String serverName) {
+        String prefix = SERVER_KEY + serverName + "|";
+        descriptions.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /** Replaces the values of all segments except the {@link #SINGLETONS} by {@code *}. */
+    static ResourceAddress template(final ResourceAddress address) {
+        ResourceAddress template = new ResourceAddress();
+        for (Property segment : address.asPropertyList()) {
+            String type = segment.getName();
+            template.add(type, SINGLETONS.contains(type) ? segment.getValue().asString() : "*");
+        }
+        return template;
+    }
+
+    /** The template is normalized, so equivalent notations share one description. */
+    static String key(final WildFlyServer server, final ResourceAddress template) {
+        String normalized = template.isEmpty() ? "/" : template.toString();
+        if (server.managementVersion() == null || Version.ZERO.equals(server.managementVersion())) {
+            return SERVER_KEY + server.name() + "|" + normalized;
+        }
+        return String.join("|", server.productName(), String.valueOf(server.productVersion()),
+                String.valueOf(server.managementVersion()), normalized);
+    }
+
+    // ------------------------------------------------------ fetch
+
+    private CompletableFuture<Description> fetch(final String key, final WildFlyServer server,
+            final ModelControllerClient client, final ResourceAddress address) {
+        Operation operation = new Operation.Builder(address, READ_RESOURCE_DESCRIPTION_OPERATION).param(OPERATIONS, true)
+                .build();
+        return gateway.execute(server, client, operation).thenApplyAsync(payload -> {
+            if (ModelNodeHelper.isFailure(payload)) {
+                throw new IllegalArgumentException(payload.get(FAILURE_DESCRIPTION).asString());
+            }
+            Description description = Description.of(key, payload.get(RESULT));
+            Log.debugf("Read description %s from %s (%d bytes)", key, server.name(), description.dmr().length);
+            store(description);
+            return description;
+        }, Infrastructure.getDefaultWorkerPool());
+    }
+
+    // ------------------------------------------------------ persistence
+
+    Description load(final String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = file(key);
+        try {
+            Description description = read(key, file);
+            if (description != null) {
+                // the modification time is the last use, which decides what to delete first
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+            return description;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            Log.warnf("Unable to read description %s: %s", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Descriptions of a single server are not persisted: its key is tied to a server which might never come back. */
+    void store(final Description description) {
+        if (directory == null || description.key().startsWith(SERVER_KEY)) {
+            return;
+        }
+        Path file = file(description.key());
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, null, TEMP_SUFFIX);
+            try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(temp))) {
+                output.writeInt(MAGIC);
+                output.writeUTF(description.key());
+                output.writeInt(description.dmr().length);
+                output.write(description.dmr());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (IOException e) {
+            Log.warnf("Unable to write description %s: %s", file, e.getMessage());
+        } finally {
+            if (temp != null) {
+                delete(temp);
+            }
+        }
+        prune();
+    }
+
+    /** Deletes the least recently used files until the directory holds at most {@code diskSize} bytes. */
+    private void prune() {
+        List<StoredFile> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                files.add(new StoredFile(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                total += attributes.size();
+            }
+        } catch (IOException e) {
+            Log.warnf("Unable to list descriptions in %s: %s", directory, e.getMessage());
+            return;
+        }
+        if (total > diskSize) {
+            files.sort(Comparator.comparingLong(StoredFile::lastModified));
+            for (int i = 0; i < files.size() && total > diskSize; i++) {
+                delete(files.get(i).path());
+                total -= files.get(i).size();
+            }
+        }
+    }
+
+    private static void delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Log.warnf("Unable to delete %s: %s", file, e.getMessage());
+        }
+    }
+
+    /** Returns {@code null} if the file belongs to another key or has been corrupted (e.g. truncated). */
+    private static Description read(final String key, final Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(file))) {
+            if (input.readInt() != MAGIC || !key.equals(input.readUTF())) {
+                return null;
+            }
+            int length = input.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] dmr = input.readNBytes(length);
+            if (dmr.length != length) {
+                Log.warnf("Ignore truncated description %s", file);
+                return null;
+            }
+            return new Description(key, dmr, hash(dmr));
+        }
+    }
+
+    private Path file(final String key) {
+        return directory.resolve(HexFormat.of().formatHex(sha256(key.getBytes(UTF_8))) + SUFFIX);
+    }
+
+    // ------------------------------------------------------ description
+
+    private static String hash(final byte[] bytes) {
+        return HexFormat.of().formatHex(Arrays.copyOf(sha256(bytes), 16));
+    }
+
+    private static byte[] sha256(final byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredFile(Path path, long size, long lastModified) {
+    }
+
+    /**
+     * A description as binary DMR.
+     *
+     * @param hash hash of the binary DMR, used as entity tag
+     */
+    record Description(String key, byte[] dmr, String hash) {
+
+        static Description of(final String key, final ModelNode description) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
+            try {
+                description.writeExternal(output);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            byte[] dmr = output.toByteArray();
+            return new Description(key, dmr, hash(dmr));
+        }
+
+        ModelNode modelNode() {
+            try (InputStream input = new ByteArrayInputStream(dmr)) {
+                return ModelNode.fromStream(input);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
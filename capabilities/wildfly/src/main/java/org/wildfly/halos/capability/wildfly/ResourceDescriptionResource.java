@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Base64;
+import java.util.List;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.wildfly.halos.capability.wildfly.ResourceDescriptionRepository.Description;
+import org.wildfly.halos.capability.wildfly.dmr.ModelNodeMessageBodyWriter;
+
+import io.smallrye.mutiny.Uni;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@Path("/api/v1/wildfly/servers")
+public class ResourceDescriptionResource {
+
+    private static final MediaType DMR_ENCODED_TYPE = MediaType.valueOf(ModelNodeMessageBodyWriter.DMR_ENCODED);
+    private static final List<MediaType> MEDIA_TYPES = List.of(MediaType.APPLICATION_JSON_TYPE, DMR_ENCODED_TYPE,
+            ModelNodeMessageBodyWriter.DMR_TYPE);
+
+    @Inject WildFlyServerRepository serverRepository;
+    @Inject ResourceDescriptionRepository descriptionRepository;
+
+    /**
+     * Returns the resource description (including operations) of an address template like
+     * {@code /subsystem=datasources/data-source=*} as JSON, base64 encoded or binary DMR. Descriptions are shared by all
+     * servers with the same product and management version. The response carries a strong entity tag, so clients can
+     * revalidate using {@code If-None-Match}.
+     */
+    @GET
+    @Path("/{serverName}/description")
+    @Produces({ MediaType.APPLICATION_JSON, ModelNodeMessageBodyWriter.DMR_ENCODED, ModelNodeMessageBodyWriter.DMR })
+    public Uni<Response> description(@PathParam("serverName") final String serverName,
+            @QueryParam("template") final String template, @Context final Request request,
+            @Context final HttpHeaders headers) {
+        WildFlyServer server = serverRepository.wildFlyServer(serverName);
+        ModelControllerClient client = serverRepository.client(serverName);
+        if (client == null || server == null) {
+            return Uni.createFrom().item(Response.status(Response.Status.NOT_FOUND).build());
+        }
+        MediaType mediaType = mediaType(headers);
+        return Uni.createFrom()
+                .completionStage(() -> descriptionRepository.description(server, client, template != null ? template : "/"))
+                .map(description -> response(description, mediaType, request))
+                .onFailure(IllegalArgumentException.class)
+                .recoverWithItem(e -> textResponse(Response.Status.BAD_REQUEST, e.getMessage()))
+                .onFailure().recoverWithItem(e -> textResponse(Response.Status.BAD_GATEWAY, e.getMessage()));
+    }
+
+    private Response response(final Description description, final MediaType mediaType, final Request request) {
+        EntityTag etag = new EntityTag(description.hash() + "-" + mediaType.getSubtype());
+        Response.ResponseBuilder builder = request.evaluatePreconditions(etag);
+        if (builder == null) {
+            StreamingOutput entity;
+            if (ModelNodeMessageBodyWriter.DMR_TYPE.isCompatible(mediaType)) {
+                entity = output -> output.write(description.dmr());
+            } else if (DMR_ENCODED_TYPE.isCompatible(mediaType)) {
+                entity = output -> output.write(Base64.getEncoder().encode(description.dmr()));
+            } else {
+                entity = output -> {
+                    PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, UTF_8));
+                    description.modelNode().writeJSONString(writer, true);
+                    writer.flush();
+                };
+            }
+            builder = Response.ok(entity, mediaType);
+        }
+        return builder.tag(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+    }
+
+    private MediaType mediaType(final HttpHeaders headers) {
+        for (MediaType acceptable : headers.getAcceptableMediaTypes()) {
+            for (MediaType mediaType : MEDIA_TYPES) {
+                if (acceptable.isCompatible(mediaType)) {
+                    return mediaType;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON_TYPE;
+    }
+
+    private Response textResponse(final Response.Status status, final String message) {
+        return Response.status(status).entity(message).type(MediaType.TEXT_PLAIN).build();
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.dmr.ModelNode;
+import org.wildfly.halos.capability.wildfly.dmr.Composite;
+import org.wildfly.halos.capability.wildfly.dmr.CompositeResult;
+import org.wildfly.halos.capability.wildfly.dmr.ModelNodeHelper;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+import org.wildfly.halos.capability.wildfly.dmr.ResourceAddress;
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
+import io.smallrye.mutiny.subscription.Cancellable;
+
+import static java.util.stream.Collectors.toMap;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.CHILD_TYPE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.DEPLOYMENT;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.INCLUDE_RUNTIME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.NAME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_ATTRIBUTE_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_CHILDREN_RESOURCES_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RECURSIVE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RESULT;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RUNNING_MODE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.SERVER_STATE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.SUSPEND_STATE;
+
+/**
+ * Refreshes the state and deployments of all WildFly servers every {@code halos.wildfly.refresh.interval} (default 30s,
+ * {@code 0s} disables the refresh), at most {@code halos.wildfly.refresh.concurrency} servers at a time. Each refresh
+ * reads the server state, suspend state, running mode and deployments in one composite. The deployments are hashed,
+ * and only parsed and compared if the hash has changed. Changes are applied to the repository and published as
+ * {@link WildFlyServerModification}s.
+ */
+@ApplicationScoped
+class ServerRefresher {
+
+    private static final Composite REFRESH = refreshComposite();
+    private static final int MODIFICATION_BUFFER = 1024;
+
+    @Inject WildFlyServerRepository serverRepository;
+    @Inject WildFlyMetrics metrics;
+    @Inject CircuitBreakers circuitBreakers;
+    @ConfigProperty(name = "halos.wildfly.refresh.interval", defaultValue = "30s") Duration interval;
+    @ConfigProperty(name = "halos.wildfly.refresh.concurrency", defaultValue = "16") int concurrency;
+    @ConfigProperty(name = "halos.wildfly.refresh.timeout", defaultValue = "5s") Duration timeout;
+
+    private final Map<String, Long> deploymentHashes; // key == WildFly server name
+    private final BroadcastProcessor<WildFlyServerModification> processor;
+    private Cancellable ticks;
+
+    ServerRefresher() {
+        deploymentHashes = new ConcurrentHashMap<>();
+        processor = BroadcastProcessor.create();
+    }
+
+    void onStart(@Observes final StartupEvent event) {
+        if (!interval.isZero()) {
+            // ticks are dropped while a refresh run is still in progress
+            ticks = Multi.createFrom().ticks().every(interval).onOverflow().drop()
+                    .onItem().transformToUniAndConcatenate(tick -> refreshAll())
+                    .subscribe().with(modifications -> Log.debugf("Refreshed WildFly servers: %d modifications",
+                            modifications));
+            Log.infof("Refresh WildFly servers every %s", interval);
+        }
+    }
+
+    void onStop(@Observes final ShutdownEvent event) {
+        if (ticks != null) {
+            ticks.cancel();
+        }
+        processor.onComplete();
+    }
+
+    /** Hot stream of modifications. Each subscriber buffers up to 1024 modifications. */
+    Multi<WildFlyServerModification> modifications() {
+        return processor.onOverflow().buffer(MODIFICATION_BUFFER);
+    }
+
+    // ------------------------------------------------------ refresh
+
+    /** Refreshes all servers and emits the number of modifications. */
+    Uni<Integer> refreshAll() {
+        Set<WildFlyServer> servers = serverRepository.wildFlyServers();
+        deploymentHashes.keySet().retainAll(servers.stream().map(WildFlyServer::name).toList());
+        return Multi.createFrom().iterable(servers)
+                .onItem().transformToUni(server -> Uni.createFrom().item(() -> refresh(server))
+                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                        .onFailure().recoverWithItem(0))
+                .merge(concurrency)
+                .collect().in(() -> new int[1], (sum, count) -> sum[0] += count)
+                .map(sum -> sum[0]);
+    }
+
+    /** Returns the number of modifications. Servers which can't be reached are skipped. */
+    int refresh(final WildFlyServer server) {
+        ModelControllerClient client = serverRepository.client(server.name());
+        if (client == null) {
+            return 0;
+        }
+        ModelNode payload;
+        try {
+            circuitBreakers.allow(server);
+            try {
+                payload = metrics.execute(WildFlyMetrics.REFRESH, server.name(), client, REFRESH, timeout);
+                circuitBreakers.success(server);
+            } catch (IOException | ManagementInterfaceException e) {
+                circuitBreakers.failure(server, e.getMessage());
+                throw e;
+            }
+        } catch (IOException | ManagementInterfaceException e) {
+            Log.debugf("Unable to refresh %s: %s", server.name(), e.getMessage());
+            return 0;
+        }
+        CompositeResult result = new CompositeResult(payload.get(RESULT));
+        if (result.isFailure() || result.size() < REFRESH.size()) {
+            Log.debugf("Unable to refresh %s: %s", server.name(), REFRESH.asCli());
+            return 0;
+        }
+
+        ServerState serverState = ModelNodeHelper.asEnumValue(result.step(0).get(RESULT), ServerState::valueOf,
+                ServerState.UNDEFINED);
+        SuspendState suspendState = ModelNodeHelper.asEnumValue(result.step(1).get(RESULT), SuspendState::valueOf,
+                SuspendState.UNDEFINED);
+        RunningMode runningMode = ModelNodeHelper.asEnumValue(result.step(2).get(RESULT), RunningMode::valueOf,
+                RunningMode.UNDEFINED);
+        ModelNode deploymentsNode = result.step(3).get(RESULT);
+        long hash = hash(deploymentsNode);
+        Long previousHash = deploymentHashes.get(server.name());
+        // the server in the repository might have been updated since this refresh was scheduled
+        WildFlyServer current = serverRepository.wildFlyServer(server.name());
+        if (current == null) {
+            return 0;
+        }
+        Set<Deployment> deployments = previousHash != null && previousHash == hash ? current.deployments()
+                : ManagementInterface.parseDeployments(deploymentsNode);
+        WildFlyServer updated = new WildFlyServer(current.managedService(), current.name(), current.productName(),
+                current.productVersion(), current.coreVersion(), current.managementVersion(), runningMode, serverState,
+                suspendState, deployments);
+
+        List<WildFlyServerModification> modifications = diff(current, updated);
+        if (modifications.isEmpty()) {
+            deploymentHashes.put(server.name(), hash);
+            return 0;
+        } else if (serverRepository.update(current, updated, modifications)) {
+            // the hash must only describe deployments which are in the repository
+            deploymentHashes.put(server.name(), hash);
+            publish(modifications);
+            return modifications.size();
+        }
+        return 0;
+    }
+
+    private synchronized void publish(final List<WildFlyServerModification> modifications) {
+        modifications.forEach(processor::onNext);
+    }
+
+    // ------------------------------------------------------ diff
+
+    /** Returns the modifications which turn {@code before} into {@code after}. */
+    static List<WildFlyServerModification> diff(final WildFlyServer before, final WildFlyServer after) {
+        String server = after.name();
+        List<WildFlyServerModification> modifications = new ArrayList<>();
+        if (before.serverState() != after.serverState()) {
+            modifications.add(WildFlyServerModification.serverState(server, after.serverState()));
+        }
+        if (before.suspendState() != after.suspendState()) {
+            modifications.add(WildFlyServerModification.suspendState(server, after.suspendState()));
+        }
+        if (before.runningMode() != after.runningMode()) {
+            modifications.add(WildFlyServerModification.runningMode(server, after.runningMode()));
+        }
+        // the same set is reused if the deployment hash didn't change
+        if (before.deployments() != after.deployments()) {
+            Map<String, Deployment> oldDeployments = byName(before.deployments());
+            Map<String, Deployment> newDeployments = byName(after.deployments());
+            newDeployments.forEach((name, deployment) -> {
+                Deployment old = oldDeployments.get(name);
+                if (old == null) {
+                    modifications.add(WildFlyServerModification.deployment(server,
+                            WildFlyServerModification.Type.DEPLOYMENT_ADDED, deployment));
+                } else if (!old.equals(deployment)) {
+                    modifications.add(WildFlyServerModification.deployment(server,
+                            WildFlyServerModification.Type.DEPLOYMENT_CHANGED, deployment));
+                }
+            });
+            oldDeployments.forEach((name, deployment) -> {
+                if (!newDeployments.containsKey(name)) {
+                    modifications.add(WildFlyServerModification.deployment(server,
+                            WildFlyServerModification.Type.DEPLOYMENT_REMOVED, deployment));
+                }
+            });
+        }
+        return modifications;
+    }
+
+    private static Map<String, Deployment> byName(final Set<Deployment> deployments) {
+        return deployments != null ? deployments.stream().collect(toMap(Deployment::name, Function.identity())) : Map.of();
+    }
+
+    /** 64 bits of the SHA-256 of the binary DMR. */
+    static long hash(final ModelNode modelNode) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (OutputStream output = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+                modelNode.writeExternal(output);
+            }
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Composite refreshComposite() {
+        Operation serverState = new Operation.Builder(ResourceAddress.root(), READ_ATTRIBUTE_OPERATION)
+                .param(NAME, SERVER_STATE).build();
+        Operation suspendState = new Operation.Builder(ResourceAddress.root(), READ_ATTRIBUTE_OPERATION)
+                .param(NAME, SUSPEND_STATE).build();
+        Operation runningMode = new Operation.Builder(ResourceAddress.root(), READ_ATTRIBUTE_OPERATION)
+                .param(NAME, RUNNING_MODE).build();
+        Operation deployments = new Operation.Builder(ResourceAddress.root(), READ_CHILDREN_RESOURCES_OPERATION)
+                .param(CHILD_TYPE, DEPLOYMENT).param(INCLUDE_RUNTIME, true).param(RECURSIVE, false).build();
+        return new Composite(serverState, suspendState, runningMode, deployments);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.wildfly.halos.api.json.GenerateJsonWriter;
+
+/** Latency statistics of the management operations executed against a server. Durations are in milliseconds. */
+@GenerateJsonWriter
+public record ServerStats(String server, List<OperationLatency> operations, List<SlowOperation> slowest) {
+
+    public record OperationLatency(String operation, long count, double min, double mean, double p50, double p90,
+            double p99, double p999, double max) {
+    }
+
+    public record SlowOperation(String operation, String cli, double duration, LocalDateTime timestamp) {
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+/**
+ * The status of one server as part of a fleet-wide status request. {@code status} is only set if the outcome is
+ * {@link Outcome#OK}, {@code error} only if the outcome is {@link Outcome#FAILED}.
+ */
+public record ServerStatus(String server, Outcome outcome, Status status, String error) {
+
+    public enum Outcome {
+        OK, FAILED, TIMEOUT, NOT_FOUND
+    }
+
+    static ServerStatus ok(final String server, final Status status) {
+        return new ServerStatus(server, Outcome.OK, status, null);
+    }
+
+    static ServerStatus failed(final String server, final String error) {
+        return new ServerStatus(server, Outcome.FAILED, null, error);
+    }
+
+    static ServerStatus timeout(final String server) {
+        return new ServerStatus(server, Outcome.TIMEOUT, null, null);
+    }
+
+    static ServerStatus notFound(final String server) {
+        return new ServerStatus(server, Outcome.NOT_FOUND, null, null);
+    }
+}
@@ -15,6 +15,9 @@
  */
 package org.wildfly.halos.capability.wildfly;
 
+import org.wildfly.halos.api.json.GenerateJsonWriter;
+
+@GenerateJsonWriter
 public record Status(OperatingSystem os, Runtime runtime, Memory heap, Memory nonHeap, Threads threads) {
 
     public record OperatingSystem(String name, String version, int processors) {
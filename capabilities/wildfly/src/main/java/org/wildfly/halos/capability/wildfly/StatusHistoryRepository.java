@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.logging.Log;
+
+/**
+ * Keeps the history of the sampled status metrics per server. The memory per server is fixed by the capacities of the
+ * ring buffers and independent of the uptime of the proxy.
+ */
+@ApplicationScoped
+class StatusHistoryRepository {
+
+    @Inject StatusStore store;
+    @ConfigProperty(name = "halos.wildfly.status.history.raw", defaultValue = "120") int rawCapacity;
+    @ConfigProperty(name = "halos.wildfly.status.history.1m", defaultValue = "60") int minuteCapacity;
+    @ConfigProperty(name = "halos.wildfly.status.history.10m", defaultValue = "144") int tenMinuteCapacity;
+
+    private final Map<String, TimeSeries[]> series; // key == WildFly server name, index == StatusMetric.ordinal()
+
+    StatusHistoryRepository() {
+        series = new ConcurrentHashMap<>();
+    }
+
+    @PostConstruct
+    void logBound() {
+        long bytes = StatusMetric.values().length * TimeSeries.bytes(rawCapacity, minuteCapacity, tenMinuteCapacity);
+        Log.infof("Status history uses %,d bytes per WildFly server", bytes);
+    }
+
+    void record(final String serverName, final Status status, final long timestamp) {
+        TimeSeries[] serverSeries = series.computeIfAbsent(serverName, name -> {
+            TimeSeries[] array = new TimeSeries[StatusMetric.values().length];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = new TimeSeries(rawCapacity, minuteCapacity, tenMinuteCapacity);
+            }
+            return array;
+        });
+        for (StatusMetric metric : StatusMetric.values()) {
+            serverSeries[metric.ordinal()].add(timestamp, metric.value.applyAsDouble(status));
+        }
+    }
+
+    /**
+     * Returns the history of the metric between {@code from} and {@code to}. If the resolution is {@code null}, the finest
+     * resolution which still covers {@code from} is used. If no resolution covers {@code from} and the {@link StatusStore}
+     * is enabled, the persisted history is returned. Returns {@code null} if there's no history for the server.
+     */
+    StatusHistory history(final String serverName, final StatusMetric metric, final TimeSeries.Resolution resolution,
+            final long from, final long to) {
+        TimeSeries[] serverSeries = series.get(serverName);
+        if (serverSeries == null) {
+            return resolution == null && store.enabled() ? store.history(serverName, metric, from, to) : null;
+        }
+        TimeSeries timeSeries = serverSeries[metric.ordinal()];
+        TimeSeries.Resolution effective = resolution != null ? resolution : resolution(timeSeries, from);
+        if (effective == null) {
+            if (store.enabled()) {
+                return store.history(serverName, metric, from, to);
+            }
+            effective = TimeSeries.Resolution.TEN_MINUTES;
+        }
+        TimeSeries.Range range = timeSeries.range(effective, from, to);
+        return new StatusHistory(serverName, metric.id, effective.id, range.timestamps(), range.min(), range.max(),
+                range.avg());
+    }
+
+    private TimeSeries.Resolution resolution(final TimeSeries timeSeries, final long from) {
+        for (TimeSeries.Resolution resolution : TimeSeries.Resolution.values()) {
+            if (timeSeries.covers(resolution, from)) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+
+    void remove(final String serverName) {
+        series.remove(serverName);
+    }
+}
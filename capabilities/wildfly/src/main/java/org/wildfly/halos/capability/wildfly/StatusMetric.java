@@ -0,0 +1,50 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.util.function.ToDoubleFunction;
+
+/** The metrics of a {@link Status} which are kept as {@link TimeSeries}. */
+enum StatusMetric {
+
+    HEAP_USED("heap.used", status -> status.heap().used()),
+
+    HEAP_COMMITTED("heap.committed", status -> status.heap().committed()),
+
+    NON_HEAP_USED("non-heap.used", status -> status.nonHeap().used()),
+
+    THREADS("threads", status -> status.threads().threads()),
+
+    DAEMON_THREADS("daemon-threads", status -> status.threads().daemons());
+
+    /** Returns the metric with the given id or {@code null} if there's no such metric. */
+    static StatusMetric parse(final String id) {
+        for (StatusMetric metric : values()) {
+            if (metric.id.equals(id)) {
+                return metric;
+            }
+        }
+        return null;
+    }
+
+    final String id;
+    final ToDoubleFunction<Status> value;
+
+    StatusMetric(final String id, final ToDoubleFunction<Status> value) {
+        this.id = id;
+        this.value = value;
+    }
+}
@@ -16,9 +16,21 @@
 package org.wildfly.halos.capability.wildfly;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.as.controller.client.ModelControllerClient;
 import org.jboss.dmr.ModelNode;
 import org.wildfly.halos.capability.wildfly.dmr.Composite;
@@ -35,31 +47,100 @@ import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants
 @ApplicationScoped
 class StatusRepository {
 
-    Status status(ModelControllerClient client, WildFlyServer server) {
-        ResourceAddress osAddress = ResourceAddress.from("core-service=platform-mbean").add("type", "operating-system");
-        ResourceAddress runtimeAddress = ResourceAddress.from("core-service=platform-mbean").add("type", "runtime");
-        ResourceAddress memoryAddress = ResourceAddress.from("core-service=platform-mbean").add("type", "memory");
-        ResourceAddress threadingAddress = ResourceAddress.from("core-service=platform-mbean").add("type", "threading");
+    private static final Composite STATUS = statusComposite();
+    private static final long MB = 1024 * 1024;
 
-        Operation osOp = new Operation.Builder(osAddress, READ_RESOURCE_OPERATION).param(ATTRIBUTES_ONLY, true)
-                .param(INCLUDE_RUNTIME, true).build();
-        Operation runtimeOp = new Operation.Builder(runtimeAddress, READ_RESOURCE_OPERATION).param(ATTRIBUTES_ONLY, true)
-                .param(INCLUDE_RUNTIME, true).build();
-        Operation memoryOp = new Operation.Builder(memoryAddress, READ_RESOURCE_OPERATION).param(ATTRIBUTES_ONLY, true)
-                .param(INCLUDE_RUNTIME, true).build();
-        Operation threadingOp = new Operation.Builder(threadingAddress, READ_RESOURCE_OPERATION).param(ATTRIBUTES_ONLY, true)
-                .param(INCLUDE_RUNTIME, true).build();
-        Composite composite = new Composite(osOp, runtimeOp, memoryOp, threadingOp);
+    @Inject WildFlyMetrics metrics;
+    @Inject StatusHistoryRepository history;
+    @Inject CircuitBreakers circuitBreakers;
+    @ConfigProperty(name = "halos.wildfly.status.ttl", defaultValue = "2s") Duration ttl;
+    @ConfigProperty(name = "halos.wildfly.status.timeout", defaultValue = "5s") Duration timeout;
+
+    private final Map<String, Sample> samples; // key == WildFly server name
+    private final Map<String, CompletableFuture<Sample>> inFlight; // key == WildFly server name
+    private final Map<String, Long> requested; // key == WildFly server name, value == last request in millis
+    private final AtomicLong version;
+
+    StatusRepository() {
+        samples = new ConcurrentHashMap<>();
+        inFlight = new ConcurrentHashMap<>();
+        requested = new ConcurrentHashMap<>();
+        version = new AtomicLong();
+    }
 
+    /**
+     * Returns the status of the server. The status is served from the last sample if it is younger than
+     * {@code halos.wildfly.status.ttl}. Otherwise, it's read using {@link #refresh(ModelControllerClient, WildFlyServer)}.
+     */
+    Status status(final ModelControllerClient client, final WildFlyServer server) {
+        long now = System.currentTimeMillis();
+        requested.put(server.name(), now);
+        Sample sample = samples.get(server.name());
+        if (sample != null && now - sample.timestamp() < ttl.toMillis()) {
+            return sample.status();
+        }
+        return refresh(client, server);
+    }
+
+    /** Reads the status from the server. See {@link #sample(ModelControllerClient, WildFlyServer)}. */
+    Status refresh(final ModelControllerClient client, final WildFlyServer server) {
+        return sample(client, server).status();
+    }
+
+    /**
+     * Reads the status from the server. Concurrent calls for the same server share one management operation: The first
+     * caller executes the operation, the others wait for its result, at most {@code halos.wildfly.status.timeout}. Fails
+     * fast if the circuit of the server is open.
+     */
+    Sample sample(final ModelControllerClient client, final WildFlyServer server) {
+        CompletableFuture<Sample> future = new CompletableFuture<>();
+        CompletableFuture<Sample> running = inFlight.putIfAbsent(server.name(), future);
+        if (running != null) {
+            try {
+                // wait on a copy, so that a timeout doesn't complete the future of the leader
+                return running.copy().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ManagementInterfaceException mie) {
+                    throw mie;
+                } else if (e.getCause() instanceof TimeoutException) {
+                    throw new ManagementInterfaceException(String.format("Reading status of %s timed out after %d ms",
+                            server.name(), timeout.toMillis()));
+                }
+                throw new ManagementInterfaceException(
+                        String.format("Reading status of %s failed: %s", server.name(), e.getCause().getMessage()));
+            }
+        }
         try {
-            ModelNode payload = client.execute(composite);
+            circuitBreakers.allow(server);
+            Sample sample;
+            try {
+                sample = read(client, server);
+                circuitBreakers.success(server);
+            } catch (RuntimeException e) {
+                // every outcome must be reported, otherwise a half-open circuit would wait for its probe forever
+                circuitBreakers.failure(server, e.getMessage());
+                throw e;
+            }
+            future.complete(sample);
+            return sample;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(server.name(), future);
+        }
+    }
+
+    private Sample read(final ModelControllerClient client, final WildFlyServer server) {
+        try {
+            ModelNode payload = metrics.execute(WildFlyMetrics.STATUS, server.name(), client, STATUS, timeout);
             CompositeResult compositeResult = new CompositeResult(payload.get(RESULT));
             if (compositeResult.isFailure()) {
                 throw new ManagementInterfaceException(
-                        String.format("Operation %s failed for %s", composite.asCli(), server.name()));
-            } else if (composite.isEmpty()) {
+                        String.format("Operation %s failed for %s", STATUS.asCli(), server.name()));
+            } else if (STATUS.isEmpty()) {
                 throw new ManagementInterfaceException(
-                        String.format("Operation %s for %s returned an empty result!" + composite.asCli(), server.name()));
+                        String.format("Operation %s for %s returned an empty result!" + STATUS.asCli(), server.name()));
             } else {
                 // os
                 ModelNode osNode = compositeResult.step(0).get(RESULT);
@@ -77,17 +158,10 @@ class StatusRepository {
 
                 // memory
                 ModelNode memoryNode = compositeResult.step(2).get(RESULT);
-                ModelNode heapMemoryNode = memoryNode.get("heap-memory-usage");
-                long usedHeap = heapMemoryNode.get("used").asLong() / 1024 / 1024;
-                long committedHeap = heapMemoryNode.get("committed").asLong() / 1024 / 1024;
-                long maxHeap = heapMemoryNode.get("max").asLong() / 1024 / 1024;
-                Status.Memory heap = new Status.Memory(usedHeap, committedHeap, maxHeap);
-
-                ModelNode nonHeapMemoryNode = memoryNode.get("non-heap-memory-usage");
-                long usedNonHeap = nonHeapMemoryNode.get("used").asLong() / 1024 / 1024;
-                long committedNonHeap = nonHeapMemoryNode.get("committed").asLong() / 1024 / 1024;
-                long maxNonHeap = nonHeapMemoryNode.get("max").asLong() / 1024 / 1024;
-                Status.Memory nonHeap = new Status.Memory(usedNonHeap, committedNonHeap, maxNonHeap);
+                Status.Memory heapBytes = memory(memoryNode.get("heap-memory-usage"));
+                Status.Memory nonHeapBytes = memory(memoryNode.get("non-heap-memory-usage"));
+                Status.Memory heap = megabytes(heapBytes);
+                Status.Memory nonHeap = megabytes(nonHeapBytes);
 
                 // threads
                 ModelNode threadsNode = compositeResult.step(3).get(RESULT);
@@ -95,11 +169,79 @@ class StatusRepository {
                 long daemonCount = threadsNode.get("daemon-thread-count").asLong();
                 Status.Threads threads = new Status.Threads(threadCount, daemonCount);
 
-                return new Status(os, runtime, heap, nonHeap, threads);
+                Status status = new Status(os, runtime, heap, nonHeap, threads);
+                Sample sample = new Sample(status, heapBytes, nonHeapBytes, System.currentTimeMillis());
+                samples.put(server.name(), sample);
+                version.incrementAndGet();
+                return sample;
             }
         } catch (IOException e) {
             throw new ManagementInterfaceException(
-                    String.format("Operation %s failed for %s: %s", composite.asCli(), server.name(), e.getMessage()));
+                    String.format("Operation %s failed for %s: %s", STATUS.asCli(), server.name(), e.getMessage()));
         }
     }
+
+    private static Status.Memory memory(final ModelNode memoryNode) {
+        return new Status.Memory(memoryNode.get("used").asLong(), memoryNode.get("committed").asLong(),
+                memoryNode.get("max").asLong());
+    }
+
+    private static Status.Memory megabytes(final Status.Memory bytes) {
+        return new Status.Memory(bytes.used() / MB, bytes.committed() / MB, bytes.max() / MB);
+    }
+
+    /** Returns the last sampled status or {@code null} if the status of the server has not been read yet. */
+    Sample lastSample(final String serverName) {
+        return samples.get(serverName);
+    }
+
+    /** Returns the servers whose status was requested at or after the given time in milliseconds since the epoch. */
+    Set<String> requestedSince(final long timestamp) {
+        Set<String> serverNames = new HashSet<>();
+        requested.forEach((serverName, lastRequest) -> {
+            if (lastRequest >= timestamp) {
+                serverNames.add(serverName);
+            }
+        });
+        return serverNames;
+    }
+
+    void remove(final String serverName) {
+        requested.remove(serverName);
+        history.remove(serverName);
+        if (samples.remove(serverName) != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    private static Composite statusComposite() {
+        ResourceAddress osAddress = ResourceAddress.from("core-service=platform-mbean").add("type", "operating-system");
+        ResourceAddress runtimeAddress = ResourceAddress.from("core-service=platform-mbean").add("type", "runtime");
+        ResourceAddress memoryAddress = ResourceAddress.from("core-service=platform-mbean").add("type", "memory");
+        ResourceAddress threadingAddress = ResourceAddress.from("core-service=platform-mbean").add("type", "threading");
+
+        Operation osOp = new Operation.Builder(osAddress, READ_RESOURCE_OPERATION).param(ATTRIBUTES_ONLY, true)
+                .param(INCLUDE_RUNTIME, true).build();
+        Operation runtimeOp = new Operation.Builder(runtimeAddress, READ_RESOURCE_OPERATION).param(ATTRIBUTES_ONLY, true)
+                .param(INCLUDE_RUNTIME, true).build();
+        Operation memoryOp = new Operation.Builder(memoryAddress, READ_RESOURCE_OPERATION).param(ATTRIBUTES_ONLY, true)
+                .param(INCLUDE_RUNTIME, true).build();
+        Operation threadingOp = new Operation.Builder(threadingAddress, READ_RESOURCE_OPERATION).param(ATTRIBUTES_ONLY, true)
+                .param(INCLUDE_RUNTIME, true).build();
+        // the composite is shared by all reads
+        Composite composite = new Composite(osOp, runtimeOp, memoryOp, threadingOp);
+        composite.protect();
+        return composite;
+    }
+
+    /**
+     * A status together with the time it was read in milliseconds since the epoch. The memory of the status is in MB, the
+     * memory of the sample is kept in bytes.
+     */
+    record Sample(Status status, Status.Memory heapBytes, Status.Memory nonHeapBytes, long timestamp) {
+    }
 }
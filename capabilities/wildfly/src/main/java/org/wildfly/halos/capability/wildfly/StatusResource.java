@@ -17,20 +17,32 @@ package org.wildfly.halos.capability.wildfly;
 
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
 import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.wildfly.halos.api.Constants;
+
+import io.smallrye.mutiny.Multi;
 
 @Path("/api/v1/wildfly/servers")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({ MediaType.APPLICATION_JSON, Constants.APPLICATION_CBOR })
 public class StatusResource {
 
+    private static final int DEFAULT_INTERVAL = 5;
+    private static final long DEFAULT_RANGE = 3_600_000; // one hour
+
     @Inject WildFlyServerRepository serverRepository;
     @Inject StatusRepository statusRepository;
+    @Inject StatusStreams statusStreams;
+    @Inject StatusHistoryRepository historyRepository;
+    @Inject StatusStore statusStore;
 
     @GET
     @Path("/{serverName}/status")
@@ -44,4 +56,64 @@ public class StatusResource {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
     }
+
+    /** Streams the status of the server every {@code interval} seconds (default 5), rounded up to the next sample tier. */
+    @GET
+    @Path("/{serverName}/status/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<Status> statusStream(@PathParam("serverName") final String serverName,
+            @QueryParam("interval") final Integer interval) {
+        if (serverRepository.wildFlyServer(serverName) == null) {
+            throw new NotFoundException();
+        }
+        return statusStreams.stream(serverName, interval != null ? interval : DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Returns the history of a status metric between {@code from} and {@code to} (milliseconds since the epoch, default is
+     * the last hour). If no resolution ({@code raw}, {@code 1m}, {@code 10m}, {@code store}) is given, the finest
+     * resolution which covers the range is used.
+     */
+    @GET
+    @Path("/{serverName}/status/history")
+    public Response statusHistory(@PathParam("serverName") final String serverName,
+            @QueryParam("metric") final String metric, @QueryParam("resolution") final String resolution,
+            @QueryParam("from") final Long from, @QueryParam("to") final Long to) {
+        StatusMetric statusMetric = StatusMetric.parse(metric);
+        boolean stored = StatusStore.RESOLUTION.equals(resolution);
+        TimeSeries.Resolution timeSeriesResolution = resolution != null ? TimeSeries.Resolution.parse(resolution) : null;
+        if (statusMetric == null) {
+            return badRequest("Unknown metric: " + metric);
+        } else if (resolution != null && timeSeriesResolution == null && !(stored && statusStore.enabled())) {
+            return badRequest("Unknown resolution: " + resolution);
+        }
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DEFAULT_RANGE;
+        StatusHistory history = stored
+                ? statusStore.history(serverName, statusMetric, start, end)
+                : historyRepository.history(serverName, statusMetric, timeSeriesResolution, start, end);
+        if (history != null) {
+            return Response.ok(history).build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+    }
+
+    /** Returns the persisted connection events of the server (requires the {@link StatusStore}). */
+    @GET
+    @Path("/{serverName}/connections")
+    public Response connections(@PathParam("serverName") final String serverName, @QueryParam("from") final Long from,
+            @QueryParam("to") final Long to) {
+        if (!statusStore.enabled()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DEFAULT_RANGE;
+        return Response.ok(statusStore.connections(serverName, start, end)).build();
+    }
+
+    private Response badRequest(final String message) {
+        return Response.status(Response.Status.BAD_REQUEST).entity(message).type(MediaType.TEXT_PLAIN).build();
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.as.controller.client.ModelControllerClient;
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Samples the status of WildFly servers in the background:
+ * <ul>
+ * <li>All connected servers are sampled every {@code halos.wildfly.status.fleet-interval} (default 15s, {@code 0s}
+ * disables fleet sampling). The fleet metrics are taken from these samples, and only these samples are recorded in the
+ * status history and the status store, so the history has the same interval for all servers.</li>
+ * <li>Hot servers are sampled every {@code halos.wildfly.status.sample-interval}, so that status requests are served from
+ * the cache. A server is hot if its status was requested within {@code halos.wildfly.status.hot}. Hot sampling is
+ * disabled unless the interval is set.</li>
+ * </ul>
+ * At most {@code halos.wildfly.status.concurrency} servers are sampled at a time per run.
+ */
+@ApplicationScoped
+class StatusSampler {
+
+    @Inject WildFlyServerRepository serverRepository;
+    @Inject StatusRepository statusRepository;
+    @Inject StatusHistoryRepository history;
+    @Inject StatusStore store;
+    @ConfigProperty(name = "halos.wildfly.status.fleet-interval", defaultValue = "15s") Duration fleetInterval;
+    @ConfigProperty(name = "halos.wildfly.status.sample-interval") Optional<Duration> interval;
+    @ConfigProperty(name = "halos.wildfly.status.hot", defaultValue = "60s") Duration hot;
+    @ConfigProperty(name = "halos.wildfly.status.concurrency", defaultValue = "16") int concurrency;
+
+    private Cancellable fleetTicks;
+    private Cancellable ticks;
+
+    void onStart(@Observes final StartupEvent event) {
+        if (!fleetInterval.isZero()) {
+            // ticks are dropped while a sample run is still in progress
+            fleetTicks = Multi.createFrom().ticks().every(fleetInterval).onOverflow().drop()
+                    .onItem().transformToUniAndConcatenate(tick -> sample(serverRepository.wildFlyServers().stream()
+                            .map(WildFlyServer::name)
+                            .collect(toSet()), true))
+                    // a failed run must not end the sampling
+                    .onFailure().invoke(e -> Log.errorf("Sampling status of WildFly servers failed: %s", e.getMessage()))
+                    .onFailure().retry().indefinitely()
+                    .subscribe().with(count -> Log.debugf("Sampled status of %d WildFly servers", count));
+            Log.infof("Sample status of all WildFly servers every %s", fleetInterval);
+        }
+        interval.ifPresent(every -> {
+            // ticks are dropped while a sample run is still in progress
+            ticks = Multi.createFrom().ticks().every(every).onOverflow().drop()
+                    .onItem().transformToUniAndConcatenate(tick -> sample(
+                            statusRepository.requestedSince(System.currentTimeMillis() - hot.toMillis()), false))
+                    .onFailure().invoke(e -> Log.errorf("Sampling status of hot WildFly servers failed: %s", e.getMessage()))
+                    .onFailure().retry().indefinitely()
+                    .subscribe().with(count -> Log.debugf("Sampled status of %d hot WildFly servers", count));
+            Log.infof("Sample status of hot WildFly servers every %s", every);
+        });
+    }
+
+    void onStop(@Observes final ShutdownEvent event) {
+        if (fleetTicks != null) {
+            fleetTicks.cancel();
+        }
+        if (ticks != null) {
+            ticks.cancel();
+        }
+    }
+
+    /**
+     * Samples the status of the servers and emits the number of servers which have been sampled. If {@code record} is
+     * set, the samples are recorded in the history.
+     */
+    Uni<Integer> sample(final Set<String> serverNames, final boolean record) {
+        return Multi.createFrom().iterable(serverNames)
+                .onItem().transformToUni(serverName -> Uni.createFrom().item(() -> sample(serverName, record))
+                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
+                .merge(concurrency)
+                .collect().in(() -> new int[1], (sum, sampled) -> sum[0] += sampled ? 1 : 0)
+                .map(sum -> sum[0]);
+    }
+
+    private boolean sample(final String serverName, final boolean record) {
+        WildFlyServer server = serverRepository.wildFlyServer(serverName);
+        ModelControllerClient client = serverRepository.client(serverName);
+        if (server != null && client != null) {
+            try {
+                StatusRepository.Sample sample = statusRepository.sample(client, server);
+                // don't bring back the history of a server which disconnected while it was sampled
+                if (record && serverRepository.client(serverName) != null) {
+                    history.record(serverName, sample.status(), sample.timestamp());
+                    store.status(serverName, sample.timestamp(), sample.status());
+                }
+                return true;
+            } catch (ManagementInterfaceException e) {
+                Log.debugf("Unable to sample status of %s: %s", serverName, e.getMessage());
+            } catch (RuntimeException e) {
+                // one server must not fail the run of the others
+                Log.warnf("Unable to sample status of %s: %s", serverName, e.getMessage());
+            }
+        }
+        return false;
+    }
+}
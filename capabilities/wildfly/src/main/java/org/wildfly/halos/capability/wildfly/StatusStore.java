@@ -0,0 +1,537 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.logging.Log;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Persists the status metrics and connection events of WildFly servers in append-only, memory-mapped segment files, so that
+ * the history survives restarts of the proxy. The store is disabled unless {@code halos.wildfly.status.store.path} is set
+ * (e.g. to a persistent volume).
+ * <p>
+ * Each server has its own directory with segments named {@code <epoch day>-<sequence>.seg}. Other files are ignored. A
+ * segment is allocated in full when it's created and holds a header and up to
+ * {@code halos.wildfly.status.store.segment-records} fixed-size records in chronological order:
+ *
+ * <pre>
+ * 0  long   timestamp (millis since the epoch, 0 == free slot)
+ * 8  int    kind (ordinal of {@link Kind})
+ * 12 int    CRC32C of all other bytes of the record
+ * 16 double value of each {@link StatusMetric} (0 for connection events)
+ * </pre>
+ *
+ * Reads work directly on the mapped files using binary search on the timestamps. On startup, the write position of a
+ * segment is recovered by scanning up to the first free slot or the first record with an invalid checksum (a torn write),
+ * which is overwritten by the next append. Segments older than {@code halos.wildfly.status.store.retention-days} are
+ * deleted when a new day starts.
+ */
+@ApplicationScoped
+class StatusStore {
+
+    enum Kind {
+        STATUS, CONNECTED, DISCONNECTED
+    }
+
+    static final String RESOLUTION = "store";
+    static final int RECORD_SIZE = 64;
+    private static final int MAGIC = 0x48414c53; // HALS
+    private static final int FORMAT = 1;
+    private static final String SUFFIX = ".seg";
+    private static final Pattern SEGMENT = Pattern.compile("\\d{1,18}-\\d{1,9}\\" + SUFFIX);
+    private static final int ZEROS = 64 * 1024;
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    // offsets within a record
+    private static final int TIMESTAMP = 0;
+    private static final int KIND = 8;
+    private static final int CHECKSUM = 12;
+    private static final int VALUES = 16;
+
+    @ConfigProperty(name = "halos.wildfly.status.store.path") Optional<String> path;
+    @ConfigProperty(name = "halos.wildfly.status.store.segment-records", defaultValue = "86400") int configuredRecords;
+    @ConfigProperty(name = "halos.wildfly.status.store.retention-days", defaultValue = "7") int configuredRetention;
+
+    private final Map<String, Writer> writers; // key == WildFly server name
+    private Path directory; // null == disabled
+    private int segmentRecords;
+    private int retentionDays;
+
+    StatusStore() {
+        writers = new ConcurrentHashMap<>();
+    }
+
+    StatusStore(final Path directory, final int segmentRecords, final int retentionDays) {
+        this();
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    void init() {
+        path.ifPresent(p -> {
+            directory = Path.of(p);
+            segmentRecords = configuredRecords;
+            retentionDays = configuredRetention;
+            long today = Math.floorDiv(System.currentTimeMillis(), MILLIS_PER_DAY);
+            try {
+                Files.createDirectories(directory);
+                try (DirectoryStream<Path> serverDirectories = Files.newDirectoryStream(directory, Files::isDirectory)) {
+                    serverDirectories.forEach(serverDirectory -> deleteExpired(serverDirectory, today));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Log.infof("Persist status history in %s for %d days", directory, retentionDays);
+        });
+    }
+
+    @PreDestroy
+    void close() {
+        writers.keySet().forEach(this::retire);
+    }
+
+    boolean enabled() {
+        return directory != null;
+    }
+
+    void status(final String serverName, final long timestamp, final Status status) {
+        if (enabled()) {
+            append(serverName, timestamp, Kind.STATUS, status);
+        }
+    }
+
+    /**
+     * Records a connection event. When the server disconnects, its segment is unmapped and closed. It's opened again by
+     * the next record of the server.
+     */
+    void connection(final String serverName, final long timestamp, final boolean connected) {
+        if (enabled()) {
+            append(serverName, timestamp, connected ? Kind.CONNECTED : Kind.DISCONNECTED, null);
+            if (!connected) {
+                retire(serverName);
+            }
+        }
+    }
+
+    /** Whether a segment of the server is open for appending. */
+    boolean open(final String serverName) {
+        return writers.containsKey(serverName);
+    }
+
+    /** Returns the persisted values of the metric between {@code from} and {@code to} (inclusive). */
+    StatusHistory history(final String serverName, final StatusMetric metric, final long from, final long to) {
+        LongArray timestamps = new LongArray();
+        DoubleArray values = new DoubleArray();
+        int offset = VALUES + metric.ordinal() * Double.BYTES;
+        read(serverName, from, to, (buffer, position, kind) -> {
+            if (kind == Kind.STATUS.ordinal()) {
+                timestamps.add(buffer.getLong(position + TIMESTAMP));
+                values.add(buffer.getDouble(position + offset));
+            }
+        });
+        double[] array = values.toArray();
+        return new StatusHistory(serverName, metric.id, RESOLUTION, timestamps.toArray(), array, array, array);
+    }
+
+    /** Returns the connection events between {@code from} and {@code to} (inclusive). */
+    ConnectionHistory connections(final String serverName, final long from, final long to) {
+        LongArray timestamps = new LongArray();
+        List<String> events = new ArrayList<>();
+        read(serverName, from, to, (buffer, position, kind) -> {
+            if (kind != Kind.STATUS.ordinal()) {
+                timestamps.add(buffer.getLong(position + TIMESTAMP));
+                events.add(Kind.values()[kind].name());
+            }
+        });
+        return new ConnectionHistory(serverName, timestamps.toArray(), events.toArray(new String[0]));
+    }
+
+    // ------------------------------------------------------ read
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+
+        void accept(ByteBuffer buffer, int position, int kind);
+    }
+
+    private void read(final String serverName, final long from, final long to, final RecordConsumer consumer) {
+        if (!enabled()) {
+            return;
+        }
+        Writer writer = writers.get(serverName);
+        long fromDay = Math.floorDiv(from, MILLIS_PER_DAY);
+        long toDay = Math.floorDiv(to, MILLIS_PER_DAY);
+        for (Path segment : segments(serverDirectory(serverName))) {
+            long day = day(segment);
+            if (day < fromDay || day > toDay) {
+                continue;
+            }
+            ByteBuffer buffer = writer != null ? writer.readBuffer(segment) : null;
+            if (buffer == null) {
+                buffer = mapReadOnly(segment);
+            }
+            if (buffer == null || buffer.getInt(0) != MAGIC) {
+                continue;
+            }
+            int slots = buffer.capacity() / RECORD_SIZE;
+            for (int slot = lowerBound(buffer, slots, from); slot < slots; slot++) {
+                int position = slot * RECORD_SIZE;
+                long timestamp = buffer.getLong(position + TIMESTAMP);
+                if (timestamp == 0 || timestamp > to) {
+                    break;
+                }
+                if (buffer.getInt(position + CHECKSUM) == checksum(buffer, position)) {
+                    consumer.accept(buffer, position, buffer.getInt(position + KIND));
+                }
+            }
+        }
+    }
+
+    /** Returns the first slot with a timestamp >= from. Free slots (timestamp 0) are at the end and compare as greater. */
+    private static int lowerBound(final ByteBuffer buffer, final int slots, final long from) {
+        int low = 1; // slot 0 is the header
+        int high = slots;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long timestamp = buffer.getLong(mid * RECORD_SIZE + TIMESTAMP);
+            if (timestamp != 0 && timestamp < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static ByteBuffer mapReadOnly(final Path segment) {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            Log.warnf("Unable to read segment %s: %s", segment, e.getMessage());
+            return null;
+        }
+    }
+
+    // ------------------------------------------------------ write
+
+    private void append(final String serverName, final long timestamp, final Kind kind, final Status status) {
+        // a writer retired concurrently is replaced by a new one
+        while (!writers.computeIfAbsent(serverName, name -> new Writer(serverDirectory(name)))
+                .append(timestamp, kind, status)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Closes the writer of the server and removes it. Retiring within the lock of the map ensures that a new writer for
+     * the server doesn't open the segment before the old one has been closed.
+     */
+    private void retire(final String serverName) {
+        writers.computeIfPresent(serverName, (name, writer) -> {
+            writer.retire();
+            return null;
+        });
+    }
+
+    /** Appends the records of one server. Timestamps are kept in order, so that segments can be searched binary. */
+    private final class Writer {
+
+        private final Path serverDirectory;
+        private Path segment;
+        private FileChannel channel;
+        private MappedByteBuffer buffer;
+        private long day;
+        private int sequence;
+        private int slot; // next free slot
+        private long last; // timestamp of the last record
+        private boolean retired;
+
+        private Writer(final Path serverDirectory) {
+            this.serverDirectory = serverDirectory;
+            this.day = Long.MIN_VALUE;
+        }
+
+        /** Returns false if the writer has been retired. The record must then be appended to a new writer. */
+        synchronized boolean append(final long timestamp, final Kind kind, final Status status) {
+            if (retired) {
+                return false;
+            }
+            long ts = Math.max(timestamp, last);
+            try {
+                long recordDay = Math.floorDiv(ts, MILLIS_PER_DAY);
+                if (buffer == null || recordDay != day) {
+                    open(recordDay);
+                    deleteExpired(serverDirectory, recordDay);
+                }
+                if (slot > segmentRecords) {
+                    roll(day, sequence + 1);
+                }
+            } catch (IOException e) {
+                Log.errorf("Unable to open segment for %s: %s", serverDirectory.getFileName(), e.getMessage());
+                return true;
+            }
+
+            int position = slot * RECORD_SIZE;
+            try {
+                buffer.putInt(position + KIND, kind.ordinal());
+                for (StatusMetric metric : StatusMetric.values()) {
+                    buffer.putDouble(position + VALUES + metric.ordinal() * Double.BYTES,
+                            status != null ? metric.value.applyAsDouble(status) : 0);
+                }
+                buffer.putLong(position + TIMESTAMP, ts);
+                buffer.putInt(position + CHECKSUM, checksum(buffer, position));
+            } catch (InternalError e) {
+                // the mapped file became inaccessible (e.g. truncated or its volume failed): drop the record and open the
+                // segment again with the next record
+                Log.errorf("Unable to write segment %s: %s", segment, e.getMessage());
+                buffer = null;
+                close();
+                return true;
+            }
+            slot++;
+            last = ts;
+            return true;
+        }
+
+        /** Returns a read-only view of the mapped buffer if the segment is the one being written. */
+        synchronized ByteBuffer readBuffer(final Path path) {
+            return buffer != null && path.equals(segment) ? buffer.asReadOnlyBuffer() : null;
+        }
+
+        synchronized void retire() {
+            retired = true;
+            close();
+        }
+
+        synchronized void close() {
+            if (buffer != null) {
+                buffer.force();
+                buffer = null;
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    Log.debugf("Unable to close segment %s: %s", segment, e.getMessage());
+                }
+                channel = null;
+            }
+        }
+
+        /** Opens the last segment of the day for appending or creates the first one. */
+        private void open(final long newDay) throws IOException {
+            Files.createDirectories(serverDirectory);
+            int lastSequence = -1;
+            for (Path existing : segments(serverDirectory)) {
+                if (day(existing) == newDay) {
+                    lastSequence = Math.max(lastSequence, sequence(existing));
+                }
+            }
+            roll(newDay, Math.max(lastSequence, 0));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT) {
+                // unknown content, don't touch it
+                Log.warnf("Skip segment %s with unknown format", segment);
+                roll(newDay, sequence + 1);
+            }
+            recover();
+        }
+
+        private void roll(final long newDay, final int newSequence) throws IOException {
+            close();
+            day = newDay;
+            sequence = newSequence;
+            segment = serverDirectory.resolve(day + "-" + sequence + SUFFIX);
+            channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long size = (long) (segmentRecords + 1) * RECORD_SIZE;
+            preallocate(size);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            slot = 1;
+            if (buffer.getInt(0) == 0) {
+                writeHeader();
+            }
+        }
+
+        /**
+         * Writes zeros up to the size of the segment. Mapping beyond the end of the file would create a sparse file, whose
+         * blocks are only allocated when the pages are written. On a full volume that fails with SIGBUS, which crashes
+         * the JVM, instead of an {@link IOException} here.
+         */
+        private void preallocate(final long size) throws IOException {
+            ByteBuffer zeros = ByteBuffer.allocate(ZEROS);
+            long position = channel.size();
+            while (position < size) {
+                zeros.clear().limit((int) Math.min(ZEROS, size - position));
+                position += channel.write(zeros, position);
+            }
+        }
+
+        private void writeHeader() {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(Integer.BYTES, FORMAT);
+            buffer.putLong(2 * Integer.BYTES, day);
+        }
+
+        /** Positions the writer after the last valid record. */
+        private void recover() {
+            while (slot <= segmentRecords) {
+                int position = slot * RECORD_SIZE;
+                long timestamp = buffer.getLong(position + TIMESTAMP);
+                if (timestamp == 0 || buffer.getInt(position + CHECKSUM) != checksum(buffer, position)) {
+                    break;
+                }
+                last = timestamp;
+                slot++;
+            }
+            if (slot > 1) {
+                Log.debugf("Recovered %d records of %s", slot - 1, segment);
+            }
+        }
+    }
+
+    // ------------------------------------------------------ helpers
+
+    private void deleteExpired(final Path serverDirectory, final long today) {
+        for (Path existing : segments(serverDirectory)) {
+            if (day(existing) <= today - retentionDays) {
+                try {
+                    Files.deleteIfExists(existing);
+                    Log.debugf("Deleted expired segment %s", existing);
+                } catch (IOException e) {
+                    Log.warnf("Unable to delete expired segment %s: %s", existing, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Path serverDirectory(final String serverName) {
+        return directory.resolve(directoryName(serverName));
+    }
+
+    /**
+     * Server names are used as directory names. Anything but ASCII letters, digits, {@code _} and {@code -} is percent
+     * encoded (UTF-8), so the name is safe in a path and different names never share a directory.
+     */
+    static String directoryName(final String serverName) {
+        StringBuilder builder = new StringBuilder(serverName.length());
+        for (byte b : serverName.getBytes(UTF_8)) {
+            if ((b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b == '_' || b == '-') {
+                builder.append((char) b);
+            } else {
+                builder.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static List<Path> segments(final Path serverDirectory) {
+        List<Path> segments = new ArrayList<>();
+        if (Files.isDirectory(serverDirectory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(serverDirectory, "*-*" + SUFFIX)) {
+                stream.forEach(segment -> {
+                    // skip stray files, e.g. copies or backups with a similar name
+                    if (SEGMENT.matcher(segment.getFileName().toString()).matches()) {
+                        segments.add(segment);
+                    }
+                });
+            } catch (IOException e) {
+                Log.warnf("Unable to list segments in %s: %s", serverDirectory, e.getMessage());
+            }
+        }
+        segments.sort(Comparator.comparingLong(StatusStore::day).thenComparingInt(StatusStore::sequence));
+        return segments;
+    }
+
+    private static long day(final Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('-')));
+    }
+
+    private static int sequence(final Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(name.indexOf('-') + 1, name.length() - SUFFIX.length()));
+    }
+
+    private static int checksum(final ByteBuffer buffer, final int position) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position, CHECKSUM));
+        crc.update(buffer.slice(position + VALUES, RECORD_SIZE - VALUES));
+        return (int) crc.getValue();
+    }
+
+    private static final class LongArray {
+
+        private long[] values = new long[64];
+        private int size;
+
+        void add(final long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class DoubleArray {
+
+        private double[] values = new double[64];
+        private int size;
+
+        void add(final double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
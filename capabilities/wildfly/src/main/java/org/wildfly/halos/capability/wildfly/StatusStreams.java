@@ -0,0 +1,152 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+
+/**
+ * Live status streams of WildFly servers. There's at most one sampler per server and tier, shared by all subscribers. A
+ * sampler starts with the first subscriber and is cancelled after the last subscriber has left. Requested intervals are
+ * rounded up to the next tier, so that subscribers with similar intervals share a sampler.
+ * <p>
+ * Subscribers are counted under the lock of the sampler map. A sampler is removed from the map together with its last
+ * subscriber, and it's only handed out while it's in the map. So a sampler whose key is gone can't be connected again,
+ * and there's never more than one active sampler per server and tier.
+ */
+@ApplicationScoped
+class StatusStreams {
+
+    static final int[] TIERS = { 1, 2, 5, 10, 30, 60 }; // seconds
+
+    @Inject WildFlyServerRepository serverRepository;
+    @Inject StatusRepository statusRepository;
+
+    private final Map<String, Sampler> samplers; // key == <server name>|<tier>
+
+    StatusStreams() {
+        samplers = new ConcurrentHashMap<>();
+    }
+
+    /** Rounds the interval in seconds up to the next tier. Intervals above the last tier use the last tier. */
+    static int tier(final int interval) {
+        for (int tier : TIERS) {
+            if (interval <= tier) {
+                return tier;
+            }
+        }
+        return TIERS[TIERS.length - 1];
+    }
+
+    /**
+     * Returns the status stream of the server. New subscribers get the last sample (if any) right away. The stream
+     * completes when the server is removed.
+     */
+    Multi<Status> stream(final String serverName, final int interval) {
+        int tier = tier(interval);
+        String key = serverName + "|" + tier;
+        Multi<Status> shared = Multi.createFrom().deferred(() -> {
+            Sampler sampler = samplers.compute(key, (k, current) -> {
+                Sampler s = current != null ? current : new Sampler(sampler(key, serverName, tier));
+                s.subscribers++;
+                return s;
+            });
+            return sampler.multi.onTermination().invoke(() -> release(key, sampler));
+        });
+        StatusRepository.Sample sample = statusRepository.lastSample(serverName);
+        if (sample != null) {
+            return Multi.createBy().concatenating().streams(Multi.createFrom().item(sample.status()), shared);
+        }
+        return shared;
+    }
+
+    /** Number of active samplers. */
+    int samplers() {
+        return samplers.size();
+    }
+
+    private void release(final String key, final Sampler sampler) {
+        samplers.computeIfPresent(key, (k, current) -> {
+            if (current == sampler && --current.subscribers == 0) {
+                Log.debugf("Stop status sampler %s", key);
+                return null;
+            }
+            return current;
+        });
+    }
+
+    private Multi<Status> sampler(final String key, final String serverName, final int tier) {
+        Log.debugf("Start status sampler %s", key);
+        return Multi.createFrom().ticks().startingAfter(Duration.ZERO).every(Duration.ofSeconds(tier))
+                .onOverflow().drop()
+                .onItem().transformToUniAndConcatenate(tick -> sample(serverName))
+                .onFailure(ServerRemoved.class).recoverWithCompletion()
+                .broadcast().withCancellationAfterLastSubscriberDeparture().toAllSubscribers();
+    }
+
+    /**
+     * Reads the status using the single-flight read of the repository. Failed reads are skipped (emit nothing), so that
+     * one failure doesn't end the shared stream of all subscribers.
+     */
+    private Uni<Status> sample(final String serverName) {
+        return Uni.createFrom().item(() -> {
+            WildFlyServer server = serverRepository.wildFlyServer(serverName);
+            ModelControllerClient client = serverRepository.client(serverName);
+            if (server == null || client == null) {
+                throw new ServerRemoved();
+            }
+            try {
+                return statusRepository.refresh(client, server);
+            } catch (ManagementInterfaceException e) {
+                Log.debugf("Unable to sample status of %s: %s", serverName, e.getMessage());
+                return null;
+            } catch (RuntimeException e) {
+                Log.warnf("Unable to sample status of %s: %s", serverName, e.getMessage());
+                return null;
+            }
+        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .onFailure(failure -> !(failure instanceof ServerRemoved)).recoverWithNull();
+    }
+
+    /** A shared sampler and its number of subscribers. */
+    private static final class Sampler {
+
+        private final Multi<Status> multi;
+        private int subscribers; // guarded by the compute lock of the sampler map
+
+        private Sampler(final Multi<Status> multi) {
+            this.multi = multi;
+        }
+    }
+
+    private static class ServerRemoved extends RuntimeException {
+
+        ServerRemoved() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+/**
+ * A time series of one metric with a fixed memory bound. Samples are kept in primitive ring buffers at three resolutions:
+ * the raw samples and rollups (min, max, avg) per minute and per ten minutes. When a ring buffer is full, the oldest entry
+ * is overwritten. Samples older than the newest sample are dropped.
+ * <p>
+ * All methods are synchronized.
+ */
+final class TimeSeries {
+
+    enum Resolution {
+
+        RAW("raw", 0), MINUTE("1m", 60_000), TEN_MINUTES("10m", 600_000);
+
+        final String id;
+        final long millis;
+
+        Resolution(final String id, final long millis) {
+            this.id = id;
+            this.millis = millis;
+        }
+
+        /** Returns the resolution with the given id or {@code null} if there's no such resolution. */
+        static Resolution parse(final String id) {
+            for (Resolution resolution : values()) {
+                if (resolution.id.equals(id)) {
+                    return resolution;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Ring raw;
+    private final Ring minutes;
+    private final Ring tenMinutes;
+
+    TimeSeries(final int rawCapacity, final int minuteCapacity, final int tenMinuteCapacity) {
+        this.raw = new Ring(Resolution.RAW, rawCapacity);
+        this.minutes = new Ring(Resolution.MINUTE, minuteCapacity);
+        this.tenMinutes = new Ring(Resolution.TEN_MINUTES, tenMinuteCapacity);
+    }
+
+    /** Returns the number of bytes allocated for the ring buffers of a time series with the given capacities. */
+    static long bytes(final int rawCapacity, final int minuteCapacity, final int tenMinuteCapacity) {
+        return rawCapacity * 16L + (minuteCapacity + tenMinuteCapacity) * 36L;
+    }
+
+    synchronized void add(final long timestamp, final double value) {
+        if (raw.size > 0 && timestamp < raw.newest()) {
+            return;
+        }
+        raw.add(timestamp, value);
+        minutes.add(timestamp, value);
+        tenMinutes.add(timestamp, value);
+    }
+
+    /** Returns whether the resolution still holds all entries since {@code from}, i.e. none of them was overwritten. */
+    synchronized boolean covers(final Resolution resolution, final long from) {
+        Ring ring = ring(resolution);
+        return ring.capacity > 0 && (ring.size < ring.capacity || ring.timestamps[ring.index(0)] <= from);
+    }
+
+    /** Returns the entries of the resolution with {@code from <= timestamp <= to} in chronological order. */
+    synchronized Range range(final Resolution resolution, final long from, final long to) {
+        return ring(resolution).range(from, to);
+    }
+
+    private Ring ring(final Resolution resolution) {
+        return switch (resolution) {
+            case RAW -> raw;
+            case MINUTE -> minutes;
+            case TEN_MINUTES -> tenMinutes;
+        };
+    }
+
+    /**
+     * Entries of a range query. The timestamps of rollups are the start of the bucket. For raw samples, min, max and avg
+     * are the same.
+     */
+    record Range(long[] timestamps, double[] min, double[] max, double[] avg) {
+    }
+
+    private static final class Ring {
+
+        private final long bucket; // 0 == raw samples
+        private final int capacity;
+        private final long[] timestamps;
+        private final double[] values; // raw: value, rollup: sum
+        private final double[] min; // null for raw samples
+        private final double[] max; // null for raw samples
+        private final int[] count; // null for raw samples
+        private int head; // index of the next write
+        private int size;
+
+        private Ring(final Resolution resolution, final int capacity) {
+            this.bucket = resolution.millis;
+            this.capacity = capacity;
+            this.timestamps = new long[capacity];
+            this.values = new double[capacity];
+            boolean rollup = resolution != Resolution.RAW;
+            this.min = rollup ? new double[capacity] : null;
+            this.max = rollup ? new double[capacity] : null;
+            this.count = rollup ? new int[capacity] : null;
+        }
+
+        private void add(final long timestamp, final double value) {
+            if (capacity == 0) {
+                return;
+            }
+            if (bucket == 0) {
+                append(timestamp, value);
+            } else {
+                long start = timestamp - Math.floorMod(timestamp, bucket);
+                int newest = index(size - 1);
+                if (size > 0 && timestamps[newest] == start) {
+                    values[newest] += value;
+                    min[newest] = Math.min(min[newest], value);
+                    max[newest] = Math.max(max[newest], value);
+                    count[newest]++;
+                } else {
+                    append(start, value);
+                }
+            }
+        }
+
+        private void append(final long timestamp, final double value) {
+            timestamps[head] = timestamp;
+            values[head] = value;
+            if (count != null) {
+                min[head] = value;
+                max[head] = value;
+                count[head] = 1;
+            }
+            head = (head + 1) % capacity;
+            if (size < capacity) {
+                size++;
+            }
+        }
+
+        private long newest() {
+            return timestamps[index(size - 1)];
+        }
+
+        /** Returns the array index of the n-th oldest entry. */
+        private int index(final int n) {
+            return Math.floorMod(head - size + n, Math.max(capacity, 1));
+        }
+
+        private Range range(final long from, final long to) {
+            int first = 0;
+            while (first < size && timestamps[index(first)] < from) {
+                first++;
+            }
+            int end = first;
+            while (end < size && timestamps[index(end)] <= to) {
+                end++;
+            }
+
+            int length = end - first;
+            long[] rangeTimestamps = new long[length];
+            double[] rangeMin = new double[length];
+            double[] rangeMax = new double[length];
+            double[] rangeAvg = new double[length];
+            for (int i = 0; i < length; i++) {
+                int index = index(first + i);
+                rangeTimestamps[i] = timestamps[index];
+                if (count != null) {
+                    rangeMin[i] = min[index];
+                    rangeMax[i] = max[index];
+                    rangeAvg[i] = values[index] / count[index];
+                } else {
+                    rangeMin[i] = values[index];
+                    rangeMax[i] = values[index];
+                    rangeAvg[i] = values[index];
+                }
+            }
+            return new Range(rangeTimestamps, rangeMin, rangeMax, rangeAvg);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.Operation;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.OperationResponse;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+
+/**
+ * Model controller client which records the latency of all operations in {@link OperationStats}. Asynchronous operations
+ * are recorded when they complete, fail or are cancelled.
+ */
+class TimedModelControllerClient implements ModelControllerClient {
+
+    private final ModelControllerClient delegate;
+    private final OperationStats stats;
+
+    TimedModelControllerClient(final ModelControllerClient delegate, final OperationStats stats) {
+        this.delegate = delegate;
+        this.stats = stats;
+    }
+
+    @Override
+    public ModelNode execute(final ModelNode operation) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.execute(operation);
+        } finally {
+            stats.record(operation, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ModelNode execute(final Operation operation) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.execute(operation);
+        } finally {
+            stats.record(operation.getOperation(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ModelNode execute(final ModelNode operation, final OperationMessageHandler messageHandler) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.execute(operation, messageHandler);
+        } finally {
+            stats.record(operation, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ModelNode execute(final Operation operation, final OperationMessageHandler messageHandler) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.execute(operation, messageHandler);
+        } finally {
+            stats.record(operation.getOperation(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OperationResponse executeOperation(final Operation operation, final OperationMessageHandler messageHandler)
+            throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.executeOperation(operation, messageHandler);
+        } finally {
+            stats.record(operation.getOperation(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public AsyncFuture<ModelNode> executeAsync(final ModelNode operation) {
+        return recordAsync(operation, System.nanoTime(), delegate.executeAsync(operation));
+    }
+
+    @Override
+    public AsyncFuture<ModelNode> executeAsync(final ModelNode operation, final OperationMessageHandler messageHandler) {
+        return recordAsync(operation, System.nanoTime(), delegate.executeAsync(operation, messageHandler));
+    }
+
+    @Override
+    public AsyncFuture<ModelNode> executeAsync(final Operation operation, final OperationMessageHandler messageHandler) {
+        return recordAsync(operation.getOperation(), System.nanoTime(), delegate.executeAsync(operation, messageHandler));
+    }
+
+    @Override
+    public AsyncFuture<OperationResponse> executeOperationAsync(final Operation operation,
+            final OperationMessageHandler messageHandler) {
+        return recordAsync(operation.getOperation(), System.nanoTime(),
+                delegate.executeOperationAsync(operation, messageHandler));
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private <T> AsyncFuture<T> recordAsync(final ModelNode operation, final long start, final AsyncFuture<T> future) {
+        future.addListener(new AsyncFuture.Listener<T, Void>() {
+            @Override
+            public void handleComplete(final AsyncFuture<? extends T> f, final Void attachment) {
+                stats.record(operation, System.nanoTime() - start);
+            }
+
+            @Override
+            public void handleFailed(final AsyncFuture<? extends T> f, final Throwable cause, final Void attachment) {
+                stats.record(operation, System.nanoTime() - start);
+            }
+
+            @Override
+            public void handleCancelled(final AsyncFuture<? extends T> f, final Void attachment) {
+                stats.record(operation, System.nanoTime() - start);
+            }
+        }, null);
+        return future;
+    }
+}
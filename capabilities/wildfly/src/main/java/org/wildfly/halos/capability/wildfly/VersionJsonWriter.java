@@ -0,0 +1,41 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+
+import jakarta.inject.Singleton;
+
+import org.wildfly.halos.api.json.JsonOutput;
+import org.wildfly.halos.api.json.JsonWriter;
+import org.wildfly.halos.api.json.JsonWriters;
+
+import de.skuzzle.semantic.Version;
+
+/** Counterpart of {@link VersionSerializerRegistrationCustomizer} for the generated JSON writers. */
+@Singleton
+class VersionJsonWriter implements JsonWriter<Version> {
+
+    @Override
+    public Class<Version> type() {
+        return Version.class;
+    }
+
+    @Override
+    public void write(final Version version, final JsonOutput out, final JsonWriters writers) throws IOException {
+        out.writeString(version.toString());
+    }
+}
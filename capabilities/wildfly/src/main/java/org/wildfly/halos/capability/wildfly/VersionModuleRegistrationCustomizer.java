@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import jakarta.inject.Singleton;
+
+import io.quarkus.jackson.ObjectMapperCustomizer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import de.skuzzle.semantic.Version;
+
+/** Jackson counterpart of {@link VersionSerializerRegistrationCustomizer} used by the binary (CBOR) representations. */
+@Singleton
+class VersionModuleRegistrationCustomizer implements ObjectMapperCustomizer {
+
+    static SimpleModule versionModule() {
+        return new SimpleModule("halos-version").addSerializer(Version.class, ToStringSerializer.instance);
+    }
+
+    @Override
+    public void customize(final ObjectMapper objectMapper) {
+        objectMapper.registerModule(versionModule());
+    }
+}
@@ -16,7 +16,9 @@
 package org.wildfly.halos.capability.wildfly;
 
 import org.wildfly.halos.api.Capability;
+import org.wildfly.halos.api.json.GenerateJsonWriter;
 
+@GenerateJsonWriter
 public record WildFlyCapability(String name, String title) implements Capability {
 
     public static final Capability INSTANCE = new WildFlyCapability("wildfly", "WildFly");
@@ -38,6 +38,10 @@ public class WildFlyExtension extends BaseCapabilityExtension implements Capabil
 
     @Inject ManagementInterface managementInterface;
     @Inject WildFlyServerRepository wildFlyServerRepository;
+    @Inject StatusRepository statusRepository;
+    @Inject StatusStore statusStore;
+    @Inject CircuitBreakers circuitBreakers;
+    @Inject ResourceDescriptionRepository descriptionRepository;
 
     @Override
     public Capability capability() {
@@ -50,15 +54,23 @@ public class WildFlyExtension extends BaseCapabilityExtension implements Capabil
                 .withBackOff(Duration.ofMillis(INITIAL_BACK_OFF), Duration.ofMillis(MAX_BACK_OFF)).expireIn(EXPIRE_IN).onItem()
                 .transform(tuple -> {
                     wildFlyServerRepository.add(managedService, tuple.getItem1(), tuple.getItem2());
+                    circuitBreakers.remove(managedService.name());
+                    statusStore.connection(tuple.getItem2().name(), System.currentTimeMillis(), true);
                     Log.infof("Successfully connected to managed service %s", managedService.name());
-                    return Connection.connected();
+                    return Connection.connected().withCircuit(Connection.Circuit.CLOSED, null);
                 }).onFailure().recoverWithItem(throwable -> Connection.failed(String
                         .format("Error connecting to managed service %s: %s", managedService.name(), throwable.getMessage())));
     }
 
     @Override
     public void close(final ManagedService managedService) {
-        wildFlyServerRepository.remove(managedService);
+        String wildFlyServerName = wildFlyServerRepository.remove(managedService);
+        circuitBreakers.remove(managedService.name());
+        if (wildFlyServerName != null) {
+            statusRepository.remove(wildFlyServerName);
+            descriptionRepository.remove(wildFlyServerName);
+            statusStore.connection(wildFlyServerName, System.currentTimeMillis(), false);
+        }
         Log.infof("Close connection to managed service %s", managedService.name());
     }
 }
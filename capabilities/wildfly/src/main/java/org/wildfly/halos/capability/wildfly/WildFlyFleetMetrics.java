@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.wildfly.halos.api.metrics.FleetMetricsContributor;
+import org.wildfly.halos.api.metrics.OpenMetricsWriter;
+
+import static org.wildfly.halos.api.metrics.OpenMetricsWriter.GAUGE;
+import static org.wildfly.halos.api.metrics.OpenMetricsWriter.INFO;
+
+/**
+ * Writes the connected WildFly servers and their last sampled status. The status of all servers is sampled in the
+ * background by {@link StatusSampler}, so a scrape never reaches out to the managed servers.
+ */
+@ApplicationScoped
+class WildFlyFleetMetrics implements FleetMetricsContributor {
+
+    @Inject WildFlyServerRepository serverRepository;
+    @Inject StatusRepository statusRepository;
+
+    @Override
+    public long version() {
+        return serverRepository.version() + statusRepository.version();
+    }
+
+    @Override
+    public void write(final OpenMetricsWriter writer) {
+        Set<WildFlyServer> servers = serverRepository.wildFlyServers();
+
+        writer.family("halos_wildfly_server", INFO, "Connected WildFly servers");
+        for (WildFlyServer server : servers) {
+            labels(writer.sample("halos_wildfly_server_info"), server)
+                    .label("product_name", server.productName())
+                    .label("product_version", server.productVersion() != null ? server.productVersion().toString() : null)
+                    .label("server_state", server.serverState() != null ? server.serverState().name() : null)
+                    .value(1);
+        }
+        writer.family("halos_wildfly_deployments", GAUGE, "Deployments of a WildFly server");
+        for (WildFlyServer server : servers) {
+            labels(writer.sample("halos_wildfly_deployments"), server)
+                    .value(server.deployments() != null ? server.deployments().size() : 0);
+        }
+
+        // last sampled status
+        memory(writer, servers, "heap_used", "Used heap memory", Status.Memory::used, true);
+        memory(writer, servers, "heap_committed", "Committed heap memory", Status.Memory::committed, true);
+        memory(writer, servers, "heap_max", "Maximum heap memory", Status.Memory::max, true);
+        memory(writer, servers, "nonheap_used", "Used non-heap memory", Status.Memory::used, false);
+        memory(writer, servers, "nonheap_committed", "Committed non-heap memory", Status.Memory::committed, false);
+        writer.family("halos_wildfly_threads", GAUGE, "Live threads");
+        for (WildFlyServer server : servers) {
+            StatusRepository.Sample sample = statusRepository.lastSample(server.name());
+            if (sample != null) {
+                labels(writer.sample("halos_wildfly_threads"), server)
+                        .value(sample.status().threads().threads(), sample.timestamp());
+            }
+        }
+        writer.family("halos_wildfly_daemon_threads", GAUGE, "Live daemon threads");
+        for (WildFlyServer server : servers) {
+            StatusRepository.Sample sample = statusRepository.lastSample(server.name());
+            if (sample != null) {
+                labels(writer.sample("halos_wildfly_daemon_threads"), server)
+                        .value(sample.status().threads().daemons(), sample.timestamp());
+            }
+        }
+        writer.family("halos_wildfly_uptime_seconds", GAUGE, "Uptime of the JVM");
+        for (WildFlyServer server : servers) {
+            StatusRepository.Sample sample = statusRepository.lastSample(server.name());
+            if (sample != null) {
+                labels(writer.sample("halos_wildfly_uptime_seconds"), server)
+                        .value(sample.status().runtime().uptime() / 1000.0, sample.timestamp());
+            }
+        }
+        writer.family("halos_wildfly_processors", GAUGE, "Available processors");
+        for (WildFlyServer server : servers) {
+            StatusRepository.Sample sample = statusRepository.lastSample(server.name());
+            if (sample != null) {
+                labels(writer.sample("halos_wildfly_processors"), server)
+                        .value(sample.status().os().processors(), sample.timestamp());
+            }
+        }
+    }
+
+    private void memory(final OpenMetricsWriter writer, final Set<WildFlyServer> servers, final String name,
+            final String help, final ToLongFunction<Status.Memory> value, final boolean heap) {
+        String family = "halos_wildfly_" + name + "_bytes";
+        writer.family(family, GAUGE, help);
+        for (WildFlyServer server : servers) {
+            StatusRepository.Sample sample = statusRepository.lastSample(server.name());
+            if (sample != null) {
+                Status.Memory memory = heap ? sample.heapBytes() : sample.nonHeapBytes();
+                labels(writer.sample(family), server).value(value.applyAsLong(memory), sample.timestamp());
+            }
+        }
+    }
+
+    private OpenMetricsWriter labels(final OpenMetricsWriter writer, final WildFlyServer server) {
+        return writer.label("managed_service", server.managedService()).label("server", server.name());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+import org.wildfly.halos.api.Tracing;
+import org.wildfly.halos.capability.wildfly.dmr.Composite;
+import org.wildfly.halos.capability.wildfly.dmr.ModelNodeHelper;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.common.AttributeKey;
+
+/**
+ * Meters and spans of the WildFly capability. Timers are created once per tag combination and cached.
+ */
+@ApplicationScoped
+class WildFlyMetrics {
+
+    static final String SERVER_AND_DEPLOYMENTS = "server-and-deployments";
+    static final String STATUS = "status";
+    static final String DMR = "dmr";
+    static final String DMR_BATCH = "dmr-batch";
+    static final String REFRESH = "refresh";
+
+    private static final AttributeKey<String> DMR_CLI = AttributeKey.stringKey("dmr.cli");
+    private static final AttributeKey<List<String>> DMR_OPERATIONS = AttributeKey.stringArrayKey("dmr.operations");
+
+    @Inject MeterRegistry registry;
+    @Inject Tracing tracing;
+
+    private final Map<String, Timer> composites; // key == operation + outcome
+    private final Map<String, Timer> lookups; // key == outcome
+
+    WildFlyMetrics() {
+        composites = new ConcurrentHashMap<>();
+        lookups = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Executes the DMR operation (usually a composite) in a child span of the current span and records its latency and
+     * outcome. The span carries the names of the DMR operations and the operation in CLI syntax. If enabled, a
+     * {@link CompositeEvent} is committed to the flight recorder.
+     * <p>
+     * The operation is executed asynchronously. If there's no response within the timeout, the operation is cancelled on
+     * the server and a {@link ManagementInterfaceException} is thrown.
+     *
+     * @param target the managed service or server the operation is executed against
+     */
+    ModelNode execute(final String operation, final String target, final ModelControllerClient client, final Operation dmr,
+            final Duration timeout) throws IOException {
+        return tracing.inSpan("dmr " + operation, span -> {
+            if (span.isRecording()) {
+                List<String> names = new ArrayList<>();
+                if (dmr instanceof Composite composite) {
+                    for (Operation step : composite) {
+                        names.add(step.getName());
+                    }
+                } else {
+                    names.add(dmr.getName());
+                }
+                span.setAttribute(DMR_OPERATIONS, names);
+                span.setAttribute(DMR_CLI, dmr.asCli());
+            }
+
+            CompositeEvent event = new CompositeEvent();
+            event.begin();
+            long start = System.nanoTime();
+            ModelNode payload = null;
+            try {
+                payload = await(client.executeAsync(dmr), timeout, dmr, target);
+                return payload;
+            } finally {
+                boolean success = payload != null && !ModelNodeHelper.isFailure(payload);
+                composite(operation, System.nanoTime() - start, success);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.target = target;
+                    event.operation = operation;
+                    event.cli = dmr.asCli();
+                    event.success = success;
+                    event.requestBytes = CompositeEvent.size(dmr);
+                    event.responseBytes = payload != null ? CompositeEvent.size(payload) : 0;
+                    event.commit();
+                }
+            }
+        });
+    }
+
+    private ModelNode await(final AsyncFuture<ModelNode> future, final Duration timeout, final Operation dmr,
+            final String target) throws IOException {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.asyncCancel(true);
+            throw new ManagementInterfaceException(String.format("Operation %s for %s timed out after %d ms", dmr.asCli(),
+                    target, timeout.toMillis()));
+        } catch (InterruptedException e) {
+            future.asyncCancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format("Operation %s for %s interrupted", dmr.asCli(), target));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void composite(final String operation, final long duration, final boolean success) {
+        String outcome = outcome(success);
+        composites.computeIfAbsent(operation + "|" + outcome, k -> Timer.builder("halos.wildfly.composite")
+                .description("Latency of DMR composite operations")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry)).record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /** Records the latency of a management endpoint lookup started at {@code start} (nano time). */
+    void lookup(final long start, final boolean success) {
+        long duration = System.nanoTime() - start;
+        String outcome = outcome(success);
+        lookups.computeIfAbsent(outcome, k -> Timer.builder("halos.wildfly.lookup")
+                .description("Latency of looking up the management endpoint of a WildFly server")
+                .tag("outcome", outcome)
+                .register(registry)).record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    private String outcome(final boolean success) {
+        return success ? "success" : "failure";
+    }
+}
@@ -17,9 +17,18 @@ package org.wildfly.halos.capability.wildfly;
 
 import java.util.Set;
 
+import org.wildfly.halos.api.json.GenerateJsonWriter;
+
 import de.skuzzle.semantic.Version;
 
+@GenerateJsonWriter
 public record WildFlyServer(String managedService, String name, String productName, Version productVersion, Version coreVersion,
         Version managementVersion, RunningMode runningMode, ServerState serverState, SuspendState suspendState,
         Set<Deployment> deployments) {
+
+    /** Returns a copy of this server without deployments. Deployments can be read separately. */
+    public WildFlyServer summary() {
+        return new WildFlyServer(managedService, name, productName, productVersion, coreVersion, managementVersion,
+                runningMode, serverState, suspendState, null);
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+/**
+ * A change of a WildFly server detected by the periodic refresh. Only the fields related to the type are set: the new
+ * state for {@code *_STATE} and {@link Type#RUNNING_MODE}, the new deployment for {@link Type#DEPLOYMENT_ADDED} and
+ * {@link Type#DEPLOYMENT_CHANGED} and the old deployment for {@link Type#DEPLOYMENT_REMOVED}.
+ */
+public record WildFlyServerModification(String server, Type type, ServerState serverState, SuspendState suspendState,
+        RunningMode runningMode, Deployment deployment) {
+
+    public enum Type {
+        SERVER_STATE, SUSPEND_STATE, RUNNING_MODE, DEPLOYMENT_ADDED, DEPLOYMENT_CHANGED, DEPLOYMENT_REMOVED
+    }
+
+    static WildFlyServerModification serverState(final String server, final ServerState serverState) {
+        return new WildFlyServerModification(server, Type.SERVER_STATE, serverState, null, null, null);
+    }
+
+    static WildFlyServerModification suspendState(final String server, final SuspendState suspendState) {
+        return new WildFlyServerModification(server, Type.SUSPEND_STATE, null, suspendState, null, null);
+    }
+
+    static WildFlyServerModification runningMode(final String server, final RunningMode runningMode) {
+        return new WildFlyServerModification(server, Type.RUNNING_MODE, null, null, runningMode, null);
+    }
+
+    static WildFlyServerModification deployment(final String server, final Type type, final Deployment deployment) {
+        return new WildFlyServerModification(server, type, null, null, null, deployment);
+    }
+}
@@ -16,43 +16,118 @@
 package org.wildfly.halos.capability.wildfly;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 
 import org.jboss.as.controller.client.ModelControllerClient;
 import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.api.Page;
+import org.wildfly.halos.api.PageRequest;
+import org.wildfly.halos.api.SortedIndex;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.logging.Log;
 
+/**
+ * The connected WildFly servers, their deployments and management clients. Adding, updating and removing a server are
+ * atomic per server: they run within the lock of the server's entry in the client map.
+ */
 @ApplicationScoped
 class WildFlyServerRepository {
 
+    @Inject MeterRegistry registry;
+
     private final Map<String, String> managedServiceToServer; // key == managed service name, value == WildFly server name
-    private final Map<String, WildFlyServer> servers; // key == WildFly server name
+    private final SortedIndex<WildFlyServer> servers; // name == WildFly server name
+    private final Map<String, SortedIndex<Deployment>> deployments; // key == WildFly server name
     private final Map<String, ModelControllerClient> clients; // key == WildFly server name
+    private final Map<String, OperationStats> stats; // key == WildFly server name
+    private final AtomicLong version;
 
     WildFlyServerRepository() {
         managedServiceToServer = new ConcurrentHashMap<>();
-        servers = new ConcurrentHashMap<>();
+        servers = new SortedIndex<>(WildFlyServer::name)
+                .sortBy("managedService", WildFlyServer::managedService)
+                .sortBy("state", server -> server.serverState() != null ? server.serverState().name() : null);
+        deployments = new ConcurrentHashMap<>();
         clients = new ConcurrentHashMap<>();
+        stats = new ConcurrentHashMap<>();
+        version = new AtomicLong();
+    }
+
+    @PostConstruct
+    void registerMeters() {
+        Gauge.builder("halos.wildfly.servers", clients, Map::size).description("Connected WildFly servers").register(registry);
     }
 
     void add(final ManagedService managedService, final ModelControllerClient modelControllerClient,
             final WildFlyServer wildFlyServer) {
-        String wildFlyServerName = wildFlyServer.name();
-        managedServiceToServer.put(managedService.name(), wildFlyServerName);
-        clients.put(wildFlyServerName, modelControllerClient);
-        servers.put(wildFlyServerName, wildFlyServer);
+        clients.compute(wildFlyServer.name(), (wildFlyServerName, current) -> {
+            managedServiceToServer.put(managedService.name(), wildFlyServerName);
+            OperationStats operationStats = new OperationStats(wildFlyServerName);
+            stats.put(wildFlyServerName, operationStats);
+            deployments.put(wildFlyServerName, deploymentIndex(wildFlyServer));
+            servers.put(wildFlyServer);
+            version.incrementAndGet();
+            return new TimedModelControllerClient(modelControllerClient, operationStats);
+        });
+    }
+
+    /**
+     * Replaces a server with a refreshed version and applies the deployment modifications to the deployment index. The
+     * server is only replaced if the repository still holds {@code expected}, the instance the modifications have been
+     * computed from.
+     *
+     * @return {@code false} if the server has been removed or replaced in the meantime
+     */
+    boolean update(final WildFlyServer expected, final WildFlyServer wildFlyServer,
+            final List<WildFlyServerModification> modifications) {
+        boolean[] updated = new boolean[1];
+        clients.computeIfPresent(wildFlyServer.name(), (wildFlyServerName, client) -> {
+            SortedIndex<Deployment> index = deployments.get(wildFlyServerName);
+            if (index != null && servers.get(wildFlyServerName) == expected) {
+                for (WildFlyServerModification modification : modifications) {
+                    switch (modification.type()) {
+                        case DEPLOYMENT_ADDED, DEPLOYMENT_CHANGED -> index.put(modification.deployment());
+                        case DEPLOYMENT_REMOVED -> index.remove(modification.deployment().name());
+                        default -> {
+                            // server attributes are part of the server
+                        }
+                    }
+                }
+                servers.put(wildFlyServer);
+                version.incrementAndGet();
+                updated[0] = true;
+            }
+            return client;
+        });
+        return updated[0];
     }
 
-    void remove(final ManagedService managedService) {
+    /** Returns the name of the removed WildFly server or {@code null} if there was no server for the managed service. */
+    String remove(final ManagedService managedService) {
         String wildFlyServerName = managedServiceToServer.remove(managedService.name());
         if (wildFlyServerName != null) {
-            servers.remove(wildFlyServerName);
-            ModelControllerClient client = clients.remove(wildFlyServerName);
+            ModelControllerClient[] removed = new ModelControllerClient[1];
+            clients.compute(wildFlyServerName, (name, client) -> {
+                servers.remove(name);
+                deployments.remove(name);
+                stats.remove(name);
+                version.incrementAndGet();
+                removed[0] = client;
+                return null;
+            });
+            // close the client outside the lock
+            ModelControllerClient client = removed[0];
             if (client != null) {
                 try {
                     client.close();
@@ -61,12 +136,39 @@ class WildFlyServerRepository {
                 }
             }
         }
+        return wildFlyServerName;
+    }
+
+    private SortedIndex<Deployment> deploymentIndex(final WildFlyServer wildFlyServer) {
+        SortedIndex<Deployment> index = new SortedIndex<>(Deployment::name)
+                .sortBy("status", deployment -> deployment.status() != null ? deployment.status().name() : null)
+                .sortBy("enabledAt", deployment -> deployment.enabledAt() != null ? deployment.enabledAt().toString() : null);
+        if (wildFlyServer.deployments() != null) {
+            for (Deployment deployment : wildFlyServer.deployments()) {
+                index.put(deployment);
+            }
+        }
+        return index;
+    }
+
+    long version() {
+        return version.get();
     }
 
     Set<WildFlyServer> wildFlyServers() {
         return Set.copyOf(servers.values());
     }
 
+    Page<WildFlyServer> wildFlyServers(final PageRequest request, final Predicate<WildFlyServer> filter) {
+        return servers.page(request, filter);
+    }
+
+    /** Returns {@code null} if there's no server with the specified name. */
+    Page<Deployment> deployments(final String serverName, final PageRequest request, final Predicate<Deployment> filter) {
+        SortedIndex<Deployment> index = deployments.get(serverName);
+        return index != null ? index.page(request, filter) : null;
+    }
+
     WildFlyServer wildFlyServer(final String serverName) {
         return servers.get(serverName);
     }
@@ -74,4 +176,10 @@ class WildFlyServerRepository {
     ModelControllerClient client(final String serverName) {
         return clients.get(serverName);
     }
+
+    /** Returns {@code null} if there's no server with the specified name. */
+    ServerStats stats(final String serverName) {
+        OperationStats operationStats = stats.get(serverName);
+        return operationStats != null ? operationStats.snapshot() : null;
+    }
 }
@@ -15,33 +15,138 @@
  */
 package org.wildfly.halos.capability.wildfly;
 
-import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.ext.Providers;
+
+import org.wildfly.halos.api.Constants;
+import org.wildfly.halos.api.Page;
+import org.wildfly.halos.api.PageRequest;
+import org.wildfly.halos.api.RepresentationCache;
+
+import static java.util.stream.Collectors.toSet;
 
 @Path("/api/v1/wildfly/servers")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({ MediaType.APPLICATION_JSON, Constants.APPLICATION_CBOR })
 public class WildFlyServerResource {
 
+    private static final GenericType<Set<WildFlyServer>> SERVERS = new GenericType<>() {
+    };
+    private static final GenericType<List<WildFlyServer>> SERVER_PAGE = new GenericType<>() {
+    };
+    private static final GenericType<List<Deployment>> DEPLOYMENT_PAGE = new GenericType<>() {
+    };
+
     @Inject WildFlyServerRepository repository;
+    @Inject RepresentationCache representationCache;
 
+    /**
+     * Returns all servers or - if any of the paging or filter parameters is specified - a page of servers. Supported sort
+     * orders are {@code name}, {@code managedService} and {@code state}. The next page is linked in the {@code Link} header.
+     *
+     * @param summary whether to omit the deployments
+     * @param name filters servers whose name starts with the specified value
+     * @param state filters servers with the specified server state
+     */
     @GET
-    public Collection<WildFlyServer> servers() {
-        return repository.wildFlyServers();
+    public Response servers(@QueryParam(PageRequest.SORT) final String sort,
+            @QueryParam(PageRequest.CURSOR) final String cursor, @QueryParam(PageRequest.LIMIT) final Integer limit,
+            @QueryParam("summary") final boolean summary, @QueryParam("name") final String name,
+            @QueryParam("state") final ServerState state, @Context final Request request,
+            @Context final HttpHeaders headers, @Context final Providers providers, @Context final UriInfo uriInfo) {
+        if (PageRequest.paged(sort, cursor, limit) || name != null || state != null) {
+            Predicate<WildFlyServer> filter = server -> true;
+            if (name != null) {
+                filter = filter.and(server -> server.name().startsWith(name));
+            }
+            if (state != null) {
+                filter = filter.and(server -> server.serverState() == state);
+            }
+            Page<WildFlyServer> page = repository.wildFlyServers(PageRequest.of(sort, cursor, limit), filter);
+            if (summary) {
+                page = new Page<>(page.items().stream().map(WildFlyServer::summary).toList(), page.next());
+            }
+            return page.response(uriInfo, SERVER_PAGE);
+        } else if (summary) {
+            return representationCache.response("wildfly-server-summaries", repository.version(),
+                    () -> repository.wildFlyServers().stream().map(WildFlyServer::summary).collect(toSet()), SERVERS,
+                    request, headers, providers);
+        } else {
+            return representationCache.response("wildfly-servers", repository.version(), repository::wildFlyServers,
+                    SERVERS, request, headers, providers);
+        }
     }
 
     @GET
     @Path("/{serverName}")
-    public Response server(@PathParam("serverName") final String serverName) {
+    public Response server(@PathParam("serverName") final String serverName,
+            @QueryParam("summary") final boolean summary) {
         WildFlyServer server = repository.wildFlyServer(serverName);
         if (server != null) {
-            return Response.ok(server).build();
+            return Response.ok(summary ? server.summary() : server).build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+    }
+
+    /**
+     * Returns latency histograms of the management operations executed against the server (per operation) and the slowest
+     * operations in CLI syntax.
+     */
+    @GET
+    @Path("/{serverName}/stats")
+    public Response stats(@PathParam("serverName") final String serverName) {
+        ServerStats stats = repository.stats(serverName);
+        if (stats != null) {
+            return Response.ok(stats).build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+    }
+
+    /**
+     * Returns the deployments of a server page by page. Supported sort orders are {@code name}, {@code status} and
+     * {@code enabledAt}. The next page is linked in the {@code Link} header.
+     *
+     * @param name filters deployments whose name starts with the specified value
+     * @param status filters deployments with the specified status
+     * @param enabled filters enabled or disabled deployments
+     */
+    @GET
+    @Path("/{serverName}/deployments")
+    public Response deployments(@PathParam("serverName") final String serverName,
+            @QueryParam(PageRequest.SORT) final String sort, @QueryParam(PageRequest.CURSOR) final String cursor,
+            @QueryParam(PageRequest.LIMIT) final Integer limit, @QueryParam("name") final String name,
+            @QueryParam("status") final DeploymentStatus status, @QueryParam("enabled") final Boolean enabled,
+            @Context final UriInfo uriInfo) {
+        Predicate<Deployment> filter = deployment -> true;
+        if (name != null) {
+            filter = filter.and(deployment -> deployment.name().startsWith(name));
+        }
+        if (status != null) {
+            filter = filter.and(deployment -> deployment.status() == status);
+        }
+        if (enabled != null) {
+            filter = filter.and(deployment -> deployment.enabled() == enabled);
+        }
+        Page<Deployment> page = repository.deployments(serverName, PageRequest.of(sort, cursor, limit), filter);
+        if (page != null) {
+            return page.response(uriInfo, DEPLOYMENT_PAGE);
         } else {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
@@ -39,11 +39,14 @@ public interface ModelDescriptionConstants {
     String MANAGEMENT_MINOR_VERSION = "management-minor-version";
     String NAME = "name";
     String OP = "operation";
+    String OPERATIONS = "operations";
     String OUTCOME = "outcome";
     String PRODUCT_NAME = "product-name";
     String PRODUCT_VERSION = "product-version";
+    String READ_ATTRIBUTE_OPERATION = "read-attribute";
     String READ_CHILDREN_RESOURCES_OPERATION = "read-children-resources";
     String READ_RESOURCE_OPERATION = "read-resource";
+    String READ_RESOURCE_DESCRIPTION_OPERATION = "read-resource-description";
     String RECURSIVE = "recursive";
     String RELEASE_VERSION = "release-version";
     String RESULT = "result";
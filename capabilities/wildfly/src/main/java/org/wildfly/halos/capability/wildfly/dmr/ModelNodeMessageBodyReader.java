@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly.dmr;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.Provider;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.dmr.ModelNode;
+
+import static org.wildfly.halos.capability.wildfly.dmr.ModelNodeMessageBodyWriter.DMR_TYPE;
+
+/**
+ * Reads model nodes from base64 encoded DMR, binary DMR or JSON. The model node is read straight from the input stream
+ * without building an intermediate string. Requests larger than {@code halos.wildfly.dmr.max-request-size} bytes are
+ * rejected with {@code 413 Payload Too Large}: by their content length before parsing, or as soon as the parser has read
+ * more than that. Malformed requests are rejected with {@code 400 Bad Request}.
+ */
+@Provider
+@Consumes({ ModelNodeMessageBodyWriter.DMR_ENCODED, ModelNodeMessageBodyWriter.DMR, MediaType.APPLICATION_JSON })
+public class ModelNodeMessageBodyReader implements MessageBodyReader<ModelNode> {
+
+    private static final MediaType DMR_ENCODED_TYPE = MediaType.valueOf(ModelNodeMessageBodyWriter.DMR_ENCODED);
+
+    @ConfigProperty(name = "halos.wildfly.dmr.max-request-size", defaultValue = "1048576") long maxRequestSize;
+
+    @Override
+    public boolean isReadable(final Class<?> aClass, final Type type, final Annotation[] annotations,
+            final MediaType mediaType) {
+        return type == ModelNode.class;
+    }
+
+    @Override
+    public ModelNode readFrom(final Class<ModelNode> aClass, final Type type, final Annotation[] annotations,
+            final MediaType mediaType, final MultivaluedMap<String, String> multivaluedMap, final InputStream inputStream)
+            throws IOException, WebApplicationException {
+        String contentLength = multivaluedMap != null ? multivaluedMap.getFirst(HttpHeaders.CONTENT_LENGTH) : null;
+        if (contentLength != null && parseLong(contentLength) > maxRequestSize) {
+            throw tooLarge();
+        }
+        LimitedInputStream limited = new LimitedInputStream(inputStream, maxRequestSize);
+        try {
+            if (DMR_TYPE.isCompatible(mediaType)) {
+                return ModelNode.fromStream(limited);
+            } else if (DMR_ENCODED_TYPE.isCompatible(mediaType)) {
+                return ModelNode.fromBase64(limited);
+            } else {
+                return ModelNode.fromJSONStream(limited);
+            }
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            // the parsers may wrap the exception of the limited stream
+            if (limited.exceeded) {
+                throw tooLarge();
+            }
+            throw new BadRequestException("Invalid DMR: " + e.getMessage(), e);
+        }
+    }
+
+    private WebApplicationException tooLarge() {
+        return new WebApplicationException(String.format("Request exceeds %,d bytes", maxRequestSize),
+                Response.Status.REQUEST_ENTITY_TOO_LARGE);
+    }
+
+    private static long parseLong(final String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid content length: " + value);
+        }
+    }
+
+    /** Fails as soon as more than the limit has been read. */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+        private boolean exceeded;
+
+        LimitedInputStream(final InputStream in, final long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(final long n) throws IOException {
+            count += n;
+            if (count > limit) {
+                exceeded = true;
+                throw new IOException("Request exceeds " + limit + " bytes");
+            }
+        }
+    }
+}
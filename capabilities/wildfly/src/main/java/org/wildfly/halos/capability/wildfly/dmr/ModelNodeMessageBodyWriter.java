@@ -29,11 +29,17 @@ import jakarta.ws.rs.ext.Provider;
 
 import org.jboss.dmr.ModelNode;
 
+/**
+ * Writes model nodes as base64 encoded DMR ({@value #DMR_ENCODED}) or binary DMR ({@value #DMR}). Both formats are
+ * written straight to the output stream without building an intermediate string.
+ */
 @Provider
-@Produces(ModelNodeMessageBodyWriter.DMR_ENCODED)
+@Produces({ ModelNodeMessageBodyWriter.DMR_ENCODED, ModelNodeMessageBodyWriter.DMR })
 public class ModelNodeMessageBodyWriter implements MessageBodyWriter<ModelNode> {
 
     public static final String DMR_ENCODED = "application/dmr-encoded";
+    public static final String DMR = "application/dmr";
+    public static final MediaType DMR_TYPE = MediaType.valueOf(DMR);
 
     @Override
     public boolean isWriteable(final Class<?> aClass, final Type type, final Annotation[] annotations,
@@ -45,6 +51,10 @@ public class ModelNodeMessageBodyWriter implements MessageBodyWriter<ModelNode>
     public void writeTo(final ModelNode modelNode, final Class<?> aClass, final Type type, final Annotation[] annotations,
             final MediaType mediaType, final MultivaluedMap<String, Object> multivaluedMap, final OutputStream outputStream)
             throws IOException, WebApplicationException {
-        modelNode.writeBase64(outputStream);
+        if (DMR_TYPE.isCompatible(mediaType)) {
+            modelNode.writeExternal(outputStream);
+        } else {
+            modelNode.writeBase64(outputStream);
+        }
     }
 }
@@ -0,0 +1,81 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.halos.api.Connection.Circuit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    public void setUp() {
+        breaker = new CircuitBreaker(3, 1_000);
+    }
+
+    @Test
+    public void closed() {
+        assertTrue(breaker.allow(0));
+        assertFalse(breaker.failure(0));
+        assertFalse(breaker.failure(0));
+        assertFalse(breaker.success());
+        assertFalse(breaker.failure(0));
+        assertEquals(Circuit.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void open() {
+        breaker.failure(0);
+        breaker.failure(0);
+        assertTrue(breaker.failure(100));
+        assertEquals(Circuit.OPEN, breaker.state());
+        assertFalse(breaker.allow(500));
+    }
+
+    @Test
+    public void probeSucceeds() {
+        open(100);
+        assertTrue(breaker.allow(1_100));
+        assertEquals(Circuit.HALF_OPEN, breaker.state());
+        // only one probe at a time
+        assertFalse(breaker.allow(1_100));
+        assertTrue(breaker.success());
+        assertEquals(Circuit.CLOSED, breaker.state());
+        assertTrue(breaker.allow(1_200));
+    }
+
+    @Test
+    public void probeFails() {
+        open(100);
+        assertTrue(breaker.allow(1_100));
+        assertTrue(breaker.failure(1_200));
+        assertEquals(Circuit.OPEN, breaker.state());
+        assertFalse(breaker.allow(2_100));
+        assertTrue(breaker.allow(2_200));
+    }
+
+    private void open(final long now) {
+        for (int i = 0; i < 3; i++) {
+            breaker.failure(now);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DigestAuthenticationTest {
+
+    // examples from RFC 2617 (section 3.5) and RFC 7616 (section 3.9.1)
+
+    @Test
+    public void rfc2617() {
+        assertEquals("6629fae49393a05397450978507c4ef1",
+                DigestAuthentication.response("MD5", "Mufasa", "testrealm@host.com", "Circle Of Life", "GET",
+                        "/dir/index.html", "dcd98b7102dd2f0e8b11d0f600bfb0c093", "00000001", "0a4f113b", "auth"));
+    }
+
+    @Test
+    public void rfc7616Md5() {
+        assertEquals("8ca523f5e9506fed4657c9700eebdbec", DigestAuthentication.response("MD5", "Mufasa",
+                "http-auth@example.org", "Circle of Life", "GET", "/dir/index.html",
+                "7ypf/xlj9XXwfDPEoM4URrv/xwf94BcCAzFZH4GiTo0v", "00000001",
+                "f2/wE4q74E6zIJEtWaHKaf5wv/H5QzzpXusqGemxURZJ", "auth"));
+    }
+
+    @Test
+    public void rfc7616Sha256() {
+        assertEquals("753927fa0e85d155564e2e272a28d1802ca10daf4496794697cf8db5856cb6c1",
+                DigestAuthentication.response("SHA-256", "Mufasa", "http-auth@example.org", "Circle of Life", "GET",
+                        "/dir/index.html", "7ypf/xlj9XXwfDPEoM4URrv/xwf94BcCAzFZH4GiTo0v", "00000001",
+                        "f2/wE4q74E6zIJEtWaHKaf5wv/H5QzzpXusqGemxURZJ", "auth"));
+    }
+
+    @Test
+    public void challenge() {
+        DigestAuthentication authentication = new DigestAuthentication("admin", "admin");
+        assertNull(authentication.authorization("POST", "/management"));
+        assertTrue(authentication.challenge(List.of("Basic realm=\"ManagementRealm\"",
+                "Digest realm=\"ManagementRealm\", nonce=\"abc\", opaque=\"00000000\", algorithm=MD5, qop=\"auth\"")));
+
+        String first = authentication.authorization("POST", "/management");
+        assertTrue(first.startsWith("Digest username=\"admin\", realm=\"ManagementRealm\", nonce=\"abc\""));
+        assertTrue(first.contains("nc=00000001"));
+        assertTrue(first.contains("opaque=\"00000000\""));
+        assertTrue(authentication.authorization("POST", "/management").contains("nc=00000002"));
+    }
+
+    @Test
+    public void unsupported() {
+        DigestAuthentication authentication = new DigestAuthentication("admin", "admin");
+        assertFalse(authentication.challenge(List.of("Basic realm=\"ManagementRealm\"")));
+        assertFalse(authentication.challenge(List.of("Digest realm=\"r\", nonce=\"n\", algorithm=SHA-512-256")));
+        assertFalse(authentication.challenge(List.of("Digest realm=\"r\", nonce=\"n\", qop=\"auth-int\"")));
+        assertNull(authentication.authorization("POST", "/management"));
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.OperationResponse;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+import org.jboss.threads.AsyncFutureTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.halos.api.Tracing;
+import org.wildfly.halos.capability.wildfly.dmr.ModelNodeHelper;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+import org.wildfly.halos.capability.wildfly.dmr.ResourceAddress;
+
+import de.skuzzle.semantic.Version;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.COMPOSITE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.FAILURE_DESCRIPTION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.NAME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OP;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OUTCOME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_ATTRIBUTE_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RESULT;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.STEPS;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.SUCCESS;
+
+public class DmrGatewayTest {
+
+    private static final WildFlyServer SERVER = new WildFlyServer("wildfly", "server-0", "WildFly Full",
+            Version.create(27, 0, 1), Version.create(19, 0, 1), Version.create(20, 0, 0), RunningMode.NORMAL,
+            ServerState.RUNNING, SuspendState.RUNNING, null);
+
+    private DmrGateway gateway;
+
+    @BeforeEach
+    public void setUp() {
+        WildFlyMetrics metrics = new WildFlyMetrics();
+        metrics.registry = new SimpleMeterRegistry();
+        metrics.tracing = new Tracing(OpenTelemetry.noop().getTracer("halos"));
+        CircuitBreakers circuitBreakers = new CircuitBreakers();
+        circuitBreakers.failures = 1000; // the circuit must not open in these tests
+        circuitBreakers.open = Duration.ofSeconds(10);
+
+        gateway = new DmrGateway();
+        gateway.metrics = metrics;
+        gateway.circuitBreakers = circuitBreakers;
+        gateway.window = Duration.ofMillis(50);
+        gateway.batchSize = 50;
+        gateway.timeout = Duration.ofSeconds(5);
+    }
+
+    // ------------------------------------------------------ batchable
+
+    @Test
+    public void readOnly() {
+        assertTrue(DmrGateway.batchable(operation("read-resource")));
+        assertTrue(DmrGateway.batchable(operation("read-children-names")));
+        assertTrue(DmrGateway.batchable(operation("query")));
+    }
+
+    @Test
+    public void sideEffects() {
+        assertFalse(DmrGateway.batchable(operation("write-attribute")));
+        assertFalse(DmrGateway.batchable(operation("reload")));
+        assertFalse(DmrGateway.batchable(operation("add")));
+        assertFalse(DmrGateway.readOnly(operation("write-attribute")));
+        assertFalse(DmrGateway.readOnly(operation("composite")));
+    }
+
+    @Test
+    public void operationHeaders() {
+        ModelNode operation = operation("read-resource");
+        operation.get(DmrGateway.OPERATION_HEADERS).get("rollback-on-runtime-failure").set(false);
+        assertTrue(DmrGateway.readOnly(operation));
+        assertFalse(DmrGateway.batchable(operation));
+    }
+
+    // ------------------------------------------------------ execute
+
+    @Test
+    public void single() throws Exception {
+        StubClient client = new StubClient();
+        ModelNode response = gateway.execute(SERVER, client, readAttribute("a")).get(5, TimeUnit.SECONDS);
+
+        assertEquals("value-a", response.get(RESULT).asString());
+        assertEquals(List.of(READ_ATTRIBUTE_OPERATION), client.operations());
+    }
+
+    @Test
+    public void window() throws Exception {
+        StubClient client = new StubClient();
+        List<CompletableFuture<ModelNode>> futures = execute(client, "a", "b", "c");
+
+        assertResponses(futures, "a", "b", "c");
+        assertEquals(List.of(COMPOSITE), client.operations());
+        ModelNode composite = client.received.get(0);
+        assertEquals(3, composite.get(STEPS).asList().size());
+        assertFalse(composite.get(DmrGateway.OPERATION_HEADERS, DmrGateway.ROLLBACK_ON_RUNTIME_FAILURE).asBoolean());
+    }
+
+    @Test
+    public void size() throws Exception {
+        gateway.window = Duration.ofHours(1); // only the batch size can trigger the flush
+        gateway.batchSize = 3;
+        StubClient client = new StubClient();
+        List<CompletableFuture<ModelNode>> futures = execute(client, "a", "b", "c");
+
+        assertResponses(futures, "a", "b", "c");
+        assertEquals(List.of(COMPOSITE), client.operations());
+        assertEquals(3, client.received.get(0).get(STEPS).asList().size());
+    }
+
+    @Test
+    public void sideEffectsNotBatched() throws Exception {
+        StubClient client = new StubClient();
+        Operation writeAttribute = new Operation.Builder(ResourceAddress.root(), "write-attribute").param(NAME, "a").build();
+        CompletableFuture<ModelNode> first = gateway.execute(SERVER, client, writeAttribute);
+        CompletableFuture<ModelNode> second = gateway.execute(SERVER, client, writeAttribute);
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("write-attribute", "write-attribute"), client.operations());
+    }
+
+    @Test
+    public void failedStep() throws Exception {
+        StubClient client = new StubClient();
+        List<CompletableFuture<ModelNode>> futures = execute(client, "a", "broken", "c");
+
+        // the steps of the other callers are taken from the composite, only the failed step is executed again
+        assertEquals("value-a", futures.get(0).get(5, TimeUnit.SECONDS).get(RESULT).asString());
+        assertTrue(ModelNodeHelper.isFailure(futures.get(1).get(5, TimeUnit.SECONDS)));
+        assertEquals("value-c", futures.get(2).get(5, TimeUnit.SECONDS).get(RESULT).asString());
+        assertEquals(List.of(COMPOSITE, READ_ATTRIBUTE_OPERATION), client.operations());
+    }
+
+    @Test
+    public void rolledBack() throws Exception {
+        StubClient client = new StubClient();
+        client.rollback = true;
+        List<CompletableFuture<ModelNode>> futures = execute(client, "a", "broken", "c");
+
+        // steps rolled back because of another step are executed on their own
+        assertEquals("value-a", futures.get(0).get(5, TimeUnit.SECONDS).get(RESULT).asString());
+        assertTrue(ModelNodeHelper.isFailure(futures.get(1).get(5, TimeUnit.SECONDS)));
+        assertEquals("value-c", futures.get(2).get(5, TimeUnit.SECONDS).get(RESULT).asString());
+        assertEquals(1, client.count(COMPOSITE));
+        assertEquals(3, client.count(READ_ATTRIBUTE_OPERATION));
+    }
+
+    @Test
+    public void failedComposite() {
+        StubClient client = new StubClient();
+        client.failComposites = true;
+        List<CompletableFuture<ModelNode>> futures = execute(client, "a", "b", "c");
+
+        // the operations are not executed again on their own
+        for (CompletableFuture<ModelNode> future : futures) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ManagementInterfaceException.class, e.getCause());
+        }
+        assertEquals(List.of(COMPOSITE), client.operations());
+    }
+
+    @Test
+    public void error() {
+        StubClient client = new StubClient();
+        client.refuse = true;
+        List<CompletableFuture<ModelNode>> futures = execute(client, "a", "b");
+
+        for (CompletableFuture<ModelNode> future : futures) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ManagementInterfaceException.class, e.getCause());
+        }
+        assertEquals(List.of(COMPOSITE), client.operations());
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        int threads = 8;
+        int operations = 50;
+        gateway.window = Duration.ofMillis(20);
+        gateway.batchSize = 25;
+        StubClient client = new StubClient();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                List<CompletableFuture<ModelNode>> futures = new ArrayList<>();
+                for (int i = 0; i < operations; i++) {
+                    futures.add(gateway.execute(SERVER, client, readAttribute(thread + "-" + i)));
+                }
+                List<String> values = new ArrayList<>();
+                for (CompletableFuture<ModelNode> future : futures) {
+                    values.add(future.get(5, TimeUnit.SECONDS).get(RESULT).asString());
+                }
+                return values;
+            }));
+        }
+        start.countDown();
+        for (int t = 0; t < threads; t++) {
+            List<String> values = results.get(t).get(10, TimeUnit.SECONDS);
+            for (int i = 0; i < operations; i++) {
+                assertEquals("value-" + t + "-" + i, values.get(i));
+            }
+        }
+        executor.shutdown();
+
+        // every operation has been sent exactly once, in composites of at most the batch size
+        int steps = 0;
+        for (ModelNode operation : client.received) {
+            if (COMPOSITE.equals(operation.get(OP).asString())) {
+                assertTrue(operation.get(STEPS).asList().size() <= gateway.batchSize);
+                steps += operation.get(STEPS).asList().size();
+            } else {
+                steps++;
+            }
+        }
+        assertEquals(threads * operations, steps);
+        assertTrue(client.count(COMPOSITE) < threads * operations);
+    }
+
+    // ------------------------------------------------------ helper
+
+    private List<CompletableFuture<ModelNode>> execute(final StubClient client, final String... attributes) {
+        List<CompletableFuture<ModelNode>> futures = new ArrayList<>();
+        for (String attribute : attributes) {
+            futures.add(gateway.execute(SERVER, client, readAttribute(attribute)));
+        }
+        return futures;
+    }
+
+    private void assertResponses(final List<CompletableFuture<ModelNode>> futures, final String... attributes)
+            throws Exception {
+        for (int i = 0; i < attributes.length; i++) {
+            ModelNode response = futures.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(SUCCESS, response.get(OUTCOME).asString());
+            assertEquals("value-" + attributes[i], response.get(RESULT).asString());
+        }
+    }
+
+    private Operation readAttribute(final String name) {
+        return new Operation.Builder(ResourceAddress.root(), READ_ATTRIBUTE_OPERATION).param(NAME, name).build();
+    }
+
+    private ModelNode operation(final String name) {
+        ModelNode operation = new ModelNode();
+        operation.get(OP).set(name);
+        return operation;
+    }
+
+    /**
+     * Answers {@code read-attribute(name=x)} with {@code value-x} and fails for the attribute {@code broken}. Composites
+     * fail if one of their steps fails. The other steps are only rolled back if {@link #rollback} is set.
+     */
+    private static final class StubClient implements ModelControllerClient {
+
+        private final List<ModelNode> received = new CopyOnWriteArrayList<>();
+        private volatile boolean rollback;
+        private volatile boolean failComposites;
+        private volatile boolean refuse;
+
+        List<String> operations() {
+            return received.stream().map(operation -> operation.get(OP).asString()).toList();
+        }
+
+        long count(final String operation) {
+            return operations().stream().filter(operation::equals).count();
+        }
+
+        @Override
+        public ModelNode execute(final ModelNode operation) throws IOException {
+            return answer(operation);
+        }
+
+        @Override
+        public ModelNode execute(final org.jboss.as.controller.client.Operation operation) throws IOException {
+            return answer(operation.getOperation());
+        }
+
+        @Override
+        public ModelNode execute(final ModelNode operation, final OperationMessageHandler messageHandler)
+                throws IOException {
+            return answer(operation);
+        }
+
+        @Override
+        public ModelNode execute(final org.jboss.as.controller.client.Operation operation,
+                final OperationMessageHandler messageHandler) throws IOException {
+            return answer(operation.getOperation());
+        }
+
+        @Override
+        public OperationResponse executeOperation(final org.jboss.as.controller.client.Operation operation,
+                final OperationMessageHandler messageHandler) throws IOException {
+            return OperationResponse.Factory.createSimple(answer(operation.getOperation()));
+        }
+
+        @Override
+        public AsyncFuture<ModelNode> executeAsync(final ModelNode operation) {
+            return async(operation);
+        }
+
+        @Override
+        public AsyncFuture<ModelNode> executeAsync(final ModelNode operation, final OperationMessageHandler messageHandler) {
+            return async(operation);
+        }
+
+        @Override
+        public AsyncFuture<ModelNode> executeAsync(final org.jboss.as.controller.client.Operation operation,
+                final OperationMessageHandler messageHandler) {
+            return async(operation.getOperation());
+        }
+
+        @Override
+        public AsyncFuture<OperationResponse> executeOperationAsync(
+                final org.jboss.as.controller.client.Operation operation, final OperationMessageHandler messageHandler) {
+            StubFuture<OperationResponse> future = new StubFuture<>();
+            try {
+                future.result(OperationResponse.Factory.createSimple(answer(operation.getOperation())));
+            } catch (IOException e) {
+                future.failed(e);
+            }
+            return future;
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+
+        private AsyncFuture<ModelNode> async(final ModelNode operation) {
+            StubFuture<ModelNode> future = new StubFuture<>();
+            try {
+                future.result(answer(operation));
+            } catch (IOException e) {
+                future.failed(e);
+            }
+            return future;
+        }
+
+        private ModelNode answer(final ModelNode operation) throws IOException {
+            received.add(operation.clone());
+            if (refuse) {
+                throw new ConnectException("Connection refused");
+            }
+            if (COMPOSITE.equals(operation.get(OP).asString())) {
+                if (failComposites) {
+                    throw new IOException("Composite failed");
+                }
+                return composite(operation);
+            }
+            return readAttribute(operation);
+        }
+
+        private ModelNode composite(final ModelNode operation) {
+            List<ModelNode> steps = new ArrayList<>();
+            boolean failed = false;
+            for (ModelNode step : operation.get(STEPS).asList()) {
+                ModelNode response = readAttribute(step);
+                failed |= ModelNodeHelper.isFailure(response);
+                steps.add(response);
+            }
+            ModelNode response = new ModelNode();
+            ModelNode result = response.get(RESULT).setEmptyObject();
+            for (int i = 0; i < steps.size(); i++) {
+                ModelNode step = steps.get(i);
+                if (failed && rollback && !ModelNodeHelper.isFailure(step)) {
+                    step = failure("Operation rolled back");
+                }
+                result.get("step-" + (i + 1)).set(step);
+            }
+            response.get(OUTCOME).set(failed ? "failed" : SUCCESS);
+            return response;
+        }
+
+        private ModelNode readAttribute(final ModelNode operation) {
+            String name = operation.get(NAME).asString();
+            if ("broken".equals(name)) {
+                return failure("Unknown attribute " + name);
+            }
+            ModelNode response = new ModelNode();
+            response.get(OUTCOME).set(SUCCESS);
+            response.get(RESULT).set("value-" + name);
+            return response;
+        }
+
+        private ModelNode failure(final String description) {
+            ModelNode response = new ModelNode();
+            response.get(OUTCOME).set("failed");
+            response.get(FAILURE_DESCRIPTION).set(description);
+            return response;
+        }
+    }
+
+    private static final class StubFuture<T> extends AsyncFutureTask<T> {
+
+        StubFuture() {
+            super(Runnable::run);
+        }
+
+        void result(final T result) {
+            setResult(result);
+        }
+
+        void failed(final Throwable cause) {
+            setFailed(cause);
+        }
+
+        @Override
+        public void asyncCancel(final boolean interruptionDesired) {
+            setCancelled();
+        }
+    }
+}
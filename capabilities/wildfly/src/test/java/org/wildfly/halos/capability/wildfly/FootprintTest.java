@@ -0,0 +1,137 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.dmr.ModelNode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openjdk.jol.info.GraphLayout;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.capability.wildfly.dmr.Composite;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+import org.wildfly.halos.capability.wildfly.dmr.ResourceAddress;
+
+import de.skuzzle.semantic.Version;
+import io.quarkus.logging.Log;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.CHILD_TYPE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.DEPLOYMENT;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_CHILDREN_RESOURCES_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+
+/**
+ * Measures the retained heap per WildFly server, deployment and recorded operation name using JOL. The repository is
+ * populated at different scales and the growth is divided by the number of added entities. The figure of a server includes
+ * its operation statistics after the operations executed for every server. Thresholds are configured in the POM
+ * ({@code halos.footprint.*}). Clients are stubs, so the remoting connection of a real client is not part of the numbers.
+ * The footprint of managed services is measured in the proxy.
+ */
+public class FootprintTest {
+
+    private static final Operation READ_RESOURCE = new Operation.Builder(ResourceAddress.root(), READ_RESOURCE_OPERATION)
+            .build();
+    private static final Operation READ_DEPLOYMENTS = new Operation.Builder(ResourceAddress.root(),
+            READ_CHILDREN_RESOURCES_OPERATION).param(CHILD_TYPE, DEPLOYMENT).build();
+    private static final Operation READ_MEMORY = new Operation.Builder(
+            ResourceAddress.from("core-service=platform-mbean/type=memory"), READ_RESOURCE_OPERATION).build();
+
+    @ParameterizedTest
+    @ValueSource(ints = { 100, 1_000, 10_000 })
+    public void server(final int count) throws IOException {
+        WildFlyServerRepository repository = new WildFlyServerRepository();
+        long empty = size(repository);
+        for (int i = 0; i < count; i++) {
+            WildFlyServer server = wildFlyServer(i, 0);
+            repository.add(managedService(i), client(), server);
+            // the connect composite and the status composite
+            ModelControllerClient client = repository.client(server.name());
+            client.execute(new Composite(READ_RESOURCE, READ_DEPLOYMENTS));
+            client.execute(new Composite(READ_MEMORY));
+            repository.stats(server.name());
+        }
+        assertFootprint("server", count, empty, size(repository));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 100, 1_000, 10_000 })
+    public void deployment(final int count) {
+        WildFlyServerRepository repository = new WildFlyServerRepository();
+        repository.add(managedService(0), client(), wildFlyServer(0, 0));
+        long empty = size(repository);
+        repository.add(managedService(0), client(), wildFlyServer(0, count));
+        assertFootprint("deployment", count, empty, size(repository));
+    }
+
+    /** Each operation name has histograms of a fixed size, no matter how many operations have been recorded. */
+    @ParameterizedTest
+    @ValueSource(ints = { 100, 1_000, 10_000 })
+    public void operation(final int count) {
+        OperationStats stats = new OperationStats("server-0");
+        long empty = size(stats);
+        for (int i = 0; i < count; i++) {
+            // typical latencies of 1 - 100 ms
+            stats.record(new Composite(READ_RESOURCE, READ_DEPLOYMENTS), 1_000_000L + (i % 1_000) * 100_000L);
+            stats.record(READ_RESOURCE, 1_000_000L + (i % 1_000) * 50_000L);
+        }
+        stats.snapshot();
+        assertFootprint("operation", 2, empty, size(stats));
+    }
+
+    // ------------------------------------------------------ helpers
+
+    private static ManagedService managedService(final int index) {
+        return new ManagedService("wildfly-" + index, Connection.connected(), Set.of(WildFlyCapability.INSTANCE));
+    }
+
+    private static WildFlyServer wildFlyServer(final int index, final int deployments) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Deployment> set = new HashSet<>();
+        for (int i = 0; i < deployments; i++) {
+            boolean enabled = i % 10 != 0;
+            set.add(new Deployment("deployment-" + i + ".war", enabled ? DeploymentStatus.OK : DeploymentStatus.STOPPED,
+                    enabled, enabled ? null : now.minusMinutes(i), now.minusHours(i)));
+        }
+        return new WildFlyServer("wildfly-" + index, "server-" + index, "WildFly Full", Version.create(27, 0, 1),
+                Version.create(19, 0, 1), Version.create(20, 0, 0), RunningMode.NORMAL, ServerState.RUNNING,
+                SuspendState.RUNNING, set);
+    }
+
+    private static ModelControllerClient client() {
+        return (ModelControllerClient) Proxy.newProxyInstance(FootprintTest.class.getClassLoader(),
+                new Class<?>[] { ModelControllerClient.class }, (proxy, method, args) -> new ModelNode());
+    }
+
+    private static long size(final Object root) {
+        return GraphLayout.parseInstance(root).totalSize();
+    }
+
+    private static void assertFootprint(final String entity, final int count, final long before, final long after) {
+        long threshold = Long.getLong("halos.footprint." + entity, Long.MAX_VALUE);
+        long bytes = (after - before) / count;
+        Log.infof("Footprint of %s (%,d): %,d bytes each, threshold %,d bytes", entity, count, bytes, threshold);
+        assertTrue(bytes <= threshold,
+                String.format("Footprint of %s is %,d bytes, threshold is %,d bytes", entity, bytes, threshold));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbConfig;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ConnectionJsonWriter;
+import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.api.ManagedServiceJsonWriter;
+import org.wildfly.halos.api.ManagedServiceModification;
+import org.wildfly.halos.api.ManagedServiceModificationJsonWriter;
+import org.wildfly.halos.api.Modification;
+import org.wildfly.halos.api.json.JsonWriters;
+
+import de.skuzzle.semantic.Version;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** The generated writers must produce the same JSON as JSON-B (configured like in the proxy) for the same records. */
+public class JsonWritersTest {
+
+    private Jsonb jsonb;
+    private JsonWriters writers;
+
+    @BeforeEach
+    public void setUp() {
+        jsonb = JsonbBuilder
+                .create(new JsonbConfig().withSerializers(new VersionSerializerRegistrationCustomizer.VersionSerializer()));
+        writers = new JsonWriters(List.of(
+                new ConnectionJsonWriter(),
+                new ManagedServiceJsonWriter(),
+                new ManagedServiceModificationJsonWriter(),
+                new DeploymentJsonWriter(),
+                new ServerStatsJsonWriter(),
+                new ServerStats_OperationLatencyJsonWriter(),
+                new ServerStats_SlowOperationJsonWriter(),
+                new StatusJsonWriter(),
+                new Status_MemoryJsonWriter(),
+                new Status_OperatingSystemJsonWriter(),
+                new Status_RuntimeJsonWriter(),
+                new Status_ThreadsJsonWriter(),
+                new VersionJsonWriter(),
+                new WildFlyCapabilityJsonWriter(),
+                new WildFlyServerJsonWriter()), jsonb);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Test
+    public void managedServiceModification() throws IOException {
+        ManagedService connected = new ManagedService("wildfly-0", Connection.connected(), Set.of(WildFlyCapability.INSTANCE));
+        ManagedService failed = new ManagedService("wildfly-1", Connection.failed("Connection \"refused\"\n"),
+                Set.of(WildFlyCapability.INSTANCE));
+        ManagedService open = new ManagedService("wildfly-2",
+                Connection.connected().withCircuit(Connection.Circuit.OPEN, "Circuit breaker open"), Set.of());
+
+        assertSameJson(new ManagedServiceModification(connected, Modification.ADD));
+        assertSameJson(new ManagedServiceModification(failed, Modification.UPDATE));
+        assertSameJson(new ManagedServiceModification(open, Modification.DELETE));
+    }
+
+    @Test
+    public void wildFlyServers() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Deployment> deployments = new LinkedHashSet<>();
+        deployments.add(new Deployment("enabled.war", DeploymentStatus.OK, true, null, now.minusHours(1)));
+        deployments.add(new Deployment("disabled.war", DeploymentStatus.STOPPED, false, now.minusMinutes(5),
+                now.minusDays(1)));
+        deployments.add(new Deployment("undefined.ear", null, false, null, null));
+        WildFlyServer server = new WildFlyServer("wildfly-0", "server-0", "WildFly Full", Version.create(27, 0, 1),
+                Version.create(19, 0, 1), Version.create(20, 0, 0), RunningMode.NORMAL, ServerState.RUNNING,
+                SuspendState.RUNNING, deployments);
+        WildFlyServer empty = new WildFlyServer("wildfly-1", "server-1", null, null, null, null, RunningMode.ADMIN_ONLY,
+                ServerState.RELOAD_REQUIRED, null, Set.of());
+
+        assertSameJson(server);
+        assertSameJson(List.of(server, empty));
+    }
+
+    @Test
+    public void status() throws IOException {
+        assertSameJson(new Status(new Status.OperatingSystem("Linux", "5.14.0", 4),
+                new Status.Runtime("OpenJDK 64-Bit Server VM", "17", 3_600_000L), new Status.Memory(312, 512, 1024),
+                new Status.Memory(98, 120, -1), new Status.Threads(87, 42)));
+    }
+
+    @Test
+    public void serverStats() throws IOException {
+        assertSameJson(new ServerStats("server-0",
+                List.of(new ServerStats.OperationLatency("composite", 120, 0.5, 2.25, 1.9, 4.1, 12.0, 15.5, 17.25),
+                        new ServerStats.OperationLatency("read-resource", 0, 0, 0, 0, 0, 0, 0, 0)),
+                List.of(new ServerStats.SlowOperation("composite", "composite(steps=[:read-resource])", 17.25,
+                        LocalDateTime.now()))));
+    }
+
+    private void assertSameJson(final Object value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writers.write(value, out);
+        assertEquals(jsonb.toJson(value), out.toString(UTF_8));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.halos.capability.wildfly.dmr.Composite;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+import org.wildfly.halos.capability.wildfly.dmr.ResourceAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.ADDRESS;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.COMPOSITE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OP;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_CHILDREN_RESOURCES_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.STEPS;
+
+public class OperationStatsTest {
+
+    private OperationStats stats;
+    private Operation readResource;
+
+    @BeforeEach
+    public void setUp() {
+        stats = new OperationStats("server");
+        readResource = new Operation.Builder(ResourceAddress.root(), READ_RESOURCE_OPERATION).build();
+    }
+
+    @Test
+    public void histogramPerOperation() {
+        Operation readChildren = new Operation.Builder(ResourceAddress.root(), READ_CHILDREN_RESOURCES_OPERATION).build();
+        for (int i = 1; i <= 100; i++) {
+            stats.record(readResource, i * 1_000_000L);
+        }
+        stats.record(new Composite(readResource, readChildren), 5_000_000L);
+
+        ServerStats snapshot = stats.snapshot();
+        assertEquals("server", snapshot.server());
+        assertEquals(2, snapshot.operations().size());
+        ServerStats.OperationLatency composite = snapshot.operations().get(0);
+        assertEquals(COMPOSITE, composite.operation());
+        assertEquals(1, composite.count());
+        ServerStats.OperationLatency latency = snapshot.operations().get(1);
+        assertEquals(READ_RESOURCE_OPERATION, latency.operation());
+        assertEquals(100, latency.count());
+        // two significant digits
+        assertEquals(50, latency.p50(), 1);
+        assertEquals(100, latency.max(), 1);
+    }
+
+    @Test
+    public void boundedNames() {
+        Operation readChildren = new Operation.Builder(ResourceAddress.root(), READ_CHILDREN_RESOURCES_OPERATION).build();
+        stats.record(new Composite(readResource), 1_000_000L);
+        stats.record(new Composite(readResource, readChildren), 1_000_000L);
+        for (int i = 0; i < 100; i++) {
+            stats.record(new Operation.Builder(ResourceAddress.root(), "custom-" + i).build(), 1_000_000L);
+        }
+
+        ServerStats snapshot = stats.snapshot();
+        assertEquals(2, snapshot.operations().size());
+        assertEquals(COMPOSITE, snapshot.operations().get(0).operation());
+        assertEquals(2, snapshot.operations().get(0).count());
+        assertEquals(OperationStats.OTHER, snapshot.operations().get(1).operation());
+        assertEquals(100, snapshot.operations().get(1).count());
+    }
+
+    @Test
+    public void highestTrackable() {
+        stats.record(readResource, TimeUnit.HOURS.toNanos(1));
+        ServerStats.OperationLatency latency = stats.snapshot().operations().get(0);
+        assertEquals(1, latency.count());
+        assertEquals(OperationStats.HIGHEST_TRACKABLE / 1_000.0, latency.max(), OperationStats.HIGHEST_TRACKABLE / 100.0);
+    }
+
+    @Test
+    public void cumulative() {
+        stats.record(readResource, 1_000_000L);
+        assertEquals(1, stats.snapshot().operations().get(0).count());
+        stats.record(readResource, 1_000_000L);
+        assertEquals(2, stats.snapshot().operations().get(0).count());
+    }
+
+    @Test
+    public void slowest() {
+        for (int i = 1; i <= 100; i++) {
+            stats.record(readResource, i * 1_000_000L);
+        }
+
+        ServerStats snapshot = stats.snapshot();
+        assertEquals(OperationStats.SLOWEST_SIZE, snapshot.slowest().size());
+        assertEquals(100, snapshot.slowest().get(0).duration(), 0.001);
+        assertEquals(101 - OperationStats.SLOWEST_SIZE,
+                snapshot.slowest().get(OperationStats.SLOWEST_SIZE - 1).duration(), 0.001);
+        assertEquals(readResource.asCli(), snapshot.slowest().get(0).cli());
+    }
+
+    @Test
+    public void recordDoesNotModifyOperation() {
+        ModelNode operation = new ModelNode();
+        operation.get(OP).set(COMPOSITE);
+        stats.record(operation, 1_000_000_000L);
+        assertFalse(operation.has(STEPS));
+        assertFalse(operation.has(ADDRESS));
+        assertEquals(COMPOSITE, stats.snapshot().operations().get(0).operation());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wildfly.halos.capability.wildfly.ResourceDescriptionRepository.Description;
+import org.wildfly.halos.capability.wildfly.dmr.ResourceAddress;
+
+import de.skuzzle.semantic.Version;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResourceDescriptionRepositoryTest {
+
+    private static final String TEMPLATE = "/subsystem=datasources/data-source=*";
+    private static final long MEMORY_SIZE = 1 << 20;
+    private static final long DISK_SIZE = 1 << 20;
+
+    @TempDir Path directory;
+
+    @Test
+    public void shared() {
+        assertEquals(ResourceDescriptionRepository.key(server("server-0", Version.create(20, 0, 0)), address(TEMPLATE)),
+                ResourceDescriptionRepository.key(server("server-1", Version.create(20, 0, 0)), address(TEMPLATE)));
+        assertEquals(ResourceDescriptionRepository.key(server("server-0", Version.create(20, 0, 0)), address(TEMPLATE)),
+                ResourceDescriptionRepository.key(server("server-0", Version.create(20, 0, 0)),
+                        address("subsystem=datasources/data-source=*")));
+    }
+
+    @Test
+    public void notShared() {
+        assertNotEquals(ResourceDescriptionRepository.key(server("server-0", Version.create(20, 0, 0)), address(TEMPLATE)),
+                ResourceDescriptionRepository.key(server("server-1", Version.create(21, 0, 0)), address(TEMPLATE)));
+        assertNotEquals(ResourceDescriptionRepository.key(server("server-0", Version.ZERO), address(TEMPLATE)),
+                ResourceDescriptionRepository.key(server("server-1", Version.ZERO), address(TEMPLATE)));
+    }
+
+    @Test
+    public void template() {
+        assertEquals(TEMPLATE, ResourceDescriptionRepository.template(address("/subsystem=datasources/data-source=ExampleDS"))
+                .toString());
+        assertEquals("/deployment=*/subsystem=undertow", ResourceDescriptionRepository.template(
+                address("/deployment=app.war/subsystem=undertow")).toString());
+        assertEquals("/core-service=platform-mbean/type=memory", ResourceDescriptionRepository.template(
+                address("/core-service=platform-mbean/type=memory")).toString());
+        assertTrue(ResourceDescriptionRepository.template(ResourceAddress.root()).isEmpty());
+    }
+
+    @Test
+    public void persisted() throws Exception {
+        String key = ResourceDescriptionRepository.key(server("server-0", Version.create(20, 0, 0)), address(TEMPLATE));
+        Description description = Description.of(key, description());
+        repository().store(description);
+
+        Description loaded = repository().load(key);
+        assertEquals(description.hash(), loaded.hash());
+        assertEquals(description(), loaded.modelNode());
+        assertNull(repository().load(key + "/foo=bar"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void truncated() throws Exception {
+        String key = ResourceDescriptionRepository.key(server("server-0", Version.create(20, 0, 0)), address(TEMPLATE));
+        repository().store(Description.of(key, description()));
+        try (Stream<Path> files = Files.list(directory)) {
+            Path file = files.findFirst().orElseThrow();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 1);
+            }
+        }
+
+        assertNull(repository().load(key));
+    }
+
+    @Test
+    public void serverNotPersisted() throws Exception {
+        String key = ResourceDescriptionRepository.key(server("server-0", Version.ZERO), address(TEMPLATE));
+        repository().store(Description.of(key, description()));
+
+        assertNull(repository().load(key));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void pruned() throws Exception {
+        Description first = Description.of("product|1|1|/a=*", description());
+        ResourceDescriptionRepository repository = new ResourceDescriptionRepository(directory, MEMORY_SIZE,
+                2L * first.dmr().length + 100);
+        repository.store(first);
+        Thread.sleep(10); // distinct modification times
+        repository.store(Description.of("product|1|1|/b=*", description()));
+        Thread.sleep(10);
+        repository.store(Description.of("product|1|1|/c=*", description()));
+
+        // the least recently used description has been deleted
+        assertNull(repository.load("product|1|1|/a=*"));
+        assertNotNull(repository.load("product|1|1|/c=*"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    public void notPersisted() {
+        ResourceDescriptionRepository repository = new ResourceDescriptionRepository();
+        repository.store(Description.of("key", description()));
+        assertNull(repository.load("key"));
+    }
+
+    private ResourceDescriptionRepository repository() {
+        return new ResourceDescriptionRepository(directory, MEMORY_SIZE, DISK_SIZE);
+    }
+
+    private WildFlyServer server(final String name, final Version managementVersion) {
+        return new WildFlyServer("wildfly", name, "WildFly Full", Version.create(27, 0, 1), Version.create(19, 0, 1),
+                managementVersion, RunningMode.NORMAL, ServerState.RUNNING, SuspendState.RUNNING, Set.of());
+    }
+
+    private ResourceAddress address(final String template) {
+        return ResourceAddress.from(template);
+    }
+
+    private ModelNode description() {
+        ModelNode description = new ModelNode();
+        description.get("description").set("A JDBC data-source configuration");
+        description.get("attributes", "jndi-name", "type").set("STRING");
+        description.get("operations", "flush-all-connection-in-pool", "description").set("Flush all connections");
+        return description;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.jupiter.api.Test;
+import org.wildfly.halos.capability.wildfly.WildFlyServerModification.Type;
+
+import de.skuzzle.semantic.Version;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ServerRefresherTest {
+
+    private static final LocalDateTime ENABLED_AT = LocalDateTime.of(2022, 10, 1, 12, 0);
+
+    @Test
+    public void unchanged() {
+        Set<Deployment> deployments = Set.of(deployment("a.war", DeploymentStatus.OK));
+        assertTrue(ServerRefresher.diff(server(ServerState.RUNNING, deployments),
+                server(ServerState.RUNNING, Set.of(deployment("a.war", DeploymentStatus.OK)))).isEmpty());
+    }
+
+    @Test
+    public void serverState() {
+        List<WildFlyServerModification> modifications = ServerRefresher.diff(server(ServerState.RUNNING, Set.of()),
+                server(ServerState.RELOAD_REQUIRED, Set.of()));
+        assertEquals(List.of(WildFlyServerModification.serverState("server-0", ServerState.RELOAD_REQUIRED)),
+                modifications);
+    }
+
+    @Test
+    public void deployments() {
+        Deployment a = deployment("a.war", DeploymentStatus.OK);
+        Deployment b = deployment("b.war", DeploymentStatus.OK);
+        Deployment c = deployment("c.war", DeploymentStatus.OK);
+        Deployment failedB = deployment("b.war", DeploymentStatus.FAILED);
+
+        List<WildFlyServerModification> modifications = ServerRefresher.diff(server(ServerState.RUNNING, Set.of(a, b)),
+                server(ServerState.RUNNING, Set.of(failedB, c)));
+        assertEquals(3, modifications.size());
+        assertTrue(modifications.contains(WildFlyServerModification.deployment("server-0", Type.DEPLOYMENT_ADDED, c)));
+        assertTrue(modifications
+                .contains(WildFlyServerModification.deployment("server-0", Type.DEPLOYMENT_CHANGED, failedB)));
+        assertTrue(modifications.contains(WildFlyServerModification.deployment("server-0", Type.DEPLOYMENT_REMOVED, a)));
+    }
+
+    @Test
+    public void hash() {
+        assertEquals(ServerRefresher.hash(deploymentsNode("OK")), ServerRefresher.hash(deploymentsNode("OK")));
+        assertNotEquals(ServerRefresher.hash(deploymentsNode("OK")), ServerRefresher.hash(deploymentsNode("FAILED")));
+    }
+
+    private WildFlyServer server(final ServerState serverState, final Set<Deployment> deployments) {
+        return new WildFlyServer("wildfly", "server-0", "WildFly Full", Version.create(27, 0, 1), Version.create(19, 0, 1),
+                Version.create(20, 0, 0), RunningMode.NORMAL, serverState, SuspendState.RUNNING, deployments);
+    }
+
+    private Deployment deployment(final String name, final DeploymentStatus status) {
+        return new Deployment(name, status, true, null, ENABLED_AT);
+    }
+
+    private ModelNode deploymentsNode(final String status) {
+        ModelNode deployments = new ModelNode();
+        deployments.get("a.war", "enabled").set(true);
+        deployments.get("a.war", "status").set(status);
+        return deployments;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.wildfly.halos.capability.wildfly.StatusMetric.HEAP_USED;
+import static org.wildfly.halos.capability.wildfly.StatusMetric.THREADS;
+
+public class StatusStoreTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long START = 10 * DAY;
+    private static final String SERVER = "server-0";
+
+    @TempDir Path directory;
+    private StatusStore store;
+
+    @AfterEach
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void disabled() {
+        assertFalse(new StatusStore().enabled());
+    }
+
+    @Test
+    public void range() {
+        store = new StatusStore(directory, 100, 7);
+        for (int i = 0; i < 10; i++) {
+            store.status(SERVER, START + i * 1_000, status(i));
+        }
+
+        StatusHistory history = store.history(SERVER, HEAP_USED, START + 2_000, START + 5_000);
+        assertArrayEquals(new long[] { START + 2_000, START + 3_000, START + 4_000, START + 5_000 }, history.timestamps());
+        assertArrayEquals(new double[] { 2, 3, 4, 5 }, history.avg());
+        assertArrayEquals(new double[] { 20, 30, 40, 50 },
+                store.history(SERVER, THREADS, START + 2_000, START + 5_000).avg());
+        assertEquals(0, store.history("unknown", HEAP_USED, START, START + DAY).timestamps().length);
+    }
+
+    @Test
+    public void recovery() {
+        store = new StatusStore(directory, 100, 7);
+        for (int i = 0; i < 5; i++) {
+            store.status(SERVER, START + i * 1_000, status(i));
+        }
+        store.close();
+
+        store = new StatusStore(directory, 100, 7);
+        store.status(SERVER, START + 5_000, status(5));
+        assertArrayEquals(new double[] { 0, 1, 2, 3, 4, 5 }, store.history(SERVER, HEAP_USED, START, START + DAY).avg());
+    }
+
+    @Test
+    public void tornRecord() throws IOException {
+        store = new StatusStore(directory, 100, 7);
+        for (int i = 0; i < 3; i++) {
+            store.status(SERVER, START + i * 1_000, status(i));
+        }
+        store.close();
+
+        // corrupt the value of the third record (slot 0 is the header)
+        try (Stream<Path> segments = Files.list(directory.resolve(SERVER));
+                FileChannel channel = FileChannel.open(segments.findFirst().orElseThrow(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 42 }), 3L * StatusStore.RECORD_SIZE + 20);
+        }
+
+        store = new StatusStore(directory, 100, 7);
+        assertArrayEquals(new double[] { 0, 1 }, store.history(SERVER, HEAP_USED, START, START + DAY).avg());
+        store.status(SERVER, START + 3_000, status(3));
+        assertArrayEquals(new double[] { 0, 1, 3 }, store.history(SERVER, HEAP_USED, START, START + DAY).avg());
+    }
+
+    @Test
+    public void roll() throws IOException {
+        store = new StatusStore(directory, 4, 7);
+        for (int i = 0; i < 10; i++) {
+            store.status(SERVER, START + i * 1_000, status(i));
+        }
+
+        assertEquals(3, segments());
+        assertEquals(10, store.history(SERVER, HEAP_USED, START, START + DAY).timestamps().length);
+        assertArrayEquals(new long[] { START + 3_000, START + 4_000 },
+                store.history(SERVER, HEAP_USED, START + 3_000, START + 4_000).timestamps());
+    }
+
+    @Test
+    public void retention() throws IOException {
+        store = new StatusStore(directory, 100, 2);
+        store.status(SERVER, START, status(0));
+        store.status(SERVER, START + DAY, status(1));
+        assertEquals(2, segments());
+
+        store.status(SERVER, START + 2 * DAY, status(2));
+        assertEquals(2, segments());
+        assertArrayEquals(new double[] { 1, 2 }, store.history(SERVER, HEAP_USED, START, START + 3 * DAY).avg());
+    }
+
+    @Test
+    public void outOfOrder() {
+        store = new StatusStore(directory, 100, 7);
+        store.status(SERVER, START + 2_000, status(2));
+        store.status(SERVER, START + 1_000, status(1));
+
+        assertArrayEquals(new long[] { START + 2_000, START + 2_000 },
+                store.history(SERVER, HEAP_USED, START, START + DAY).timestamps());
+    }
+
+    @Test
+    public void connections() {
+        store = new StatusStore(directory, 100, 7);
+        store.connection(SERVER, START, true);
+        store.status(SERVER, START + 1_000, status(1));
+        store.connection(SERVER, START + 2_000, false);
+
+        ConnectionHistory history = store.connections(SERVER, START, START + DAY);
+        assertArrayEquals(new long[] { START, START + 2_000 }, history.timestamps());
+        assertArrayEquals(new String[] { "CONNECTED", "DISCONNECTED" }, history.events());
+        assertEquals(1, store.history(SERVER, HEAP_USED, START, START + DAY).timestamps().length);
+    }
+
+    @Test
+    public void reconnect() throws IOException {
+        store = new StatusStore(directory, 100, 7);
+        store.connection(SERVER, START, true);
+        store.status(SERVER, START + 1_000, status(1));
+        assertTrue(store.open(SERVER));
+
+        store.connection(SERVER, START + 2_000, false);
+        assertFalse(store.open(SERVER));
+        assertEquals(2, store.connections(SERVER, START, START + DAY).timestamps().length);
+
+        // the segment is opened again and appended after the existing records
+        store.connection(SERVER, START + 3_000, true);
+        store.status(SERVER, START + 4_000, status(4));
+        assertTrue(store.open(SERVER));
+        assertEquals(1, segments());
+        assertArrayEquals(new double[] { 1, 4 }, store.history(SERVER, HEAP_USED, START, START + DAY).avg());
+        assertArrayEquals(new String[] { "CONNECTED", "DISCONNECTED", "CONNECTED" },
+                store.connections(SERVER, START, START + DAY).events());
+    }
+
+    @Test
+    public void preallocated() throws IOException {
+        store = new StatusStore(directory, 100, 7);
+        store.status(SERVER, START, status(0));
+
+        try (Stream<Path> segments = Files.list(directory.resolve(SERVER))) {
+            assertEquals(101L * StatusStore.RECORD_SIZE, Files.size(segments.findFirst().orElseThrow()));
+        }
+    }
+
+    @Test
+    public void strayFiles() throws IOException {
+        store = new StatusStore(directory, 100, 7);
+        store.status(SERVER, START, status(0));
+        store.close();
+        Files.writeString(directory.resolve(SERVER).resolve("backup-copy.seg"), "stray");
+        Files.writeString(directory.resolve(SERVER).resolve("10-0.seg.bak"), "stray");
+
+        store = new StatusStore(directory, 100, 7);
+        store.status(SERVER, START + 1_000, status(1));
+        assertArrayEquals(new double[] { 0, 1 }, store.history(SERVER, HEAP_USED, START, START + DAY).avg());
+    }
+
+    @Test
+    public void directoryNames() {
+        assertEquals("server-0", StatusStore.directoryName("server-0"));
+        assertEquals("a%2Eb", StatusStore.directoryName("a.b"));
+        assertEquals("a%2Fb", StatusStore.directoryName("a/b"));
+        assertEquals("%2E%2E", StatusStore.directoryName(".."));
+        assertEquals("%C3%A4", StatusStore.directoryName("\u00e4"));
+
+        store = new StatusStore(directory, 100, 7);
+        store.status("a.b", START, status(1));
+        store.status("a_b", START, status(2));
+        assertArrayEquals(new double[] { 1 }, store.history("a.b", HEAP_USED, START, START + DAY).avg());
+        assertArrayEquals(new double[] { 2 }, store.history("a_b", HEAP_USED, START, START + DAY).avg());
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> segments = Files.list(directory.resolve(SERVER))) {
+            return segments.count();
+        }
+    }
+
+    private static Status status(final int value) {
+        return new Status(new Status.OperatingSystem("Linux", "6.0", 4), new Status.Runtime("OpenJDK", "17", value),
+                new Status.Memory(value, value, value), new Status.Memory(value, value, value),
+                new Status.Threads(value * 10L, value));
+    }
+}
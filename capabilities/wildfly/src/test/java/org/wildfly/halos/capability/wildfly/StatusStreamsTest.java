@@ -0,0 +1,204 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ManagedService;
+
+import de.skuzzle.semantic.Version;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatusStreamsTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final ManagedService MANAGED_SERVICE = new ManagedService("wildfly", Connection.pending(), Set.of());
+    private static final ModelControllerClient CLIENT = (ModelControllerClient) Proxy.newProxyInstance(
+            ModelControllerClient.class.getClassLoader(), new Class<?>[] { ModelControllerClient.class },
+            (proxy, method, args) -> null);
+
+    private WildFlyServerRepository serverRepository;
+    private CountingStatusRepository statusRepository;
+    private StatusStreams streams;
+
+    @BeforeEach
+    public void setUp() {
+        serverRepository = new WildFlyServerRepository();
+        serverRepository.add(MANAGED_SERVICE, CLIENT, new WildFlyServer("wildfly", "server-0", "WildFly Full",
+                Version.create(27, 0, 1), Version.create(19, 0, 1), Version.create(20, 0, 0), RunningMode.NORMAL,
+                ServerState.RUNNING, SuspendState.RUNNING, Set.of()));
+        statusRepository = new CountingStatusRepository();
+        streams = new StatusStreams();
+        streams.serverRepository = serverRepository;
+        streams.statusRepository = statusRepository;
+    }
+
+    // ------------------------------------------------------ tiers
+
+    @Test
+    public void exactTier() {
+        for (int tier : StatusStreams.TIERS) {
+            assertEquals(tier, StatusStreams.tier(tier));
+        }
+    }
+
+    @Test
+    public void roundUp() {
+        assertEquals(5, StatusStreams.tier(3));
+        assertEquals(10, StatusStreams.tier(6));
+        assertEquals(60, StatusStreams.tier(31));
+    }
+
+    @Test
+    public void bounds() {
+        assertEquals(1, StatusStreams.tier(-1));
+        assertEquals(1, StatusStreams.tier(0));
+        assertEquals(60, StatusStreams.tier(3600));
+    }
+
+    // ------------------------------------------------------ streams
+
+    @Test
+    public void emit() {
+        AssertSubscriber<Status> subscriber = streams.stream("server-0", 1).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+
+        // the first sample is read right away, the next one after a second
+        subscriber.awaitItems(2, TIMEOUT);
+        assertEquals(1, subscriber.getItems().get(0).threads().threads());
+        assertEquals(2, subscriber.getItems().get(1).threads().threads());
+        subscriber.cancel();
+    }
+
+    @Test
+    public void lastSampleFirst() {
+        AssertSubscriber<Status> first = streams.stream("server-0", 30).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+        first.awaitItems(1, TIMEOUT);
+
+        // same tier: the sampler is shared, and the second subscriber starts with the last sample
+        AssertSubscriber<Status> second = streams.stream("server-0", 25).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+        second.awaitItems(1, TIMEOUT);
+        assertEquals(1, second.getItems().get(0).threads().threads());
+        assertEquals(1, statusRepository.reads.get());
+        first.cancel();
+        second.cancel();
+    }
+
+    @Test
+    public void tiers() {
+        AssertSubscriber<Status> fast = streams.stream("server-0", 1).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+        AssertSubscriber<Status> slow = streams.stream("server-0", 60).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+
+        // each tier has its own sampler: the fast one keeps emitting while the slow one waits for its next tick
+        fast.awaitItems(3, TIMEOUT);
+        slow.awaitItems(1, TIMEOUT);
+        assertTrue(slow.getItems().size() <= 2);
+        fast.cancel();
+        slow.cancel();
+    }
+
+    @Test
+    public void serverRemoved() {
+        AssertSubscriber<Status> subscriber = streams.stream("server-0", 1).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+        subscriber.awaitItems(1, TIMEOUT);
+
+        serverRepository.remove(MANAGED_SERVICE);
+        subscriber.awaitCompletion(TIMEOUT);
+        assertEquals(0, streams.samplers());
+    }
+
+    @Test
+    public void failedRead() {
+        statusRepository.failAt = 2;
+        AssertSubscriber<Status> subscriber = streams.stream("server-0", 1).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+
+        // the second read fails and is skipped, the stream goes on with the third one
+        subscriber.awaitItems(2, TIMEOUT);
+        assertEquals(1, subscriber.getItems().get(0).threads().threads());
+        assertEquals(3, subscriber.getItems().get(1).threads().threads());
+        subscriber.cancel();
+    }
+
+    @Test
+    public void restart() {
+        AssertSubscriber<Status> first = streams.stream("server-0", 1).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+        AssertSubscriber<Status> second = streams.stream("server-0", 1).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+        first.awaitItems(1, TIMEOUT);
+        assertEquals(1, streams.samplers());
+
+        // the sampler stays as long as one subscriber is left, and is removed with the last one
+        first.cancel();
+        assertEquals(1, streams.samplers());
+        second.cancel();
+        assertEquals(0, streams.samplers());
+
+        // a new subscriber starts a new sampler
+        AssertSubscriber<Status> third = streams.stream("server-0", 1).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+        int reads = statusRepository.reads.get();
+        third.awaitItems(2, TIMEOUT);
+        assertTrue(statusRepository.reads.get() > reads);
+        assertEquals(1, streams.samplers());
+        third.cancel();
+    }
+
+    /**
+     * Counts the reads and returns a status with the number of the read as thread count. The read given in {@code failAt}
+     * fails.
+     */
+    private static final class CountingStatusRepository extends StatusRepository {
+
+        private final AtomicInteger reads = new AtomicInteger();
+        private volatile int failAt;
+        private volatile Sample last;
+
+        @Override
+        Status refresh(final ModelControllerClient client, final WildFlyServer server) {
+            int read = reads.incrementAndGet();
+            if (read == failAt) {
+                throw new IllegalStateException("read " + read + " failed");
+            }
+            Status.Memory memory = new Status.Memory(read, read, read);
+            Status status = new Status(new Status.OperatingSystem("Linux", "6.0", 4), new Status.Runtime("OpenJDK", "17", read),
+                    memory, memory, new Status.Threads(read, read));
+            last = new Sample(status, memory, memory, System.currentTimeMillis());
+            return status;
+        }
+
+        @Override
+        Sample lastSample(final String serverName) {
+            return last;
+        }
+    }
+}
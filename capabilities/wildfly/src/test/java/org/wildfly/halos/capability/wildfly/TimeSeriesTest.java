@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.wildfly.halos.capability.wildfly.TimeSeries.Resolution.MINUTE;
+import static org.wildfly.halos.capability.wildfly.TimeSeries.Resolution.RAW;
+import static org.wildfly.halos.capability.wildfly.TimeSeries.Resolution.TEN_MINUTES;
+
+public class TimeSeriesTest {
+
+    private static final long MINUTE_MILLIS = 60_000;
+
+    @Test
+    public void empty() {
+        TimeSeries timeSeries = new TimeSeries(4, 4, 4);
+        assertEquals(0, timeSeries.range(RAW, 0, Long.MAX_VALUE).timestamps().length);
+        assertTrue(timeSeries.covers(RAW, 0));
+    }
+
+    @Test
+    public void raw() {
+        TimeSeries timeSeries = new TimeSeries(4, 4, 4);
+        timeSeries.add(1_000, 1);
+        timeSeries.add(2_000, 2);
+        timeSeries.add(3_000, 3);
+
+        TimeSeries.Range range = timeSeries.range(RAW, 0, Long.MAX_VALUE);
+        assertArrayEquals(new long[] { 1_000, 2_000, 3_000 }, range.timestamps());
+        assertArrayEquals(new double[] { 1, 2, 3 }, range.min());
+        assertArrayEquals(new double[] { 1, 2, 3 }, range.max());
+        assertArrayEquals(new double[] { 1, 2, 3 }, range.avg());
+    }
+
+    @Test
+    public void wrapAround() {
+        TimeSeries timeSeries = new TimeSeries(3, 3, 3);
+        for (int i = 1; i <= 5; i++) {
+            timeSeries.add(i * 1_000L, i);
+        }
+
+        TimeSeries.Range range = timeSeries.range(RAW, 0, Long.MAX_VALUE);
+        assertArrayEquals(new long[] { 3_000, 4_000, 5_000 }, range.timestamps());
+        assertArrayEquals(new double[] { 3, 4, 5 }, range.avg());
+        assertFalse(timeSeries.covers(RAW, 2_000));
+        assertTrue(timeSeries.covers(RAW, 3_000));
+    }
+
+    @Test
+    public void range() {
+        TimeSeries timeSeries = new TimeSeries(10, 4, 4);
+        for (int i = 1; i <= 10; i++) {
+            timeSeries.add(i * 1_000L, i);
+        }
+
+        TimeSeries.Range range = timeSeries.range(RAW, 4_000, 6_000);
+        assertArrayEquals(new long[] { 4_000, 5_000, 6_000 }, range.timestamps());
+        assertEquals(0, timeSeries.range(RAW, 11_000, 12_000).timestamps().length);
+    }
+
+    @Test
+    public void outOfOrder() {
+        TimeSeries timeSeries = new TimeSeries(4, 4, 4);
+        timeSeries.add(2_000, 2);
+        timeSeries.add(1_000, 1);
+
+        assertArrayEquals(new long[] { 2_000 }, timeSeries.range(RAW, 0, Long.MAX_VALUE).timestamps());
+    }
+
+    @Test
+    public void rollups() {
+        TimeSeries timeSeries = new TimeSeries(4, 4, 4);
+        // two samples in the first minute, three in the second
+        timeSeries.add(10_000, 4);
+        timeSeries.add(20_000, 2);
+        timeSeries.add(MINUTE_MILLIS, 1);
+        timeSeries.add(MINUTE_MILLIS + 10_000, 5);
+        timeSeries.add(MINUTE_MILLIS + 20_000, 3);
+
+        TimeSeries.Range minutes = timeSeries.range(MINUTE, 0, Long.MAX_VALUE);
+        assertArrayEquals(new long[] { 0, MINUTE_MILLIS }, minutes.timestamps());
+        assertArrayEquals(new double[] { 2, 1 }, minutes.min());
+        assertArrayEquals(new double[] { 4, 5 }, minutes.max());
+        assertArrayEquals(new double[] { 3, 3 }, minutes.avg());
+
+        TimeSeries.Range tenMinutes = timeSeries.range(TEN_MINUTES, 0, Long.MAX_VALUE);
+        assertArrayEquals(new long[] { 0 }, tenMinutes.timestamps());
+        assertArrayEquals(new double[] { 1 }, tenMinutes.min());
+        assertArrayEquals(new double[] { 5 }, tenMinutes.max());
+        assertArrayEquals(new double[] { 3 }, tenMinutes.avg());
+    }
+
+    @Test
+    public void disabledResolution() {
+        TimeSeries timeSeries = new TimeSeries(4, 0, 4);
+        timeSeries.add(1_000, 1);
+
+        assertEquals(0, timeSeries.range(MINUTE, 0, Long.MAX_VALUE).timestamps().length);
+        assertFalse(timeSeries.covers(MINUTE, 0));
+    }
+}
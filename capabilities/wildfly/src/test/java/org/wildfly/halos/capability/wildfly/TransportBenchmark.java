@@ -0,0 +1,195 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.dmr.ModelNode;
+import org.junit.jupiter.api.Test;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.capability.wildfly.dmr.Operation;
+import org.wildfly.halos.capability.wildfly.dmr.ResourceAddress;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+
+import com.google.common.net.HostAndPort;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.NAME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_ATTRIBUTE_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.SERVER_STATE;
+
+/**
+ * Compares the remoting and the HTTP management transport. Creates {@code halos.transport.clients} clients (default
+ * 1000) against a real WildFly server, executes {@code halos.transport.requests} operations (default 10 per client) and
+ * reports the threads and sockets of the JVM and latency percentiles per transport. Every client stands for one managed
+ * server: With remoting each client opens its own connection, with HTTP all clients for one host share a pool.
+ * <p>
+ * Skipped unless {@code halos.transport.target} is set, e.g. {@code ./mvnw test -pl capabilities/wildfly
+ * -Dtest=TransportBenchmark -Dhalos.transport.target=localhost:9990}. The report is written to
+ * {@code target/transport-report.txt}. Socket counts are only available on Linux.
+ */
+public class TransportBenchmark {
+
+    private static final int CONCURRENCY = 64;
+
+    @Test
+    public void transports() throws Exception {
+        String target = System.getProperty("halos.transport.target");
+        assumeTrue(target != null, "halos.transport.target not set");
+        HostAndPort hostAndPort = HostAndPort.fromString(target);
+        int clients = Integer.getInteger("halos.transport.clients", 1_000);
+        int requests = Integer.getInteger("halos.transport.requests", 10) * clients;
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%nhalOS transport report: %,d clients, %,d requests against %s%n%n", clients,
+                requests, hostAndPort));
+        report.append(String.format("%-10s %8s %8s %8s %9s %9s %9s %9s%n", "transport", "threads", "sockets", "errors",
+                "p50 [ms]", "p90 [ms]", "p99 [ms]", "max [ms]"));
+
+        RemotingManagementTransport remoting = new RemotingManagementTransport();
+        measure(report, "remoting", clients, requests, i -> remoting.create(managedService(i), hostAndPort));
+
+        Vertx vertx = Vertx.vertx();
+        try {
+            HttpClient httpClient = vertx.createHttpClient(HttpManagementTransport.options(2, CONCURRENCY,
+                    Duration.ofSeconds(60), Boolean.getBoolean("halos.transport.http2")));
+            measure(report, "http", clients, requests, i -> new HttpModelControllerClient(httpClient, hostAndPort,
+                    Duration.ofSeconds(30), "admin", "admin"));
+            httpClient.close();
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get();
+        }
+
+        System.out.println(report);
+        Files.writeString(Path.of("target", "transport-report.txt"), report, UTF_8);
+    }
+
+    private void measure(final StringBuilder report, final String transport, final int count, final int requests,
+            final Function<Integer, ModelControllerClient> factory) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+        long socketsBefore = sockets();
+        ModelNode operation = new Operation.Builder(ResourceAddress.root(), READ_ATTRIBUTE_OPERATION)
+                .param(NAME, SERVER_STATE).build();
+
+        // connect: remoting clients connect lazily on the first operation
+        List<ModelControllerClient> clients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            clients.add(factory.apply(i));
+        }
+        Histogram histogram = new ConcurrentHistogram(3);
+        AtomicLong errors = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        int threadsConnected;
+        long socketsConnected;
+        try {
+            run(executor, clients, count, operation, histogram, errors, true);
+            histogram.reset();
+            run(executor, clients, requests, operation, histogram, errors, false);
+            threadsConnected = threads.getThreadCount() - threadsBefore - CONCURRENCY;
+            socketsConnected = sockets() - socketsBefore;
+        } finally {
+            executor.shutdownNow();
+        }
+        for (ModelControllerClient client : clients) {
+            client.close();
+        }
+
+        report.append(String.format("%-10s %8d %8d %8d %9.1f %9.1f %9.1f %9.1f%n", transport, threadsConnected,
+                socketsConnected, errors.get(), millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getMaxValue())));
+        assertEquals(0, errors.get(), transport + " errors");
+    }
+
+    /** Executes the operation {@code requests} times, in order (all clients once) or using random clients. */
+    private void run(final ExecutorService executor, final List<ModelControllerClient> clients, final int requests,
+            final ModelNode operation, final Histogram histogram, final AtomicLong errors, final boolean inOrder)
+            throws Exception {
+        AtomicLong next = new AtomicLong();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            workers.add(executor.submit(() -> {
+                long index;
+                while ((index = next.getAndIncrement()) < requests) {
+                    ModelControllerClient client = inOrder ? clients.get((int) index)
+                            : clients.get(ThreadLocalRandom.current().nextInt(clients.size()));
+                    long start = System.nanoTime();
+                    try {
+                        client.execute(operation);
+                        histogram.recordValue(System.nanoTime() - start);
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+    }
+
+    /** Number of open sockets of this process or -1 if unknown. */
+    private static long sockets() {
+        Path fds = Path.of("/proc/self/fd");
+        if (!Files.isDirectory(fds)) {
+            return -1;
+        }
+        try (Stream<Path> files = Files.list(fds)) {
+            return files.filter(fd -> {
+                try {
+                    return Files.readSymbolicLink(fd).toString().startsWith("socket:");
+                } catch (IOException e) {
+                    return false;
+                }
+            }).count();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static ManagedService managedService(final int index) {
+        return new ManagedService("transport-" + index, Connection.pending(), Set.of());
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
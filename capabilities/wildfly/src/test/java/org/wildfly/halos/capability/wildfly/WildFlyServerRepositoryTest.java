@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ManagedService;
+
+import de.skuzzle.semantic.Version;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WildFlyServerRepositoryTest {
+
+    private static final ManagedService MANAGED_SERVICE = new ManagedService("wildfly", Connection.pending(), Set.of());
+    private static final ModelControllerClient CLIENT = (ModelControllerClient) Proxy.newProxyInstance(
+            ModelControllerClient.class.getClassLoader(), new Class<?>[] { ModelControllerClient.class },
+            (proxy, method, args) -> null);
+
+    private WildFlyServerRepository repository;
+    private WildFlyServer connected;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new WildFlyServerRepository();
+        connected = server(ServerState.STARTING);
+        repository.add(MANAGED_SERVICE, CLIENT, connected);
+    }
+
+    @Test
+    public void update() {
+        WildFlyServer running = server(ServerState.RUNNING);
+        assertTrue(repository.update(connected, running, List.of(serverState())));
+        assertSame(running, repository.wildFlyServer("server-0"));
+    }
+
+    @Test
+    public void replacedInTheMeantime() {
+        WildFlyServer reconnected = server(ServerState.STARTING);
+        repository.add(MANAGED_SERVICE, CLIENT, reconnected);
+
+        // the modifications have been computed from the server which has been replaced
+        assertFalse(repository.update(connected, server(ServerState.RUNNING), List.of(serverState())));
+        assertSame(reconnected, repository.wildFlyServer("server-0"));
+    }
+
+    @Test
+    public void removedInTheMeantime() {
+        repository.remove(MANAGED_SERVICE);
+
+        assertFalse(repository.update(connected, server(ServerState.RUNNING), List.of(serverState())));
+        assertNull(repository.wildFlyServer("server-0"));
+    }
+
+    private WildFlyServerModification serverState() {
+        return WildFlyServerModification.serverState("server-0", ServerState.RUNNING);
+    }
+
+    private WildFlyServer server(final ServerState serverState) {
+        return new WildFlyServer("wildfly", "server-0", "WildFly Full", Version.create(27, 0, 1), Version.create(19, 0, 1),
+                Version.create(20, 0, 0), RunningMode.NORMAL, serverState, SuspendState.RUNNING, Set.of());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.capability.wildfly.dmr;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ModelNodeMessageBodyReaderTest {
+
+    private ModelNode modelNode;
+    private ModelNodeMessageBodyReader reader;
+    private ModelNodeMessageBodyWriter writer;
+
+    @BeforeEach
+    public void setUp() {
+        modelNode = new Operation.Builder(ResourceAddress.root(), "read-resource").param("recursive", true).build();
+        reader = new ModelNodeMessageBodyReader();
+        reader.maxRequestSize = 1024;
+        writer = new ModelNodeMessageBodyWriter();
+    }
+
+    @Test
+    public void dmrEncoded() throws IOException {
+        assertEquals(modelNode, roundTrip(MediaType.valueOf(ModelNodeMessageBodyWriter.DMR_ENCODED)));
+    }
+
+    @Test
+    public void dmr() throws IOException {
+        assertEquals(modelNode, roundTrip(ModelNodeMessageBodyWriter.DMR_TYPE));
+    }
+
+    @Test
+    public void json() throws IOException {
+        byte[] bytes = modelNode.toJSONString(true).getBytes(UTF_8);
+        assertEquals(modelNode, read(MediaType.APPLICATION_JSON_TYPE, bytes));
+    }
+
+    @Test
+    public void invalid() {
+        assertThrows(BadRequestException.class, () -> read(MediaType.APPLICATION_JSON_TYPE, "{ foo".getBytes(UTF_8)));
+    }
+
+    @Test
+    public void truncated() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(modelNode, ModelNode.class, ModelNode.class, null, ModelNodeMessageBodyWriter.DMR_TYPE, null, output);
+        byte[] bytes = Arrays.copyOf(output.toByteArray(), output.size() / 2);
+        assertThrows(BadRequestException.class, () -> read(ModelNodeMessageBodyWriter.DMR_TYPE, bytes));
+    }
+
+    @Test
+    public void tooLarge() {
+        byte[] bytes = ("{\"description\" : \"" + "x".repeat(2048) + "\"}").getBytes(UTF_8);
+        WebApplicationException exception = assertThrows(WebApplicationException.class,
+                () -> read(MediaType.APPLICATION_JSON_TYPE, bytes));
+        assertEquals(Response.Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(), exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void contentLength() {
+        MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle(HttpHeaders.CONTENT_LENGTH, "2048");
+        WebApplicationException exception = assertThrows(WebApplicationException.class,
+                () -> reader.readFrom(ModelNode.class, ModelNode.class, null, MediaType.APPLICATION_JSON_TYPE, headers,
+                        new ByteArrayInputStream(modelNode.toJSONString(true).getBytes(UTF_8))));
+        assertEquals(Response.Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(), exception.getResponse().getStatus());
+    }
+
+    private ModelNode roundTrip(final MediaType mediaType) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(modelNode, ModelNode.class, ModelNode.class, null, mediaType, null, output);
+        return read(mediaType, output.toByteArray());
+    }
+
+    private ModelNode read(final MediaType mediaType, final byte[] bytes) throws IOException {
+        return reader.readFrom(ModelNode.class, ModelNode.class, null, mediaType, null, new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a {@code JsonWriter} for each record annotated with {@code @GenerateJsonWriter}. Records used as components (or
+ * collection elements) of such records get a writer as well, if they're part of the same compilation.
+ * <p>
+ * The generated writers mimic the default JSON-B mapping: properties are ordered lexicographically, {@code null} values are
+ * omitted, enums are written by name and {@code LocalDateTime} using the ISO local date time format. Values of all other types
+ * are dispatched at runtime using {@code JsonWriters}.
+ */
+@SupportedAnnotationTypes(JsonWriterProcessor.GENERATE_JSON_WRITER)
+public class JsonWriterProcessor extends AbstractProcessor {
+
+    static final String GENERATE_JSON_WRITER = "org.wildfly.halos.api.json.GenerateJsonWriter";
+    private static final String JSON = "org.wildfly.halos.api.json.";
+    private static final String WRITER_SUFFIX = "JsonWriter";
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(GENERATE_JSON_WRITER);
+        if (annotation == null) {
+            return false;
+        }
+        Set<TypeElement> records = new LinkedHashSet<>();
+        Deque<TypeElement> queue = new ArrayDeque<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() == ElementKind.RECORD) {
+                queue.add((TypeElement) element);
+            } else {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@GenerateJsonWriter is only supported on records", element);
+            }
+        }
+        Set<String> roots = new HashSet<>();
+        for (Element root : roundEnv.getRootElements()) {
+            if (root instanceof TypeElement typeElement) {
+                roots.add(typeElement.getQualifiedName().toString());
+            }
+        }
+        while (!queue.isEmpty()) {
+            TypeElement record = queue.poll();
+            if (records.add(record)) {
+                for (RecordComponentElement component : record.getRecordComponents()) {
+                    TypeElement nested = nestedRecord(component.asType());
+                    if (nested != null && roots.contains(outermost(nested).getQualifiedName().toString())) {
+                        queue.add(nested);
+                    }
+                }
+            }
+        }
+        for (TypeElement record : records) {
+            if (generated.add(record.getQualifiedName().toString())) {
+                generate(record, records);
+            }
+        }
+        return true;
+    }
+
+    // ------------------------------------------------------ code generation
+
+    private void generate(final TypeElement record, final Set<TypeElement> records) {
+        String packageName = packageOf(record);
+        String writerName = writerName(record);
+        String recordName = record.getQualifiedName().toString();
+        List<RecordComponentElement> components = new ArrayList<>(record.getRecordComponents());
+        components.sort(Comparator.comparing(component -> component.getSimpleName().toString()));
+
+        try {
+            JavaFileObject file = processingEnv.getFiler()
+                    .createSourceFile(packageName.isEmpty() ? writerName : packageName + "." + writerName, record);
+            try (Writer writer = file.openWriter(); PrintWriter out = new PrintWriter(writer)) {
+                if (!packageName.isEmpty()) {
+                    out.printf("package %s;%n%n", packageName);
+                }
+                out.printf("@javax.annotation.processing.Generated(\"%s\")%n", JsonWriterProcessor.class.getName());
+                out.printf("@jakarta.inject.Singleton%n");
+                out.printf("public final class %s implements %sJsonWriter<%s> {%n%n", writerName, JSON, recordName);
+                for (RecordComponentElement component : components) {
+                    String name = component.getSimpleName().toString();
+                    out.printf("    private static final byte[] %s = %sJsonOutput.name(\"%s\");%n", constant(name), JSON, name);
+                }
+                out.printf("%n    @Override%n");
+                out.printf("    public Class<%s> type() {%n", recordName);
+                out.printf("        return %s.class;%n", recordName);
+                out.printf("    }%n%n");
+                out.printf("    @Override%n");
+                out.printf("    public void write(final %s value, final %sJsonOutput out, final %sJsonWriters writers)%n",
+                        recordName, JSON, JSON);
+                out.printf("            throws java.io.IOException {%n");
+                out.printf("        writeValue(value, out, writers);%n");
+                out.printf("    }%n%n");
+                out.printf("    public static void writeValue(final %s value, final %sJsonOutput out,%n", recordName, JSON);
+                out.printf("            final %sJsonWriters writers) throws java.io.IOException {%n", JSON);
+                out.printf("        out.beginObject();%n");
+                out.printf("        boolean comma = false;%n");
+                int index = 0;
+                for (RecordComponentElement component : components) {
+                    String name = component.getSimpleName().toString();
+                    TypeMirror type = component.asType();
+                    String variable = "v" + index++;
+                    out.printf("        var %s = value.%s();%n", variable, component.getAccessor().getSimpleName());
+                    if (type.getKind().isPrimitive()) {
+                        out.printf("        out.name(%s, comma);%n", constant(name));
+                        writeValue(out, type, variable, records, "        ", 1);
+                        out.printf("        comma = true;%n");
+                    } else {
+                        out.printf("        if (%s != null) {%n", variable);
+                        out.printf("            out.name(%s, comma);%n", constant(name));
+                        writeValue(out, type, variable, records, "            ", 1);
+                        out.printf("            comma = true;%n");
+                        out.printf("        }%n");
+                    }
+                }
+                out.printf("        out.endObject();%n");
+                out.printf("    }%n");
+                out.printf("}%n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to generate " + writerName + ": " + e.getMessage(), record);
+        }
+    }
+
+    /** Writes the code for a non-null value */
+    private void writeValue(final PrintWriter out, final TypeMirror type, final String variable, final Set<TypeElement> records,
+            final String indent, final int depth) {
+        TypeKind kind = type.getKind();
+        if (kind == TypeKind.BOOLEAN) {
+            out.printf("%sout.writeBoolean(%s);%n", indent, variable);
+        } else if (kind == TypeKind.BYTE || kind == TypeKind.SHORT || kind == TypeKind.INT || kind == TypeKind.LONG) {
+            out.printf("%sout.writeLong(%s);%n", indent, variable);
+        } else if (kind == TypeKind.FLOAT || kind == TypeKind.DOUBLE) {
+            out.printf("%sout.writeDouble(%s);%n", indent, variable);
+        } else if (kind == TypeKind.CHAR) {
+            out.printf("%sout.writeString(String.valueOf(%s));%n", indent, variable);
+        } else if (kind == TypeKind.DECLARED) {
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            String qualifiedName = element.getQualifiedName().toString();
+            TypeMirror elementType = collectionElementType(type);
+            if ("java.lang.String".equals(qualifiedName)) {
+                out.printf("%sout.writeString(%s);%n", indent, variable);
+            } else if ("java.lang.Boolean".equals(qualifiedName)) {
+                out.printf("%sout.writeBoolean(%s);%n", indent, variable);
+            } else if ("java.lang.Byte".equals(qualifiedName) || "java.lang.Short".equals(qualifiedName)
+                    || "java.lang.Integer".equals(qualifiedName) || "java.lang.Long".equals(qualifiedName)) {
+                out.printf("%sout.writeLong(%s);%n", indent, variable);
+            } else if ("java.lang.Float".equals(qualifiedName) || "java.lang.Double".equals(qualifiedName)) {
+                out.printf("%sout.writeDouble(%s);%n", indent, variable);
+            } else if ("java.time.LocalDateTime".equals(qualifiedName)) {
+                out.printf("%sout.writeLocalDateTime(%s);%n", indent, variable);
+            } else if (element.getKind() == ElementKind.ENUM) {
+                out.printf("%sout.writeString(%s.name());%n", indent, variable);
+            } else if (element.getKind() == ElementKind.RECORD && hasWriter(element, records)) {
+                out.printf("%s%s.%s.writeValue(%s, out, writers);%n", indent, packageOf(element), writerName(element),
+                        variable);
+            } else if (elementType != null) {
+                String comma = "c" + depth;
+                String item = "e" + depth;
+                out.printf("%sout.beginArray();%n", indent);
+                out.printf("%sboolean %s = false;%n", indent, comma);
+                out.printf("%sfor (var %s : %s) {%n", indent, item, variable);
+                out.printf("%s    if (%s) {%n", indent, comma);
+                out.printf("%s        out.comma();%n", indent);
+                out.printf("%s    }%n", indent);
+                out.printf("%s    %s = true;%n", indent, comma);
+                if (elementType.getKind().isPrimitive()) {
+                    writeValue(out, elementType, item, records, indent + "    ", depth + 1);
+                } else {
+                    out.printf("%s    if (%s == null) {%n", indent, item);
+                    out.printf("%s        out.writeNull();%n", indent);
+                    out.printf("%s    } else {%n", indent);
+                    writeValue(out, elementType, item, records, indent + "        ", depth + 1);
+                    out.printf("%s    }%n", indent);
+                }
+                out.printf("%s}%n", indent);
+                out.printf("%sout.endArray();%n", indent);
+            } else {
+                out.printf("%swriters.write(%s, out);%n", indent, variable);
+            }
+        } else {
+            out.printf("%swriters.write(%s, out);%n", indent, variable);
+        }
+    }
+
+    // ------------------------------------------------------ helpers
+
+    private boolean hasWriter(final TypeElement record, final Set<TypeElement> records) {
+        if (records.contains(record)) {
+            return true;
+        }
+        String name = packageOf(record);
+        name = name.isEmpty() ? writerName(record) : name + "." + writerName(record);
+        return processingEnv.getElementUtils().getTypeElement(name) != null;
+    }
+
+    private TypeElement nestedRecord(final TypeMirror type) {
+        TypeMirror candidate = type;
+        TypeMirror elementType = collectionElementType(type);
+        if (elementType != null) {
+            candidate = elementType;
+        }
+        if (candidate.getKind() == TypeKind.DECLARED) {
+            Element element = ((DeclaredType) candidate).asElement();
+            if (element.getKind() == ElementKind.RECORD) {
+                return (TypeElement) element;
+            }
+        }
+        return null;
+    }
+
+    /** @return the element type if the specified type is a collection with exactly one type argument, null otherwise */
+    private TypeMirror collectionElementType(final TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            TypeElement collection = processingEnv.getElementUtils().getTypeElement("java.util.Collection");
+            TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+            if (processingEnv.getTypeUtils().isAssignable(erasure,
+                    processingEnv.getTypeUtils().erasure(collection.asType()))) {
+                List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+                if (arguments.size() == 1 && arguments.get(0).getKind() == TypeKind.DECLARED) {
+                    return arguments.get(0);
+                }
+            }
+        }
+        return null;
+    }
+
+    private TypeElement outermost(final TypeElement type) {
+        TypeElement current = type;
+        while (current.getEnclosingElement() instanceof TypeElement enclosing) {
+            current = enclosing;
+        }
+        return current;
+    }
+
+    private String packageOf(final TypeElement type) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    /** @return {@code Foo}JsonWriter for top level and {@code Outer_Foo}JsonWriter for nested records */
+    private String writerName(final TypeElement type) {
+        StringBuilder builder = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing instanceof TypeElement enclosingType) {
+            builder.insert(0, enclosingType.getSimpleName() + "_");
+            enclosing = enclosingType.getEnclosingElement();
+        }
+        return builder.append(WRITER_SUFFIX).toString();
+    }
+
+    /** @return the name of the property as constant, e.g. {@code coreVersion} becomes {@code CORE_VERSION} */
+    private String constant(final String name) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                builder.append('_');
+            }
+            builder.append(Character.toUpperCase(c));
+        }
+        return builder.toString();
+    }
+}
@@ -47,6 +47,11 @@ public class CapabilityRepository {
         return null;
     }
 
+    /** Capabilities are static, so the version never changes. */
+    long version() {
+        return 0;
+    }
+
     Set<Capability> capabilities() {
         return extensions.stream().map(CapabilityExtension::capability).collect(toSet());
     }
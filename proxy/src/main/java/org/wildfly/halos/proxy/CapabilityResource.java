@@ -15,24 +15,38 @@
  */
 package org.wildfly.halos.proxy;
 
-import java.util.Collection;
+import java.util.Set;
 
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Providers;
 
 import org.wildfly.halos.api.Capability;
+import org.wildfly.halos.api.Constants;
+import org.wildfly.halos.api.RepresentationCache;
 
 @Path("/api/v1/capabilities")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({ MediaType.APPLICATION_JSON, Constants.APPLICATION_CBOR })
 public class CapabilityResource {
 
+    private static final GenericType<Set<Capability>> CAPABILITIES = new GenericType<>() {
+    };
+
     @Inject CapabilityRepository repository;
+    @Inject RepresentationCache representationCache;
 
     @GET
-    public Collection<Capability> capabilities() {
-        return repository.capabilities();
+    public Response capabilities(@Context final Request request, @Context final HttpHeaders headers,
+            @Context final Providers providers) {
+        return representationCache.response("capabilities", repository.version(), repository::capabilities, CAPABILITIES,
+                request, headers, providers);
     }
 }
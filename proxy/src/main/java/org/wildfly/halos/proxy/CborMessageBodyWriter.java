@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import org.wildfly.halos.api.Constants;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Writes entities as CBOR. The mapper is derived from the application wide {@link ObjectMapper}, so all registered modules and
+ * customizers (e.g. for {@code LocalDateTime} and {@code Version}) apply. Like JSON-B, {@code null} properties are omitted, so
+ * the CBOR representation has the same schema as the JSON representation.
+ */
+@Provider
+@Produces({ Constants.APPLICATION_CBOR, Constants.APPLICATION_CBOR_SEQ })
+public class CborMessageBodyWriter implements MessageBodyWriter<Object> {
+
+    @Inject ObjectMapper objectMapper;
+    private ObjectWriter writer;
+
+    @PostConstruct
+    void init() {
+        ObjectMapper cbor = objectMapper.copyWith(new CBORFactory());
+        cbor.setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL);
+        writer = cbor.writer();
+    }
+
+    @Override
+    public boolean isWriteable(final Class<?> aClass, final Type type, final Annotation[] annotations,
+            final MediaType mediaType) {
+        return true;
+    }
+
+    @Override
+    public void writeTo(final Object entity, final Class<?> aClass, final Type type, final Annotation[] annotations,
+            final MediaType mediaType, final MultivaluedMap<String, Object> multivaluedMap, final OutputStream outputStream)
+            throws IOException, WebApplicationException {
+        writer.writeValue(outputStream, entity);
+    }
+}
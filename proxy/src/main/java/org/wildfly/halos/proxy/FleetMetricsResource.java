@@ -0,0 +1,92 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.util.List;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Response;
+
+import org.wildfly.halos.api.metrics.FleetMetricsContributor;
+import org.wildfly.halos.api.metrics.OpenMetricsWriter;
+
+import io.fabric8.openshift.client.OpenShiftClient;
+import io.quarkus.arc.All;
+
+/**
+ * Exposes the last known values of all managed services in the OpenMetrics text format. Unlike {@code /q/metrics} (which
+ * is about the proxy itself) the metrics are labelled by managed service and namespace. The exposition is built by the
+ * {@linkplain FleetMetricsContributor contributors} of the capabilities and cached until one of them changes.
+ */
+@Path("/api/v1/metrics")
+@ApplicationScoped
+public class FleetMetricsResource {
+
+    @Inject OpenShiftClient oc;
+    @Inject
+    @All List<FleetMetricsContributor> contributors;
+    private String namespace;
+    private volatile Scrape scrape;
+
+    @PostConstruct
+    void init() {
+        namespace = oc.getNamespace();
+        scrape = new Scrape(-1, null);
+    }
+
+    @GET
+    @Produces(OpenMetricsWriter.CONTENT_TYPE)
+    public Response metrics() {
+        return Response.ok(body()).build();
+    }
+
+    private byte[] body() {
+        long version = version();
+        Scrape current = scrape;
+        if (current.version() != version) {
+            synchronized (this) {
+                current = scrape;
+                if (current.version() != version) {
+                    int capacity = current.body() != null ? current.body().length + 1024 : 16 * 1024;
+                    OpenMetricsWriter writer = new OpenMetricsWriter(capacity).commonLabel("namespace", namespace);
+                    for (FleetMetricsContributor contributor : contributors) {
+                        contributor.write(writer);
+                    }
+                    current = new Scrape(version, writer.eof());
+                    scrape = current;
+                }
+            }
+        }
+        return current.body();
+    }
+
+    /** The versions of the contributors only ever increase, so the sum changes whenever one of them changes. */
+    private long version() {
+        long version = 0;
+        for (FleetMetricsContributor contributor : contributors) {
+            version += contributor.version();
+        }
+        return version;
+    }
+
+    private record Scrape(long version, byte[] body) {
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.util.Set;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.wildfly.halos.api.Capability;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.api.metrics.FleetMetricsContributor;
+import org.wildfly.halos.api.metrics.OpenMetricsWriter;
+
+import static org.wildfly.halos.api.metrics.OpenMetricsWriter.GAUGE;
+import static org.wildfly.halos.api.metrics.OpenMetricsWriter.INFO;
+
+/** Writes the managed services, their capabilities and whether they're connected. */
+@ApplicationScoped
+class ManagedServiceFleetMetrics implements FleetMetricsContributor {
+
+    @Inject ManagedServiceRepository managedServiceRepository;
+
+    @Override
+    public long version() {
+        return managedServiceRepository.version();
+    }
+
+    @Override
+    public void write(final OpenMetricsWriter writer) {
+        Set<ManagedService> services = managedServiceRepository.managedServices();
+        writer.family("halos_managed_service_up", GAUGE, "Whether the proxy is connected to a managed service");
+        for (ManagedService service : services) {
+            writer.sample("halos_managed_service_up").label("managed_service", service.name())
+                    .value(service.connection().status() == Connection.Status.CONNECTED ? 1 : 0);
+        }
+        writer.family("halos_managed_service_capability", INFO, "Capabilities of a managed service");
+        for (ManagedService service : services) {
+            for (Capability capability : service.capabilities()) {
+                writer.sample("halos_managed_service_capability_info").label("managed_service", service.name())
+                        .label("capability", capability.name()).value(1);
+            }
+        }
+    }
+}
@@ -15,9 +15,10 @@
  */
 package org.wildfly.halos.proxy;
 
-import java.util.Map;
+import java.time.Instant;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
@@ -27,17 +28,27 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.wildfly.halos.api.Capability;
 import org.wildfly.halos.api.CapabilityExtension;
 import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ConnectionUpdate;
 import org.wildfly.halos.api.ManagedService;
 import org.wildfly.halos.api.ManagedServiceModification;
 import org.wildfly.halos.api.Modification;
+import org.wildfly.halos.api.Page;
+import org.wildfly.halos.api.PageRequest;
+import org.wildfly.halos.api.SortedIndex;
+import org.wildfly.halos.api.Tracing;
 
 import io.fabric8.kubernetes.api.model.Service;
 import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.WatcherException;
 import io.fabric8.openshift.client.OpenShiftClient;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
 import io.quarkus.logging.Log;
 import io.quarkus.runtime.StartupEvent;
 import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
 
 @ApplicationScoped
@@ -45,14 +56,20 @@ public class ManagedServiceRepository {
 
     @Inject OpenShiftClient oc;
     @Inject CapabilityRepository capabilityRepository;
+    @Inject ProxyMetrics metrics;
+    @Inject Tracing tracing;
     @ConfigProperty(name = "halos.label.selector", defaultValue = "managedby=halos") String halOsLabelSelector;
 
-    private final Map<String, ManagedService> services;
-    private final UnicastProcessor<ManagedServiceModification> processor;
-    private final Multi<ManagedServiceModification> modifications;
+    private final SortedIndex<ManagedService> services;
+    private final AtomicLong version;
+    private final UnicastProcessor<Published> processor;
+    private final Multi<Published> modifications;
+    private volatile boolean watching;
 
     ManagedServiceRepository() {
-        services = new ConcurrentHashMap<>();
+        services = new SortedIndex<>(ManagedService::name)
+                .sortBy("status", managedService -> managedService.connection().status().name());
+        version = new AtomicLong();
         processor = UnicastProcessor.create();
         modifications = processor.broadcast().toAllSubscribers().onOverflow().dropPreviousItems();
     }
@@ -60,7 +77,9 @@ public class ManagedServiceRepository {
     // ------------------------------------------------------ init
 
     void onStart(@Observes final StartupEvent event) {
+        metrics.managedServices(services);
         initWatches();
+        watching = true;
     }
 
     private void initWatches() {
@@ -71,9 +90,24 @@ public class ManagedServiceRepository {
             oc.services().withLabelSelector(labelSelector).watch(new Watcher<>() {
                 @Override
                 public void eventReceived(final Action action, final Service service) {
-                    switch (action) {
-                        case ADDED -> add(service, collector);
-                        case DELETED -> delete(service, collector);
+                    metrics.watchEvent(capability, action);
+                    ServiceWatchEvent event = new ServiceWatchEvent();
+                    event.begin();
+                    tracing.inSpan("watch " + capability.name(), Context.root(), span -> {
+                        span.setAttribute(Tracing.CAPABILITY, capability.name());
+                        span.setAttribute(Tracing.MANAGED_SERVICE, service.getMetadata().getName());
+                        span.setAttribute(Tracing.ACTION, action.name());
+                        switch (action) {
+                            case ADDED -> add(service, collector);
+                            case DELETED -> delete(service, collector);
+                        }
+                        return null;
+                    });
+                    if (event.shouldCommit()) {
+                        event.capability = capability.name();
+                        event.managedService = service.getMetadata().getName();
+                        event.action = action.name();
+                        event.commit();
                     }
                 }
 
@@ -97,21 +131,72 @@ public class ManagedServiceRepository {
     // ------------------------------------------------------ connect
 
     void connect(final ManagedService managedService, final CapabilityExtension collector) {
-        collector.connect(managedService).subscribe().with(connectionStatus -> {
+        long start = metrics.connectStarted(collector.capability());
+        Span span = tracing.start("connect " + collector.capability().name(), Context.current());
+        span.setAttribute(Tracing.CAPABILITY, collector.capability().name());
+        span.setAttribute(Tracing.MANAGED_SERVICE, managedService.name());
+        Uni<Connection> connection;
+        try (Scope ignored = span.makeCurrent()) {
+            // extensions capture the current context when they assemble their pipeline
+            connection = collector.connect(managedService);
+        }
+        Context connectContext = Context.root().with(span);
+        ConnectEvent event = new ConnectEvent();
+        event.begin();
+        connection.subscribe().with(connectionStatus -> {
+            metrics.connectFinished(collector.capability(), start, connectionStatus.status());
+            span.setAttribute(Tracing.CONNECTION_STATUS, connectionStatus.status().name());
+            span.end();
+            commit(event, collector, managedService, connectionStatus);
             ManagedService connected = managedService.updateStatus(connectionStatus);
-            services.put(connected.name(), connected);
-            publishModification(new ManagedServiceModification(connected, Modification.UPDATE));
+            services.put(connected);
+            publishModification(new ManagedServiceModification(connected, Modification.UPDATE), connectContext);
         }, throwable -> {
-            ManagedService failed = managedService.updateStatus(Connection.failed(String
-                    .format("Unable to connect to managed service %s: %s", managedService.name(), throwable.getMessage())));
-            services.put(failed.name(), failed);
-            publishModification(new ManagedServiceModification(failed, Modification.UPDATE));
+            metrics.connectFinished(collector.capability(), start, Connection.Status.FAILED);
+            span.setAttribute(Tracing.CONNECTION_STATUS, Connection.Status.FAILED.name());
+            span.recordException(throwable);
+            span.end();
+            Connection failedConnection = Connection.failed(String.format("Unable to connect to managed service %s: %s",
+                    managedService.name(), throwable.getMessage()));
+            commit(event, collector, managedService, failedConnection);
+            ManagedService failed = managedService.updateStatus(failedConnection);
+            services.put(failed);
+            publishModification(new ManagedServiceModification(failed, Modification.UPDATE), connectContext);
         });
     }
 
+    private void commit(final ConnectEvent event, final CapabilityExtension collector, final ManagedService managedService,
+            final Connection connection) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.capability = collector.capability().name();
+            event.managedService = managedService.name();
+            event.status = connection.status().name();
+            event.message = connection.message();
+            event.commit();
+        }
+    }
+
+    /**
+     * Applies circuit changes reported by capability extensions to the connection of a connected service. The update is
+     * atomic, so it can't bring back a service which has been deleted in the meantime.
+     */
+    void onConnectionUpdate(@Observes final ConnectionUpdate update) {
+        ManagedService updated = services.computeIfPresent(update.managedService(), managedService -> {
+            Connection connection = managedService.connection();
+            if (connection.status() != Connection.Status.CONNECTED) {
+                return null;
+            }
+            return managedService.updateStatus(connection.withCircuit(update.circuit(), update.message()));
+        });
+        if (updated != null) {
+            publishModification(new ManagedServiceModification(updated, Modification.UPDATE), Context.current());
+        }
+    }
+
     // ------------------------------------------------------ add, delete
 
-    private void add(final Service service, final CapabilityExtension collector) {
+    void add(final Service service, final CapabilityExtension collector) {
         Modification modification;
         ManagedService managedService = services.get(service.getMetadata().getName());
         if (managedService == null) {
@@ -121,36 +206,79 @@ public class ManagedServiceRepository {
             modification = Modification.UPDATE;
             managedService = managedService.addCapability(collector.capability());
         }
-        services.put(managedService.name(), managedService);
-        publishModification(new ManagedServiceModification(managedService, modification));
+        services.put(managedService);
+        publishModification(new ManagedServiceModification(managedService, modification), Context.current());
         connect(managedService, collector);
     }
 
     private void delete(final Service service, final CapabilityExtension collector) {
         ManagedService managedService = services.remove(service.getMetadata().getName());
         if (managedService != null) {
-            publishModification(new ManagedServiceModification(managedService, Modification.DELETE));
+            publishModification(new ManagedServiceModification(managedService, Modification.DELETE), Context.current());
             collector.close(managedService);
         }
     }
 
-    private void publishModification(final ManagedServiceModification msm) {
-        processor.onNext(msm);
+    private void publishModification(final ManagedServiceModification msm, final Context parent) {
+        Span span = tracing.start("publish modification", parent);
+        span.setAttribute(Tracing.MANAGED_SERVICE, msm.managedService().name());
+        span.setAttribute(Tracing.MODIFICATION, msm.modification().name());
+        PublishModificationEvent event = new PublishModificationEvent();
+        event.begin();
+        try {
+            version.incrementAndGet();
+            processor.onNext(new Published(msm, span.getSpanContext(), Instant.now()));
+        } finally {
+            span.end();
+            event.end();
+            if (event.shouldCommit()) {
+                event.managedService = msm.managedService().name();
+                event.modification = msm.modification().name();
+                event.subscribers = metrics.subscribers();
+                event.commit();
+            }
+        }
         String modificationName = msm.modification().name().charAt(0) + msm.modification().name().toLowerCase().substring(1);
         Log.infof("%s managed service %s", modificationName, msm.managedService().name());
     }
 
     // ------------------------------------------------------ properties
 
+    /** Whether the service watches of all capabilities have been registered. */
+    boolean watching() {
+        return watching;
+    }
+
     ManagedService managedService(final String name) {
         return services.get(name);
     }
 
+    long version() {
+        return version.get();
+    }
+
     Set<ManagedService> managedServices() {
         return Set.copyOf(services.values());
     }
 
+    Page<ManagedService> managedServices(final PageRequest request, final Predicate<ManagedService> filter) {
+        return services.page(request, filter);
+    }
+
+    /**
+     * Returns the modifications for a new subscriber. Each delivery is traced as a child of the publish span, starting at
+     * the time of publication (so it includes the time spent in the overflow buffer) and linked to the span which was
+     * current when subscribing (usually the span of the SSE request).
+     */
     Multi<ManagedServiceModification> modifications() {
-        return modifications;
+        SpanContext subscriber = Span.current().getSpanContext();
+        return modifications.map(published -> {
+            tracing.record("deliver modification", Context.root().with(Span.wrap(published.publish())),
+                    published.timestamp(), subscriber);
+            return published.modification();
+        });
+    }
+
+    private record Published(ManagedServiceModification modification, SpanContext publish, Instant timestamp) {
     }
 }
@@ -15,7 +15,9 @@
  */
 package org.wildfly.halos.proxy;
 
-import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
@@ -23,27 +25,74 @@ import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.ext.Providers;
 
 import org.jboss.resteasy.reactive.RestStreamElementType;
 import org.wildfly.halos.api.CapabilityExtension;
 import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.Constants;
 import org.wildfly.halos.api.ManagedService;
 import org.wildfly.halos.api.ManagedServiceModification;
+import org.wildfly.halos.api.PageRequest;
+import org.wildfly.halos.api.RepresentationCache;
 
 import io.smallrye.mutiny.Multi;
 
 @Path("/api/v1/services")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({ MediaType.APPLICATION_JSON, Constants.APPLICATION_CBOR })
 public class ManagedServiceResource {
 
+    private static final GenericType<Set<ManagedService>> SERVICES = new GenericType<>() {
+    };
+    private static final GenericType<List<ManagedService>> SERVICE_PAGE = new GenericType<>() {
+    };
+
     @Inject ManagedServiceRepository managedServiceRepository;
     @Inject CapabilityRepository capabilityRepository;
+    @Inject RepresentationCache representationCache;
+    @Inject ProxyMetrics metrics;
 
+    /**
+     * Returns all managed services or - if any of the paging or filter parameters is specified - a page of managed
+     * services. Supported sort orders are {@code name} and {@code status}. The next page is linked in the {@code Link}
+     * header.
+     *
+     * @param name filters services whose name starts with the specified value
+     * @param status filters services with the specified connection status
+     * @param capability filters services with the specified capability
+     */
     @GET
-    public Collection<ManagedService> services() {
-        return managedServiceRepository.managedServices();
+    public Response services(@QueryParam(PageRequest.SORT) final String sort,
+            @QueryParam(PageRequest.CURSOR) final String cursor, @QueryParam(PageRequest.LIMIT) final Integer limit,
+            @QueryParam("name") final String name, @QueryParam("status") final Connection.Status status,
+            @QueryParam("capability") final String capability, @Context final Request request,
+            @Context final HttpHeaders headers, @Context final Providers providers, @Context final UriInfo uriInfo) {
+        if (PageRequest.paged(sort, cursor, limit) || name != null || status != null || capability != null) {
+            Predicate<ManagedService> filter = managedService -> true;
+            if (name != null) {
+                filter = filter.and(managedService -> managedService.name().startsWith(name));
+            }
+            if (status != null) {
+                filter = filter.and(managedService -> managedService.connection().status() == status);
+            }
+            if (capability != null) {
+                filter = filter.and(managedService -> managedService.capabilities().stream()
+                        .anyMatch(c -> capability.equals(c.name())));
+            }
+            return managedServiceRepository.managedServices(PageRequest.of(sort, cursor, limit), filter)
+                    .response(uriInfo, SERVICE_PAGE);
+        } else {
+            return representationCache.response("services", managedServiceRepository.version(),
+                    managedServiceRepository::managedServices, SERVICES, request, headers, providers);
+        }
     }
 
     @PUT
@@ -69,6 +118,14 @@ public class ManagedServiceResource {
     @Produces(MediaType.SERVER_SENT_EVENTS)
     @RestStreamElementType(MediaType.APPLICATION_JSON)
     public Multi<ManagedServiceModification> modifications() {
-        return managedServiceRepository.modifications();
+        return metrics.subscribers(managedServiceRepository.modifications(), MediaType.SERVER_SENT_EVENTS);
+    }
+
+    @GET
+    @Path("/modifications")
+    @Produces(Constants.APPLICATION_CBOR_SEQ)
+    @RestStreamElementType(Constants.APPLICATION_CBOR)
+    public Multi<ManagedServiceModification> binaryModifications() {
+        return metrics.subscribers(managedServiceRepository.modifications(), Constants.APPLICATION_CBOR_SEQ);
     }
 }
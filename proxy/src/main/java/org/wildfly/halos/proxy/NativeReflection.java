@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.api.ManagedServiceModification;
+import org.wildfly.halos.capability.quarkus.QuarkusCapability;
+import org.wildfly.halos.capability.quarkus.QuarkusService;
+import org.wildfly.halos.capability.wildfly.ConnectionHistory;
+import org.wildfly.halos.capability.wildfly.Deployment;
+import org.wildfly.halos.capability.wildfly.ServerStats;
+import org.wildfly.halos.capability.wildfly.ServerStatus;
+import org.wildfly.halos.capability.wildfly.Status;
+import org.wildfly.halos.capability.wildfly.StatusHistory;
+import org.wildfly.halos.capability.wildfly.WildFlyCapability;
+import org.wildfly.halos.capability.wildfly.WildFlyServer;
+import org.wildfly.halos.capability.wildfly.WildFlyServerModification;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Registers the payloads of the REST API for reflection in native images. Most resources return {@code Response} or
+ * generic collections, so the JSON-B and CBOR providers can't detect them at build time. The generated JSON writers don't
+ * need reflection, but JSON-B and Jackson are used as fallback and for CBOR.
+ */
+@RegisterForReflection(targets = {
+        Connection.class,
+        ConnectionHistory.class,
+        Deployment.class,
+        ManagedService.class,
+        ManagedServiceModification.class,
+        QuarkusCapability.class,
+        QuarkusService.class,
+        RecordingResource.RecordingInfo.class,
+        ServerStats.class,
+        ServerStats.OperationLatency.class,
+        ServerStats.SlowOperation.class,
+        ServerStatus.class,
+        Status.class,
+        Status.Memory.class,
+        Status.OperatingSystem.class,
+        Status.Runtime.class,
+        Status.Threads.class,
+        StatusHistory.class,
+        WildFlyCapability.class,
+        WildFlyServer.class,
+        WildFlyServerModification.class,
+})
+class NativeReflection {
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.wildfly.halos.api.Capability;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.api.SortedIndex;
+
+import io.fabric8.kubernetes.client.Watcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Multi;
+
+/**
+ * Meters of the proxy. Meters are created once per tag combination and cached, so recording a value on a hot path is a
+ * map lookup and an atomic update.
+ */
+@ApplicationScoped
+class ProxyMetrics {
+
+    @Inject MeterRegistry registry;
+
+    private final Map<String, Counter> watchEvents; // key == capability + action
+    private final Map<String, Timer> connects; // key == capability + connection status
+    private final Map<String, AtomicInteger> inFlightConnects; // key == capability
+    private final Map<String, AtomicInteger> subscribers; // key == media type
+    private final Map<String, Counter> deliveredEvents; // key == media type
+
+    ProxyMetrics() {
+        watchEvents = new ConcurrentHashMap<>();
+        connects = new ConcurrentHashMap<>();
+        inFlightConnects = new ConcurrentHashMap<>();
+        subscribers = new ConcurrentHashMap<>();
+        deliveredEvents = new ConcurrentHashMap<>();
+    }
+
+    void watchEvent(final Capability capability, final Watcher.Action action) {
+        watchEvents.computeIfAbsent(capability.name() + "|" + action.name(), k -> Counter.builder("halos.watch.events")
+                .description("Service watch events")
+                .tag("capability", capability.name())
+                .tag("action", action.name())
+                .register(registry)).increment();
+    }
+
+    /** Marks the start of a connect and returns the start time to be passed to {@link #connectFinished}. */
+    long connectStarted(final Capability capability) {
+        inFlight(capability).incrementAndGet();
+        return System.nanoTime();
+    }
+
+    void connectFinished(final Capability capability, final long start, final Connection.Status status) {
+        long duration = System.nanoTime() - start;
+        inFlight(capability).decrementAndGet();
+        connects.computeIfAbsent(capability.name() + "|" + status.name(), k -> Timer.builder("halos.connect")
+                .description("Time to connect to a managed service, including retries")
+                .tag("capability", capability.name())
+                .tag("status", status.name())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofMinutes(2))
+                .register(registry)).record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    private AtomicInteger inFlight(final Capability capability) {
+        return inFlightConnects.computeIfAbsent(capability.name(), name -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder("halos.connect.in.flight", value, AtomicInteger::get)
+                    .description("Connects which are in progress")
+                    .tag("capability", name)
+                    .register(registry);
+            return value;
+        });
+    }
+
+    /** Counts the subscribers of a modification stream and the events delivered to them. */
+    <T> Multi<T> subscribers(final Multi<T> modifications, final String mediaType) {
+        AtomicInteger count = subscribers.computeIfAbsent(mediaType, type -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder("halos.sse.subscribers", value, AtomicInteger::get)
+                    .description("Subscribers of the managed service modification stream")
+                    .tag("media.type", type)
+                    .register(registry);
+            return value;
+        });
+        Counter delivered = deliveredEvents.computeIfAbsent(mediaType, type -> Counter.builder("halos.sse.events")
+                .description("Managed service modifications delivered to subscribers")
+                .tag("media.type", type)
+                .register(registry));
+        return modifications.onSubscription().invoke(count::incrementAndGet)
+                .onItem().invoke(delivered::increment)
+                .onTermination().invoke(count::decrementAndGet);
+    }
+
+    /** Returns the number of subscribers across all modification streams. */
+    int subscribers() {
+        int count = 0;
+        for (AtomicInteger value : subscribers.values()) {
+            count += value.get();
+        }
+        return count;
+    }
+
+    void managedServices(final SortedIndex<ManagedService> services) {
+        Gauge.builder("halos.services", services, index -> index.values().size())
+                .description("Managed services")
+                .register(registry);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.wildfly.halos.PublishModification")
+@Label("Publish Modification")
+@Description("Fan-out of a managed service modification to the subscribers of the modification streams")
+@Category({ "halOS", "Proxy" })
+@StackTrace(false)
+class PublishModificationEvent extends Event {
+
+    @Label("Managed Service") String managedService;
+    @Label("Modification") String modification;
+    @Label("Subscribers") int subscribers;
+}
@@ -0,0 +1,196 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.logging.Log;
+import io.vertx.ext.web.RoutingContext;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Starts, stops and downloads a flight recording of the proxy. Besides the JDK events, the recording contains the halOS
+ * events (category "halOS"). There's at most one recording at a time. A running recording can be downloaded at any time.
+ * <p>
+ * Recordings contain sensitive data (e.g. environment variables and system properties) and cost disk space, so the
+ * endpoint is disabled unless {@code halos.recording.enabled} is set. If disabled, all requests are answered with
+ * {@code 404 Not Found}.
+ */
+@Path("/api/v1/recording")
+@Produces(MediaType.APPLICATION_JSON)
+@ApplicationScoped
+public class RecordingResource {
+
+    private static final String RECORDING_NAME = "halos";
+
+    @ConfigProperty(name = "halos.recording.enabled", defaultValue = "false") boolean enabled;
+
+    private Recording recording;
+
+    @GET
+    public synchronized Response recording() {
+        if (!enabled) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (recording != null) {
+            return Response.ok(info(recording)).build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+    }
+
+    /**
+     * Starts a new recording.
+     *
+     * @param settings the name of the JFR configuration: {@code default} (low overhead, suitable for always-on recordings)
+     *        or {@code profile}
+     * @param maxAge how long to keep recorded data as ISO-8601 duration
+     * @param maxSize how much recorded data to keep in bytes
+     */
+    @POST
+    @Path("/start")
+    public synchronized Response start(@QueryParam("settings") @DefaultValue("default") final String settings,
+            @QueryParam("maxAge") @DefaultValue("PT1H") final String maxAge,
+            @QueryParam("maxSize") @DefaultValue("268435456") final long maxSize) {
+        if (!enabled) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return Response.status(Response.Status.CONFLICT).entity(info(recording)).build();
+        }
+        Configuration configuration;
+        Duration age;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+            age = Duration.parse(maxAge);
+        } catch (IOException | ParseException | DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build();
+        }
+
+        close();
+        recording = new Recording(configuration);
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(age);
+        recording.setMaxSize(maxSize);
+        recording.start();
+        Log.infof("Started flight recording using settings %s, max age %s and max size %,d bytes", settings, age, maxSize);
+        return Response.ok(info(recording)).build();
+    }
+
+    @POST
+    @Path("/stop")
+    public synchronized Response stop() {
+        if (enabled && recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            Log.info("Stopped flight recording");
+            return Response.ok(info(recording)).build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+    }
+
+    /**
+     * Downloads the recorded data. If the recording is still running, the data recorded so far is downloaded. The data is
+     * dumped to a temporary file, which is deleted when the response has ended, also if the client went away before
+     * the file has been streamed.
+     */
+    @GET
+    @Path("/download")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public synchronized Response download(@Context final RoutingContext routingContext) {
+        if (!enabled || recording == null || (recording.getState() != RecordingState.RUNNING
+                && recording.getState() != RecordingState.STOPPED)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        java.nio.file.Path file;
+        try {
+            file = Files.createTempFile(RECORDING_NAME, ".jfr");
+        } catch (IOException e) {
+            Log.errorf("Unable to dump flight recording: %s", e.getMessage());
+            return Response.serverError().build();
+        }
+        routingContext.addEndHandler(result -> deleteDump(file));
+        try {
+            recording.dump(file);
+        } catch (IOException e) {
+            Log.errorf("Unable to dump flight recording: %s", e.getMessage());
+            return Response.serverError().build();
+        }
+        StreamingOutput output = out -> Files.copy(file, out);
+        String filename = RECORDING_NAME + "-" + Instant.now().toString().replace(':', '-') + ".jfr";
+        return Response.ok(output).header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .build();
+    }
+
+    /** Closes the recording and releases its resources (including the recorded data on disk). */
+    @DELETE
+    public synchronized Response delete() {
+        if (enabled && recording != null) {
+            close();
+            return Response.noContent().build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+    }
+
+    private static void deleteDump(final java.nio.file.Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Log.warnf("Unable to delete flight recording dump %s: %s", file, e.getMessage());
+        }
+    }
+
+    private void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private RecordingInfo info(final Recording recording) {
+        return new RecordingInfo(recording.getName(), recording.getState().name(), recording.getStartTime(),
+                recording.getStopTime(), recording.getSize(), recording.getMaxAge(), recording.getMaxSize());
+    }
+
+    public record RecordingInfo(String name, String state, Instant startTime, Instant stopTime, long size, Duration maxAge,
+            long maxSize) {
+    }
+}
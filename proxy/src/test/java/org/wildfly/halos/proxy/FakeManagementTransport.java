@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.capability.wildfly.ManagementInterfaceException;
+import org.wildfly.halos.capability.wildfly.ManagementTransport;
+
+import com.google.common.net.HostAndPort;
+
+/** Replaces the remoting transport in tests. Clients are looked up by managed service name. */
+@ApplicationScoped
+public class FakeManagementTransport implements ManagementTransport {
+
+    private final Map<String, FakeWildFlyServer> servers; // key == managed service name
+    private final ExecutorService executor;
+
+    FakeManagementTransport() {
+        servers = new ConcurrentHashMap<>();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-wildfly");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ModelControllerClient create(final ManagedService managedService, final HostAndPort hostAndPort) {
+        FakeWildFlyServer server = servers.get(managedService.name());
+        if (server == null) {
+            throw new ManagementInterfaceException(
+                    String.format("Unable to connect to %s using %s", managedService, hostAndPort));
+        }
+        return server;
+    }
+
+    FakeWildFlyServer register(final String managedService, final FakeWildFlyServer.Fault fault,
+            final LoadConfig config) {
+        FakeWildFlyServer server = new FakeWildFlyServer(managedService, config.deployments(), config.latency(),
+                config.timeout(), fault, executor);
+        servers.put(managedService, server);
+        return server;
+    }
+
+    Map<String, FakeWildFlyServer> servers() {
+        return servers;
+    }
+
+    void clear() {
+        servers.clear();
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.Operation;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.OperationResponse;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
+import org.jboss.threads.AsyncFuture;
+import org.jboss.threads.AsyncFutureTask;
+
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.ADDRESS;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.CHILD_TYPE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.COMPOSITE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.DEPLOYMENT;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.DISABLED_TIME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.ENABLED;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.ENABLED_TIME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.FAILURE_DESCRIPTION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.MANAGEMENT_MAJOR_VERSION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.MANAGEMENT_MICRO_VERSION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.MANAGEMENT_MINOR_VERSION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.NAME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OP;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.OUTCOME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.PRODUCT_NAME;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.PRODUCT_VERSION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_ATTRIBUTE_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_CHILDREN_RESOURCES_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RELEASE_VERSION;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RESULT;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.RUNNING_MODE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.SERVER_STATE;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.STATUS;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.STEPS;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.SUCCESS;
+import static org.wildfly.halos.capability.wildfly.dmr.ModelDescriptionConstants.SUSPEND_STATE;
+
+/**
+ * Simulated management endpoint of a WildFly server. Answers the composites sent by {@code ManagementInterface},
+ * {@code StatusRepository} and {@code ServerRefresher}. Payloads are built per request, so idle servers only cost a few
+ * objects.
+ */
+class FakeWildFlyServer implements ModelControllerClient {
+
+    enum Fault {
+        /** Answers after the configured latency. */
+        NONE,
+        /** Blocks for the configured timeout and fails with a {@link SocketTimeoutException}. */
+        TIMEOUT,
+        /** Fails immediately with a {@link ConnectException}. */
+        REFUSED
+    }
+
+    private static final long MB = 1024 * 1024;
+
+    private final String name;
+    private final int deployments;
+    private final Duration latency;
+    private final Duration timeout;
+    private final Fault fault;
+    private final Executor executor;
+    private final long started;
+    private final AtomicLong operations;
+
+    FakeWildFlyServer(final String name, final int deployments, final Duration latency, final Duration timeout,
+            final Fault fault, final Executor executor) {
+        this.name = name;
+        this.deployments = deployments;
+        this.latency = latency;
+        this.timeout = timeout;
+        this.fault = fault;
+        this.executor = executor;
+        this.started = System.currentTimeMillis();
+        this.operations = new AtomicLong();
+    }
+
+    String name() {
+        return name;
+    }
+
+    Fault fault() {
+        return fault;
+    }
+
+    long operations() {
+        return operations.get();
+    }
+
+    // ------------------------------------------------------ model controller client
+
+    @Override
+    public ModelNode execute(final ModelNode operation) throws IOException {
+        return answer(operation);
+    }
+
+    @Override
+    public ModelNode execute(final Operation operation) throws IOException {
+        return answer(operation.getOperation());
+    }
+
+    @Override
+    public ModelNode execute(final ModelNode operation, final OperationMessageHandler messageHandler) throws IOException {
+        return answer(operation);
+    }
+
+    @Override
+    public ModelNode execute(final Operation operation, final OperationMessageHandler messageHandler) throws IOException {
+        return answer(operation.getOperation());
+    }
+
+    @Override
+    public OperationResponse executeOperation(final Operation operation, final OperationMessageHandler messageHandler)
+            throws IOException {
+        return OperationResponse.Factory.createSimple(answer(operation.getOperation()));
+    }
+
+    @Override
+    public AsyncFuture<ModelNode> executeAsync(final ModelNode operation) {
+        return async(operation);
+    }
+
+    @Override
+    public AsyncFuture<ModelNode> executeAsync(final ModelNode operation, final OperationMessageHandler messageHandler) {
+        return async(operation);
+    }
+
+    @Override
+    public AsyncFuture<ModelNode> executeAsync(final Operation operation, final OperationMessageHandler messageHandler) {
+        return async(operation.getOperation());
+    }
+
+    @Override
+    public AsyncFuture<OperationResponse> executeOperationAsync(final Operation operation,
+            final OperationMessageHandler messageHandler) {
+        FakeFuture<OperationResponse> future = new FakeFuture<>();
+        executor.execute(() -> {
+            try {
+                future.result(OperationResponse.Factory.createSimple(answer(operation.getOperation())));
+            } catch (Throwable t) {
+                future.failed(t);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+
+    private AsyncFuture<ModelNode> async(final ModelNode operation) {
+        FakeFuture<ModelNode> future = new FakeFuture<>();
+        executor.execute(() -> {
+            try {
+                future.result(answer(operation));
+            } catch (Throwable t) {
+                future.failed(t);
+            }
+        });
+        return future;
+    }
+
+    // ------------------------------------------------------ answers
+
+    private ModelNode answer(final ModelNode operation) throws IOException {
+        operations.incrementAndGet();
+        switch (fault) {
+            case REFUSED -> throw new ConnectException("Connection refused: " + name);
+            case TIMEOUT -> {
+                sleep(timeout.toMillis());
+                throw new SocketTimeoutException("Read timed out: " + name);
+            }
+            default -> {
+                long millis = latency.toMillis();
+                if (millis > 0) {
+                    // uniformly distributed between 50% and 150% of the configured latency
+                    sleep(millis / 2 + ThreadLocalRandom.current().nextLong(millis + 1));
+                }
+                return dispatch(operation);
+            }
+        }
+    }
+
+    private ModelNode dispatch(final ModelNode operation) {
+        String op = operation.get(OP).asString();
+        List<Property> address = operation.hasDefined(ADDRESS) ? operation.get(ADDRESS).asPropertyList() : List.of();
+        if (COMPOSITE.equals(op)) {
+            return composite(operation);
+        } else if (READ_RESOURCE_OPERATION.equals(op) && address.isEmpty()) {
+            return success(root());
+        } else if (READ_ATTRIBUTE_OPERATION.equals(op) && address.isEmpty()) {
+            ModelNode root = root();
+            String attribute = operation.get(NAME).asString();
+            return root.hasDefined(attribute) ? success(root.get(attribute)) : failed(operation);
+        } else if (READ_RESOURCE_OPERATION.equals(op) && address.size() == 2
+                && "platform-mbean".equals(address.get(0).getValue().asString())) {
+            ModelNode platform = platform(address.get(1).getValue().asString());
+            return platform != null ? success(platform) : failed(operation);
+        } else if (READ_CHILDREN_RESOURCES_OPERATION.equals(op) && address.isEmpty()
+                && DEPLOYMENT.equals(operation.get(CHILD_TYPE).asString())) {
+            return success(deployments());
+        }
+        return failed(operation);
+    }
+
+    private ModelNode composite(final ModelNode operation) {
+        ModelNode response = new ModelNode();
+        ModelNode result = response.get(RESULT).setEmptyObject();
+        boolean failed = false;
+        int index = 1;
+        for (ModelNode step : operation.get(STEPS).asList()) {
+            ModelNode stepResponse = dispatch(step);
+            failed |= !SUCCESS.equals(stepResponse.get(OUTCOME).asString());
+            result.get("step-" + index++).set(stepResponse);
+        }
+        if (failed) {
+            response.get(OUTCOME).set("failed");
+            response.get(FAILURE_DESCRIPTION).set("WFLYCTL0062: Composite operation failed and was rolled back.");
+        } else {
+            response.get(OUTCOME).set(SUCCESS);
+        }
+        return response;
+    }
+
+    private ModelNode root() {
+        ModelNode root = new ModelNode();
+        root.get(NAME).set(name);
+        root.get(PRODUCT_NAME).set("WildFly Full");
+        root.get(PRODUCT_VERSION).set("27.0.1.Final");
+        root.get(RELEASE_VERSION).set("19.0.1.Final");
+        root.get(MANAGEMENT_MAJOR_VERSION).set(20);
+        root.get(MANAGEMENT_MINOR_VERSION).set(0);
+        root.get(MANAGEMENT_MICRO_VERSION).set(0);
+        root.get(RUNNING_MODE).set("NORMAL");
+        root.get(SERVER_STATE).set("running");
+        root.get(SUSPEND_STATE).set("RUNNING");
+        return root;
+    }
+
+    private ModelNode deployments() {
+        ModelNode children = new ModelNode().setEmptyObject();
+        for (int i = 0; i < deployments; i++) {
+            boolean enabled = i % 10 != 0;
+            String deploymentName = "deployment-" + i + ".war";
+            ModelNode deployment = children.get(deploymentName);
+            deployment.get(ENABLED).set(enabled);
+            deployment.get(ENABLED_TIME).set(started - i * 60_000L);
+            if (!enabled) {
+                deployment.get(DISABLED_TIME).set(started);
+            }
+            deployment.get(NAME).set(deploymentName);
+            deployment.get("persistent").set(true);
+            deployment.get("runtime-name").set(deploymentName);
+            deployment.get(STATUS).set(enabled ? "OK" : "STOPPED");
+        }
+        return children;
+    }
+
+    private ModelNode platform(final String type) {
+        ModelNode node = new ModelNode();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (type) {
+            case "operating-system" -> {
+                node.get(NAME).set("Linux");
+                node.get("version").set("5.14.0");
+                node.get("available-processors").set(4);
+            }
+            case "runtime" -> {
+                node.get("vm-name").set("OpenJDK 64-Bit Server VM");
+                node.get("spec-version").set("17");
+                node.get("uptime").set(System.currentTimeMillis() - started);
+            }
+            case "memory" -> {
+                memory(node.get("heap-memory-usage"), (256 + random.nextLong(256)) * MB, 768 * MB, 1024 * MB);
+                memory(node.get("non-heap-memory-usage"), (90 + random.nextLong(10)) * MB, 128 * MB, -1);
+            }
+            case "threading" -> {
+                node.get("thread-count").set(80 + random.nextLong(20));
+                node.get("daemon-thread-count").set(40 + random.nextLong(10));
+            }
+            default -> {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private void memory(final ModelNode node, final long used, final long committed, final long max) {
+        node.get("init").set(64 * MB);
+        node.get("used").set(used);
+        node.get("committed").set(committed);
+        node.get("max").set(max);
+    }
+
+    private ModelNode success(final ModelNode result) {
+        ModelNode response = new ModelNode();
+        response.get(OUTCOME).set(SUCCESS);
+        response.get(RESULT).set(result);
+        return response;
+    }
+
+    private ModelNode failed(final ModelNode operation) {
+        ModelNode response = new ModelNode();
+        response.get(OUTCOME).set("failed");
+        response.get(FAILURE_DESCRIPTION).set(String.format("WFLYCTL0031: No operation named '%s' exists at address %s",
+                operation.get(OP).asString(), operation.get(ADDRESS)));
+        return response;
+    }
+
+    private static void sleep(final long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    /** Completes on the thread which answered the operation. */
+    private static final class FakeFuture<T> extends AsyncFutureTask<T> {
+
+        FakeFuture() {
+            super(Runnable::run);
+        }
+
+        void result(final T result) {
+            setResult(result);
+        }
+
+        void failed(final Throwable cause) {
+            setFailed(cause);
+        }
+
+        @Override
+        public void asyncCancel(final boolean interruptionDesired) {
+            setCancelled();
+        }
+    }
+}
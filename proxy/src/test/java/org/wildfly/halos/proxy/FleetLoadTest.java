@@ -0,0 +1,375 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import jakarta.inject.Inject;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ManagedService;
+
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.openshift.api.model.Route;
+import io.fabric8.openshift.api.model.RouteBuilder;
+import io.fabric8.openshift.client.OpenShiftClient;
+import io.fabric8.openshift.client.server.mock.OpenShiftServer;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.kubernetes.client.OpenShiftTestServer;
+import io.quarkus.test.kubernetes.client.WithOpenShiftTestServer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the proxy against a mock OpenShift with a fleet of simulated WildFly servers (see {@link FakeWildFlyServer}) and
+ * reports
+ * <ul>
+ * <li>the time until all healthy servers are connected and until all services are settled</li>
+ * <li>heap and thread usage, the live heap and the GC pauses from the GC log of the 'load' profile</li>
+ * <li>latency percentiles from the service watch event to the SSE subscribers and of the REST endpoints</li>
+ * </ul>
+ * The harness runs in one JVM with the proxy and works offline. Heap and thread numbers include the simulated servers
+ * and the clients of the harness. The report is printed and written to {@code target/load-report.txt}. Run with
+ * {@code ./mvnw test -Pload -pl proxy -am}; see {@link LoadConfig} for the options.
+ */
+@QuarkusTest
+@WithOpenShiftTestServer(crud = true)
+@Tag("load")
+class FleetLoadTest {
+
+    private static final String PREFIX = "load-";
+    private static final Path GC_LOG = Path.of("target", "gc.log");
+    private static final int MANAGEMENT_PORT = 9990;
+    private static final Pattern NAME = Pattern.compile("\"name\":\"(" + PREFIX + "\\d+)\"");
+    private static final Pattern STATUS = Pattern.compile("\"status\":\"(PENDING|CONNECTED|FAILED)\"");
+
+    @OpenShiftTestServer OpenShiftServer server;
+    @TestHTTPResource("/") URL root;
+    @Inject FakeManagementTransport transport;
+    @Inject ManagedServiceRepository managedServiceRepository;
+    @Inject ProxyMetrics metrics;
+
+    private final List<Stream<String>> streams = new CopyOnWriteArrayList<>();
+    private ExecutorService executor;
+
+    @AfterEach
+    void tearDown() {
+        streams.forEach(Stream::close);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        transport.clear();
+    }
+
+    @Test
+    void fleet() throws Exception {
+        LoadConfig config = LoadConfig.fromSystemProperties();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        executor = Executors.newCachedThreadPool();
+        long heapBefore = usedHeap(memory);
+        GcLog gcBefore = GcLog.read(GC_LOG);
+        int threadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        // simulated servers
+        Random random = new Random(config.seed());
+        Map<FakeWildFlyServer.Fault, Integer> faults = new LinkedHashMap<>();
+        List<String> healthy = new ArrayList<>();
+        for (int i = 0; i < config.servers(); i++) {
+            String name = String.format("%s%05d", PREFIX, i);
+            double r = random.nextDouble();
+            FakeWildFlyServer.Fault fault = r < config.refused() ? FakeWildFlyServer.Fault.REFUSED
+                    : r < config.refused() + config.timeouts() ? FakeWildFlyServer.Fault.TIMEOUT
+                            : FakeWildFlyServer.Fault.NONE;
+            transport.register(name, fault, config);
+            faults.merge(fault, 1, Integer::sum);
+            if (fault == FakeWildFlyServer.Fault.NONE) {
+                healthy.add(name);
+            }
+        }
+
+        // SSE subscribers
+        Map<String, Long> created = new ConcurrentHashMap<>(); // key == managed service name, value == nano time
+        Histogram watchToSse = new ConcurrentHistogram(3);
+        Histogram watchToConnected = new ConcurrentHistogram(3);
+        for (int i = 0; i < config.subscribers(); i++) {
+            executor.execute(() -> subscribe(http, created, watchToSse, watchToConnected));
+        }
+        await(() -> metrics.subscribers() >= config.subscribers(), Duration.ofSeconds(30));
+
+        // services and routes
+        OpenShiftClient oc = server.getOpenshiftClient();
+        long start = System.nanoTime();
+        for (String name : transport.servers().keySet()) {
+            created.put(name, System.nanoTime());
+            oc.services().resource(service(name)).create();
+            oc.routes().resource(route(name)).create();
+        }
+        long allCreated = System.nanoTime() - start;
+
+        // connect
+        long allConnected = -1;
+        long allSettled = -1;
+        long deadline = start + config.deadline().toNanos();
+        while (System.nanoTime() < deadline) {
+            Map<Connection.Status, Integer> statuses = statuses();
+            if (allConnected < 0 && statuses.getOrDefault(Connection.Status.CONNECTED, 0) >= healthy.size()) {
+                allConnected = System.nanoTime() - start;
+            }
+            int settled = statuses.getOrDefault(Connection.Status.CONNECTED, 0)
+                    + statuses.getOrDefault(Connection.Status.FAILED, 0);
+            if (settled >= config.servers()) {
+                allSettled = System.nanoTime() - start;
+                break;
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        long heapConnected = usedHeap(memory);
+        GcLog gcConnected = GcLog.read(GC_LOG);
+        GcLog gcConnect = gcConnected.since(gcBefore.last());
+        int threadsConnected = threads.getThreadCount();
+
+        // REST
+        Map<String, Histogram> rest = new LinkedHashMap<>();
+        AtomicLong errors = new AtomicLong();
+        rest.put("GET /services", get(http, config, errors, () -> "/api/v1/services"));
+        rest.put("GET /services?limit=100", get(http, config, errors, () -> "/api/v1/services?limit=100"));
+        rest.put("GET /wildfly/servers?limit=100", get(http, config, errors, () -> "/api/v1/wildfly/servers?limit=100"));
+        rest.put("GET /wildfly/servers/{s}/status", get(http, config, errors, () -> "/api/v1/wildfly/servers/"
+                + healthy.get(ThreadLocalRandom.current().nextInt(healthy.size())) + "/status"));
+        rest.put("GET /metrics", get(http, config, errors, () -> "/api/v1/metrics"));
+
+        // report
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%nhalOS load report%n"));
+        report.append(String.format("servers               %,d %s, %d deployments, latency %d ms, timeout %d ms%n",
+                config.servers(), faults, config.deployments(), config.latency().toMillis(), config.timeout().toMillis()));
+        report.append(String.format("services created      %,.1f s%n", seconds(allCreated)));
+        report.append(String.format("all healthy connected %s%n", duration(allConnected)));
+        report.append(String.format("all settled           %s %s%n", duration(allSettled), statuses()));
+        report.append(String.format("heap used             %,d MB before, %,d MB connected%n", heapBefore / 1024 / 1024,
+                heapConnected / 1024 / 1024));
+        report.append(String.format("heap per service      %,d KB%n", (heapConnected - heapBefore) / config.servers() / 1024));
+        if (gcBefore.liveHeap() >= 0 && gcConnected.liveHeap() >= 0) {
+            long live = gcConnected.liveHeap() - gcBefore.liveHeap();
+            report.append(String.format("live heap (gc.log)    %,d MB before, %,d MB connected, %,d KB per service%n",
+                    gcBefore.liveHeap(), gcConnected.liveHeap(), live * 1024 / config.servers()));
+            report.append(String.format("GC while connecting   %,d pauses, %,.1f ms total, %,.1f ms max%n",
+                    gcConnect.pauses().size(), gcConnect.totalMillis(), gcConnect.maxMillis()));
+        }
+        report.append(String.format("threads               %d before, %d connected, %d peak%n", threadsBefore,
+                threadsConnected, threads.getPeakThreadCount()));
+        report.append(String.format("REST errors           %,d%n%n", errors.get()));
+        report.append(String.format("%-32s %8s %9s %9s %9s %9s%n", "latency [ms]", "count", "p50", "p90", "p99", "max"));
+        percentiles(report, "watch -> SSE (" + config.subscribers() + " subscribers)", watchToSse);
+        percentiles(report, "watch -> SSE connected", watchToConnected);
+        rest.forEach((endpoint, histogram) -> percentiles(report, endpoint, histogram));
+        System.out.println(report);
+        Files.writeString(Path.of("target", "load-report.txt"), report, UTF_8);
+
+        Map<Connection.Status, Integer> statuses = statuses();
+        assertEquals(healthy.size(), statuses.getOrDefault(Connection.Status.CONNECTED, 0), "connected services");
+        assertEquals(0, errors.get(), "REST errors");
+    }
+
+    // ------------------------------------------------------ fleet
+
+    private Service service(final String name) {
+        return new ServiceBuilder()
+                .withNewMetadata()
+                .withName(name)
+                .addToLabels("managedby", "halos")
+                .addToLabels("app.kubernetes.io/name", "wildfly")
+                .endMetadata()
+                .withNewSpec()
+                .withClusterIP("10.0.0.1")
+                .addNewPort().withPort(MANAGEMENT_PORT).withNewTargetPort(MANAGEMENT_PORT).endPort()
+                .endSpec()
+                .build();
+    }
+
+    private Route route(final String name) {
+        return new RouteBuilder()
+                .withNewMetadata().withName(name + "-management").endMetadata()
+                .withNewSpec()
+                .withHost(name + ".apps.halos.test")
+                .withNewTo().withKind("Service").withName(name).endTo()
+                .withNewPort().withNewTargetPort(MANAGEMENT_PORT).endPort()
+                .endSpec()
+                .build();
+    }
+
+    private Map<Connection.Status, Integer> statuses() {
+        Map<Connection.Status, Integer> statuses = new LinkedHashMap<>();
+        for (ManagedService managedService : managedServiceRepository.managedServices()) {
+            if (managedService.name().startsWith(PREFIX)) {
+                statuses.merge(managedService.connection().status(), 1, Integer::sum);
+            }
+        }
+        return statuses;
+    }
+
+    // ------------------------------------------------------ clients
+
+    /** Records the time from creating a service until its first modification and until it's connected. */
+    private void subscribe(final HttpClient http, final Map<String, Long> created, final Histogram watchToSse,
+            final Histogram watchToConnected) {
+        HttpRequest request = HttpRequest.newBuilder(uri("/api/v1/services/modifications"))
+                .header("Accept", "text/event-stream").build();
+        Set<String> seen = new HashSet<>();
+        Set<String> connected = new HashSet<>();
+        try {
+            Stream<String> lines = http.send(request, HttpResponse.BodyHandlers.ofLines()).body();
+            streams.add(lines);
+            lines.filter(line -> line.startsWith("data:")).forEach(line -> {
+                long now = System.nanoTime();
+                Matcher name = NAME.matcher(line);
+                if (name.find()) {
+                    Long start = created.get(name.group(1));
+                    if (start != null) {
+                        if (seen.add(name.group(1))) {
+                            watchToSse.recordValue(now - start);
+                        }
+                        Matcher status = STATUS.matcher(line);
+                        if (status.find() && "CONNECTED".equals(status.group(1)) && connected.add(name.group(1))) {
+                            watchToConnected.recordValue(now - start);
+                        }
+                    }
+                }
+            });
+        } catch (UncheckedIOException | IOException e) {
+            // stream closed by tearDown()
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Histogram get(final HttpClient http, final LoadConfig config, final AtomicLong errors,
+            final Supplier<String> path) throws InterruptedException {
+        Histogram histogram = new ConcurrentHistogram(3);
+        AtomicLong remaining = new AtomicLong(config.requests());
+        List<Future<?>> clients = new ArrayList<>();
+        for (int i = 0; i < config.concurrency(); i++) {
+            clients.add(executor.submit(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    HttpRequest request = HttpRequest.newBuilder(uri(path.get())).header("Accept", "application/json")
+                            .build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        histogram.recordValue(System.nanoTime() - start);
+                        if (response.statusCode() >= 300) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> client : clients) {
+            try {
+                client.get();
+            } catch (ExecutionException e) {
+                errors.incrementAndGet();
+            }
+        }
+        return histogram;
+    }
+
+    private URI uri(final String path) {
+        return URI.create(root.toString().replaceAll("/$", "") + path);
+    }
+
+    // ------------------------------------------------------ helpers
+
+    private static void await(final BooleanSupplier condition, final Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Condition not met within " + timeout);
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+    }
+
+    private static long usedHeap(final MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static String duration(final long nanos) {
+        return nanos < 0 ? "timed out" : seconds(nanos) + " s";
+    }
+
+    private static double seconds(final long nanos) {
+        return Math.round(nanos / 100_000_000.0) / 10.0;
+    }
+
+    private static void percentiles(final StringBuilder report, final String name, final Histogram histogram) {
+        report.append(String.format("%-32s %8d %9.1f %9.1f %9.1f %9.1f%n", name, histogram.getTotalCount(),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getMaxValue())));
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openjdk.jol.info.GraphLayout;
+import org.wildfly.halos.api.Capability;
+import org.wildfly.halos.api.CapabilityExtension;
+import org.wildfly.halos.api.Connection;
+import org.wildfly.halos.api.ManagedService;
+import org.wildfly.halos.api.Tracing;
+
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the retained heap per managed service using JOL. Services are added to the {@link ManagedServiceRepository}
+ * the same way as by the service watch: they're connected by a capability extension and the modifications are published
+ * to a subscriber. The growth is divided by the number of added services and checked against the threshold
+ * {@code halos.footprint.managed-service} configured in the POM. The footprint of WildFly servers is measured in the
+ * WildFly capability.
+ */
+class FootprintTest {
+
+    private static final Capability CAPABILITY = new Capability() {
+        @Override
+        public String name() {
+            return "footprint";
+        }
+
+        @Override
+        public String title() {
+            return "Footprint";
+        }
+    };
+
+    @ParameterizedTest
+    @ValueSource(ints = { 100, 1_000, 10_000 })
+    void managedService(final int count) {
+        ManagedServiceRepository repository = repository();
+        Cancellable subscriber = repository.modifications().subscribe().with(modification -> {
+            // a connected SSE client
+        });
+        CapabilityExtension extension = new ConnectedExtension();
+        // the first connect registers the meters
+        repository.add(service("warm-up"), extension);
+        long empty = size(repository);
+        for (int i = 0; i < count; i++) {
+            repository.add(service("service-" + i), extension);
+        }
+        long bytes = (size(repository) - empty) / count;
+        subscriber.cancel();
+
+        long threshold = Long.getLong("halos.footprint.managed-service", Long.MAX_VALUE);
+        Log.infof("Footprint of managed-service (%,d): %,d bytes each, threshold %,d bytes", count, bytes, threshold);
+        assertTrue(bytes <= threshold,
+                String.format("Footprint of managed-service is %,d bytes, threshold is %,d bytes", bytes, threshold));
+    }
+
+    private static ManagedServiceRepository repository() {
+        ProxyMetrics metrics = new ProxyMetrics();
+        metrics.registry = new SimpleMeterRegistry();
+        ManagedServiceRepository repository = new ManagedServiceRepository();
+        repository.metrics = metrics;
+        repository.tracing = new Tracing(OpenTelemetry.noop().getTracer("halos"));
+        return repository;
+    }
+
+    private static Service service(final String name) {
+        return new ServiceBuilder().withNewMetadata().withName(name).endMetadata().build();
+    }
+
+    private static long size(final Object root) {
+        return GraphLayout.parseInstance(root).totalSize();
+    }
+
+    private static class ConnectedExtension implements CapabilityExtension {
+
+        @Override
+        public Capability capability() {
+            return CAPABILITY;
+        }
+
+        @Override
+        public String labelSelector() {
+            return "app.kubernetes.io/name=footprint";
+        }
+
+        @Override
+        public Uni<Connection> connect(final ManagedService managedService) {
+            return Uni.createFrom().item(Connection.connected());
+        }
+
+        @Override
+        public void close(final ManagedService managedService) {
+            // nothing to close
+        }
+    }
+}
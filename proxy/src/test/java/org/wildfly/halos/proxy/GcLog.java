@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads the pauses of a unified GC log written with {@code -Xlog:gc*:file=<path>}. A pause line looks like
+ * {@code [1.234s][info][gc] GC(12) Pause Full (System.gc()) 120M->45M(512M) 12.345ms}. The heap after an explicit
+ * {@code System.gc()} is the live heap at that point.
+ */
+record GcLog(List<Pause> pauses) {
+
+    private static final Pattern PAUSE = Pattern
+            .compile("GC\\((\\d+)\\) (Pause .+?) (\\d+)M->(\\d+)M\\((\\d+)M\\) (\\d+(?:\\.\\d+)?)ms");
+    private static final String SYSTEM_GC = "(System.gc())";
+
+    /** Returns an empty log if the file doesn't exist (GC logging is only enabled in the 'load' profile). */
+    static GcLog read(final Path path) throws IOException {
+        List<Pause> pauses = new ArrayList<>();
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, UTF_8)) {
+                Matcher matcher = PAUSE.matcher(line);
+                if (matcher.find()) {
+                    pauses.add(new Pause(Integer.parseInt(matcher.group(1)), matcher.group(2),
+                            Long.parseLong(matcher.group(3)), Long.parseLong(matcher.group(4)),
+                            Long.parseLong(matcher.group(5)), Double.parseDouble(matcher.group(6))));
+                }
+            }
+        }
+        return new GcLog(pauses);
+    }
+
+    /** The live heap in MB after the last explicit {@code System.gc()} or -1 if there's none. */
+    long liveHeap() {
+        for (int i = pauses.size() - 1; i >= 0; i--) {
+            if (pauses.get(i).cause().contains(SYSTEM_GC)) {
+                return pauses.get(i).after();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The pauses after the specified pause, or all pauses if {@code since} is {@code null}. Explicit {@code System.gc()}
+     * pauses of the harness are left out.
+     */
+    GcLog since(final Pause since) {
+        return new GcLog(pauses.stream()
+                .filter(pause -> since == null || pause.id() > since.id())
+                .filter(pause -> !pause.cause().contains(SYSTEM_GC))
+                .toList());
+    }
+
+    Pause last() {
+        return pauses.isEmpty() ? null : pauses.get(pauses.size() - 1);
+    }
+
+    double totalMillis() {
+        return pauses.stream().mapToDouble(Pause::millis).sum();
+    }
+
+    double maxMillis() {
+        return pauses.stream().mapToDouble(Pause::millis).max().orElse(0);
+    }
+
+    /** Heap sizes in MB. */
+    record Pause(int id, String cause, long before, long after, long committed, double millis) {
+    }
+}
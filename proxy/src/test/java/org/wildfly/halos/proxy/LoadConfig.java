@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2022 Red Hat
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wildfly.halos.proxy;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the load harness. All values can be set as system properties, e.g.
+ * {@code -Dhalos.load.servers=1000}.
+ *
+ * @param servers number of simulated WildFly servers
+ * @param deployments deployments per server
+ * @param latency mean latency of management operations (uniformly distributed between 50% and 150%)
+ * @param timeout time after which servers with the {@code TIMEOUT} fault fail
+ * @param timeouts fraction of servers which time out
+ * @param refused fraction of servers which refuse connections
+ * @param subscribers number of SSE subscribers
+ * @param requests requests per REST endpoint
+ * @param concurrency concurrent REST clients
+ * @param deadline maximum time to wait until all services are settled
+ * @param seed seed to assign the faults
+ */
+record LoadConfig(int servers, int deployments, Duration latency, Duration timeout, double timeouts, double refused,
+        int subscribers, int requests, int concurrency, Duration deadline, long seed) {
+
+    private static final String PREFIX = "halos.load.";
+
+    static LoadConfig fromSystemProperties() {
+        return new LoadConfig(Integer.getInteger(PREFIX + "servers", 1000),
+                Integer.getInteger(PREFIX + "deployments", 20),
+                Duration.ofMillis(Long.getLong(PREFIX + "latency", 20)),
+                Duration.ofMillis(Long.getLong(PREFIX + "timeout", 5_000)),
+                Double.parseDouble(System.getProperty(PREFIX + "timeouts", "0.005")),
+                Double.parseDouble(System.getProperty(PREFIX + "refused", "0.01")),
+                Integer.getInteger(PREFIX + "subscribers", 10),
+                Integer.getInteger(PREFIX + "requests", 1000),
+                Integer.getInteger(PREFIX + "concurrency", 8),
+                Duration.ofSeconds(Long.getLong(PREFIX + "deadline", 600)),
+                Long.getLong(PREFIX + "seed", 42));
+    }
+}
@@ -0,0 +1,214 @@
+#!/usr/bin/env bash
+#
+#  Copyright 2022 Red Hat
+#
+#  Licensed under the Apache License, Version 2.0 (the "License");
+#  you may not use this file except in compliance with the License.
+#  You may obtain a copy of the License at
+#
+#      https://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#  See the License for the specific language governing permissions and
+#  limitations under the License.
+#
+
+# --------------------------------------------------
+#
+# Measures the startup of the proxy:
+#   - time to first request (GET /api/v1/capabilities)
+#   - time to ready (GET /q/health/ready, i.e. all service watches registered)
+#   - resident set size when ready
+#
+# The proxy needs access to an OpenShift cluster to become ready. Use the
+# same environment variables as for the dev mode (without the _DEV_ prefix).
+#
+# --------------------------------------------------
+
+set -Eeuo pipefail
+trap cleanup SIGINT SIGTERM ERR EXIT
+
+VERSION=0.0.1
+PORT=8080
+TIMEOUT=60
+
+# Change into the script's directory
+# Using relative paths is safe!
+script_dir=$(cd "$(dirname "${BASH_SOURCE[0]}")" &>/dev/null && pwd -P)
+readonly script_dir
+cd "${script_dir}"
+
+readonly app_dir="proxy/target/quarkus-app"
+readonly trained_archive="${app_dir}/app-trained.jsa"
+
+usage() {
+  cat <<EOF
+USAGE:
+    $(basename "${BASH_SOURCE[0]}") [FLAGS] <variant> [<runs>]
+
+FLAGS:
+    -h, --help          Prints help information
+    -v, --version       Prints version information
+    --no-color          Uses plain text output
+
+VARIANTS:
+    jvm                 Plain JVM build          (./mvnw package)
+    appcds              JVM with AppCDS archive  (./mvnw package -Pappcds)
+    train               Training run which records a dynamic CDS archive of the classes used by the REST API
+    trained             JVM with the archive recorded by 'train'
+    native              Native executable        (./mvnw package -Dnative)
+
+ARGS:
+    <runs>              Number of runs (default 5)
+EOF
+  exit
+}
+
+cleanup() {
+  trap - SIGINT SIGTERM ERR EXIT
+  if [[ -n "${pid-}" ]] && kill -0 "${pid}" 2>/dev/null; then
+    kill "${pid}" 2>/dev/null || true
+  fi
+}
+
+setup_colors() {
+  if [[ -t 2 ]] && [[ -z "${NO_COLOR-}" ]] && [[ "${TERM-}" != "dumb" ]]; then
+    NOFORMAT='\033[0m' RED='\033[0;31m' GREEN='\033[0;32m' ORANGE='\033[0;33m' BLUE='\033[0;34m' PURPLE='\033[0;35m' CYAN='\033[0;36m' YELLOW='\033[1;33m'
+  else
+    # shellcheck disable=SC2034
+    NOFORMAT='' RED='' GREEN='' ORANGE='' BLUE='' PURPLE='' CYAN='' YELLOW=''
+  fi
+}
+
+msg() {
+  echo >&2 -e "${1-}"
+}
+
+die() {
+  local msg=$1
+  local code=${2-1} # default exit status 1
+  msg "$msg"
+  exit "$code"
+}
+
+version() {
+  msg "${BASH_SOURCE[0]} $VERSION"
+  exit 0
+}
+
+parse_params() {
+  while :; do
+    case "${1-}" in
+    -h | --help) usage ;;
+    -v | --version) version ;;
+    --no-color) NO_COLOR=1 ;;
+    -?*) die "Unknown option: $1" ;;
+    *) break ;;
+    esac
+    shift
+  done
+
+  args=("$@")
+  [[ ${#args[@]} -eq 0 ]] && die "Missing variant"
+  return 0
+}
+
+command_for() {
+  case "$1" in
+  jvm) echo "java -jar ${app_dir}/quarkus-run.jar" ;;
+  appcds)
+    [[ -f "${app_dir}/app-cds.jsa" ]] || die "${RED}No AppCDS archive found. Build with ./mvnw package -Pappcds${NOFORMAT}"
+    echo "java -XX:SharedArchiveFile=${app_dir}/app-cds.jsa -Xshare:on -jar ${app_dir}/quarkus-run.jar"
+    ;;
+  train) echo "java -XX:ArchiveClassesAtExit=${trained_archive} -jar ${app_dir}/quarkus-run.jar" ;;
+  trained)
+    [[ -f "${trained_archive}" ]] || die "${RED}No trained archive found. Run $(basename "${BASH_SOURCE[0]}") train first${NOFORMAT}"
+    echo "java -XX:SharedArchiveFile=${trained_archive} -Xshare:on -jar ${app_dir}/quarkus-run.jar"
+    ;;
+  native)
+    local runner
+    runner=$(find proxy/target -maxdepth 1 -name '*-runner' -type f | head -n 1)
+    [[ -n "${runner}" ]] || die "${RED}No native executable found. Build with ./mvnw package -Dnative${NOFORMAT}"
+    echo "${runner}"
+    ;;
+  *) die "Unknown variant: $1" ;;
+  esac
+}
+
+now_ms() {
+  echo $(($(date +%s%N) / 1000000))
+}
+
+# Polls the URL until it returns 200 and prints the milliseconds elapsed since the start time
+await() {
+  local url=$1 start=$2
+  while ! curl -sf -o /dev/null "${url}"; do
+    kill -0 "${pid}" 2>/dev/null || die "${RED}Proxy terminated unexpectedly${NOFORMAT}"
+    (($(now_ms) - start > TIMEOUT * 1000)) && die "${RED}Timeout waiting for ${url}${NOFORMAT}"
+    sleep 0.01
+  done
+  echo $(($(now_ms) - start))
+}
+
+start() {
+  local start
+  start=$(now_ms)
+  # shellcheck disable=SC2086
+  $1 >/dev/null 2>&1 &
+  pid=$!
+  first=$(await "http://localhost:${PORT}/api/v1/capabilities" "${start}")
+  ready=$(await "http://localhost:${PORT}/q/health/ready" "${start}")
+  rss=$(($(ps -o rss= -p "${pid}") / 1024))
+}
+
+stop() {
+  kill -TERM "${pid}"
+  wait "${pid}" 2>/dev/null || true
+  unset pid
+}
+
+# Exercises the REST API in JSON and CBOR, so the archive contains the classes of the request paths
+train() {
+  msg "Training run: ${CYAN}$1${NOFORMAT}"
+  start "$1"
+  for path in /api/v1/capabilities /api/v1/services /api/v1/wildfly/servers /api/v1/quarkus/services /api/v1/metrics \
+    /q/health /q/metrics; do
+    curl -sf -o /dev/null -H "Accept: application/json" "http://localhost:${PORT}${path}" || true
+    curl -sf -o /dev/null -H "Accept: application/cbor" "http://localhost:${PORT}${path}" || true
+  done
+  stop
+  msg "${GREEN}Recorded ${trained_archive}${NOFORMAT}"
+}
+
+median() {
+  sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+measure() {
+  local variant=$1 runs=$2 command
+  command=$(command_for "${variant}")
+  msg "Measuring ${CYAN}${variant}${NOFORMAT}: ${command}"
+  local firsts=() readies=() rsss=()
+  for ((i = 1; i <= runs; i++)); do
+    start "${command}"
+    stop
+    msg "  run ${i}: first request ${first} ms, ready ${ready} ms, RSS ${rss} MB"
+    firsts+=("${first}")
+    readies+=("${ready}")
+    rsss+=("${rss}")
+  done
+  msg "${GREEN}${variant}${NOFORMAT} (median of ${runs}): first request $(printf '%s\n' "${firsts[@]}" | median) ms," \
+    "ready $(printf '%s\n' "${readies[@]}" | median) ms, RSS $(printf '%s\n' "${rsss[@]}" | median) MB"
+}
+
+parse_params "$@"
+setup_colors
+variant=${args[0]}
+runs=${args[1]-5}
+if [[ "${variant}" == "train" ]]; then
+  train "$(command_for train)"
+else
+  measure "${variant}" "${runs}"
+fi